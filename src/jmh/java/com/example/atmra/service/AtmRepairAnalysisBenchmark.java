@@ -0,0 +1,123 @@
+package com.example.atmra.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.atmra.dto.AtmRepairFilterDto;
+
+/**
+ * Анализ таблицы ремонтов сервисами разных типов ({@code atm-service.type}) без кэша
+ * результатов анализа.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark compile exec:exec -Djmh.args="AtmRepairAnalysisBenchmark"}.
+ * Объем данных задается параметрами JMH, например
+ * {@code -Djmh.args="AtmRepairAnalysisBenchmark -p rows=1000000 -p atmCount=50000"}.
+ * Параметр {@code periodDays} ограничивает анализ последними днями периода данных.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AtmRepairAnalysisBenchmark {
+
+    /** Тип сервиса работы с таблицей ремонтов */
+    @Param({ "code", "cb", "sql" })
+    private String serviceType;
+
+    /** Количество записей ремонтов */
+    @Param("200000")
+    private int rows;
+
+    /** Количество АТМ */
+    @Param("20000")
+    private int atmCount;
+
+    /** Доля повторных поломок */
+    @Param("0.1")
+    private double recurrenceRate;
+
+    /** Количество последних дней периода данных для анализа, 0 - вся история */
+    @Param({ "0", "30" })
+    private int periodDays;
+
+    private ConfigurableApplicationContext context;
+
+    private IAtmRepairService service;
+
+    private AtmRepairFilterDto filter;
+
+    /**
+     * Запускает приложение и заполняет таблицу ремонтов синтетическими данными.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = AtmRepairBenchmarkContext.start(serviceType);
+        service = context.getBean(IAtmRepairService.class);
+        SyntheticAtmRepairs repairs = SyntheticAtmRepairs.builder()
+                .atmCount(atmCount)
+                .recurrenceRate(recurrenceRate)
+                .build();
+        AtmRepairBenchmarkContext.save(service, repairs.generate(rows));
+        filter = AtmRepairFilterDto.builder()
+                .from(periodDays > 0 ? repairs.getPeriodEnd().minusDays(periodDays) : null)
+                .build();
+        // Загрузка снимка сервиса "code" не входит в измерение
+        service.findLongestRepairTimes(filter);
+    }
+
+    /**
+     * Останавливает приложение.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Наиболее часто встречающиеся причины неисправности.
+     * 
+     * @return результат анализа
+     */
+    @Benchmark
+    public List<Object> findMostCommonCauses() {
+        return service.findMostCommonCauses(filter);
+    }
+
+    /**
+     * Наиболее долгие ремонты.
+     * 
+     * @return результат анализа
+     */
+    @Benchmark
+    public List<Object> findLongestRepairTimes() {
+        return service.findLongestRepairTimes(filter);
+    }
+
+    /**
+     * Ремонты, причина которых повторилась.
+     * 
+     * @return результат анализа
+     */
+    @Benchmark
+    public Object findCauseFailureRecurred() {
+        return service.findCauseFailureRecurred(filter);
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.example.atmra.service;
+
+import java.io.File;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.atmra.AtmRepairtsAnalyzerApplication;
+import com.example.atmra.dto.AtmRepairDto;
+
+/**
+ * Контекст приложения для бенчмарков сервисов работы с таблицей ремонтов.
+ */
+final class AtmRepairBenchmarkContext {
+
+    /** Количество записей, сохраняемых за один раз, как при загрузке файла */
+    static final int CHUNK_SIZE = 1000;
+
+    private AtmRepairBenchmarkContext() {
+    }
+
+    /**
+     * Запускает приложение без веб-сервера с новой БД, без кэша результатов анализа и без
+     * журналирования SQL.
+     * 
+     * @param serviceType тип сервиса работы с таблицей ремонтов ({@code atm-service.type})
+     * @return контекст приложения
+     */
+    static ConfigurableApplicationContext start(String serviceType) {
+        File database = new File("target/jmh-" + serviceType + ".sqlite");
+        database.delete();
+        return new SpringApplicationBuilder(AtmRepairtsAnalyzerApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--spring.datasource.url=jdbc:sqlite:" + database.getPath(),
+                        "--atm-service.type=" + serviceType,
+                        "--spring.cache.type=none",
+                        "--logging.level.root=WARN");
+    }
+
+    /**
+     * Сохраняет записи ремонтов порциями по {@link #CHUNK_SIZE} записей.
+     * 
+     * @param service сервис работы с таблицей ремонтов
+     * @param dtoList записи ремонтов
+     */
+    static void save(IAtmRepairService service, List<AtmRepairDto> dtoList) {
+        for (int from = 0; from < dtoList.size(); from += CHUNK_SIZE) {
+            service.createOrUpdate(
+                    dtoList.subList(from, Math.min(dtoList.size(), from + CHUNK_SIZE)));
+        }
+    }
+
+}
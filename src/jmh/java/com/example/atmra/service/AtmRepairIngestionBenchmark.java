@@ -0,0 +1,119 @@
+package com.example.atmra.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairImportResultDto;
+
+/**
+ * Загрузка данных в пустую таблицу ремонтов сервисами разных типов ({@code atm-service.type}):
+ * из XLSX файла и из готовых DTO.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark compile exec:exec -Djmh.args="AtmRepairIngestionBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AtmRepairIngestionBenchmark {
+
+    /** Тип сервиса работы с таблицей ремонтов */
+    @Param({ "code", "cb", "sql" })
+    private String serviceType;
+
+    /** Количество записей ремонтов */
+    @Param("50000")
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+
+    private IAtmRepairService service;
+
+    private AtmRepairFileService fileService;
+
+    /** XLSX файл с данными ремонтов */
+    private File file;
+
+    /** Данные ремонтов */
+    private List<AtmRepairDto> dtoList;
+
+    /**
+     * Запускает приложение и готовит синтетические данные.
+     * 
+     * @throws IOException в случае ошибки записи XLSX файла
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = AtmRepairBenchmarkContext.start(serviceType);
+        service = context.getBean(IAtmRepairService.class);
+        fileService = context.getBean(AtmRepairFileService.class);
+        SyntheticAtmRepairs generator = SyntheticAtmRepairs.builder().build();
+        file = new File("target/jmh-ingestion-" + rows + ".xlsx");
+        generator.writeXlsx(rows, file);
+        dtoList = generator.generate(rows);
+    }
+
+    /**
+     * Очищает таблицу ремонтов перед каждой загрузкой.
+     */
+    @Setup(Level.Iteration)
+    public void clear() {
+        service.deleteAll();
+    }
+
+    /**
+     * Останавливает приложение.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        file.delete();
+    }
+
+    /**
+     * Загрузка из XLSX файла.
+     * 
+     * @return количество добавленных и обновленных записей
+     * @throws IOException в случае ошибки чтения из файла
+     */
+    @Benchmark
+    public AtmRepairImportResultDto saveData() throws IOException {
+        return fileService.saveData(file);
+    }
+
+    /**
+     * Сохранение готовых DTO порциями, как при загрузке файла.
+     * 
+     * @return количество добавленных и обновленных записей
+     */
+    @Benchmark
+    public AtmRepairImportResultDto createOrUpdate() {
+        AtmRepairImportResultDto result = new AtmRepairImportResultDto();
+        for (int from = 0; from < dtoList.size(); from += AtmRepairBenchmarkContext.CHUNK_SIZE) {
+            result.add(service.createOrUpdate(dtoList.subList(from,
+                    Math.min(dtoList.size(), from + AtmRepairBenchmarkContext.CHUNK_SIZE))));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.example.atmra.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Разбор файла с данными ремонтов без сохранения в БД: XLSX файла потоковым читателем POI,
+ * CSV файла, отображаемого в память, и CSV файла, сжатого gzip.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark compile exec:exec -Djmh.args="AtmRepairParseBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AtmRepairParseBenchmark {
+
+    /** Формат файла: {@code xlsx}, {@code csv} или {@code csv.gz} */
+    @Param({ "xlsx", "csv", "csv.gz" })
+    private String format;
+
+    /** Количество записей ремонтов */
+    @Param("200000")
+    private int rows;
+
+    /** Файл с данными ремонтов */
+    private File file;
+
+    /**
+     * Готовит файл с синтетическими данными.
+     * 
+     * @throws IOException в случае ошибки записи файла
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticAtmRepairs generator = SyntheticAtmRepairs.builder().build();
+        file = new File("target/jmh-parse-" + rows + "." + format);
+        if ("xlsx".equals(format)) {
+            generator.writeXlsx(rows, file);
+        } else {
+            generator.writeCsv(rows, file, format.endsWith(".gz"));
+        }
+    }
+
+    /**
+     * Удаляет файл.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    /**
+     * Разбор файла.
+     * 
+     * @param blackhole получатель значений колонок строк
+     * @throws IOException в случае ошибки чтения из файла
+     */
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException {
+        if ("xlsx".equals(format)) {
+            AtmRepairXlsxReader.read(file, 0, blackhole::consume);
+        } else {
+            AtmRepairCsvReader.read(file, blackhole::consume);
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.example.atmra.service;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairFilterDto;
+import com.example.atmra.repository.AtmRepairDictionaryRepository;
+
+/**
+ * Поиск повторных поломок по снимку таблицы ремонтов в зависимости от количества потоков.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark compile exec:exec -Djmh.args="AtmRepairSnapshotBenchmark"}.
+ * Количество строк и потоков задается параметрами JMH, например
+ * {@code -Djmh.args="AtmRepairSnapshotBenchmark -p rows=1000000 -p parallelism=1,4"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class AtmRepairSnapshotBenchmark {
+
+    /** Количество дней за которые причина поломки повторилась */
+    private static final int DAYS = 15;
+
+    /** Условия отбора всех ремонтов */
+    private static final AtmRepairFilterDto ALL = new AtmRepairFilterDto();
+
+    /** Количество записей ремонтов */
+    @Param("5000000")
+    private int rows;
+
+    /** Количество потоков поиска, 1 - в текущем потоке */
+    @Param({ "1", "2", "4", "8" })
+    private int parallelism;
+
+    /** БД справочников в памяти */
+    private SingleConnectionDataSource dataSource;
+
+    private AtmRepairSnapshot snapshot;
+
+    private ForkJoinPool pool;
+
+    /**
+     * Заполняет справочники и снимок синтетическими записями ремонтов и строит порядок строк.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:sqlite::memory:", true);
+        AtmRepairDictionaryRepository dictionaries = new AtmRepairDictionaryRepository(
+                new NamedParameterJdbcTemplate(dataSource));
+        dictionaries.initialize();
+        List<AtmRepairDto> dtoList = SyntheticAtmRepairs.builder().build().generate(rows);
+        dictionaries.register(dtoList);
+        snapshot = new AtmRepairSnapshot(dictionaries);
+        snapshot.apply(dtoList);
+        // Первое чтение строит порядок строк, он не входит в измерение
+        snapshot.size();
+        pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    }
+
+    /**
+     * Останавливает пул потоков и закрывает БД справочников.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        dataSource.destroy();
+    }
+
+    /**
+     * Ищет повторные поломки.
+     * 
+     * @return группы ремонтов
+     */
+    @Benchmark
+    public List<AtmRepairSnapshot.Group> findCauseFailureRecurred() {
+        return snapshot.findCauseFailureRecurred(DAYS, pool, ALL);
+    }
+
+}
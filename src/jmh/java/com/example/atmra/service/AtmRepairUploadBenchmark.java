@@ -0,0 +1,129 @@
+package com.example.atmra.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.atmra.dto.AtmRepairImportResultDto;
+import com.example.atmra.service.AtmRepairFileService.Source;
+
+/**
+ * Загрузка нескольких XLSX файлов с несколькими листами в пустую таблицу ремонтов: одной
+ * загрузкой с параллельным разбором листов и по одному файлу.
+ * <p>
+ * Запуск: {@code mvn -Pbenchmark compile exec:exec -Djmh.args="AtmRepairUploadBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AtmRepairUploadBenchmark {
+
+    /** Тип сервиса работы с таблицей ремонтов */
+    @Param("cb")
+    private String serviceType;
+
+    /** Количество записей ремонтов во всех файлах */
+    @Param("100000")
+    private int rows;
+
+    /** Количество файлов */
+    @Param("4")
+    private int files;
+
+    /** Количество листов в файле */
+    @Param({ "1", "3" })
+    private int sheetsPerFile;
+
+    private ConfigurableApplicationContext context;
+
+    private IAtmRepairService service;
+
+    private AtmRepairFileService fileService;
+
+    /** Загружаемые XLSX файлы */
+    private List<Source> sources;
+
+    /**
+     * Запускает приложение и готовит файлы с синтетическими данными.
+     * 
+     * @throws IOException в случае ошибки записи XLSX файла
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = AtmRepairBenchmarkContext.start(serviceType);
+        service = context.getBean(IAtmRepairService.class);
+        fileService = context.getBean(AtmRepairFileService.class);
+        List<File> xlsxFiles = new ArrayList<>(files);
+        sources = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            File file = new File("target/jmh-upload-" + rows + "-" + i + ".xlsx");
+            xlsxFiles.add(file);
+            sources.add(new Source(file.getName(), file));
+        }
+        SyntheticAtmRepairs.builder().build().writeXlsx(rows, xlsxFiles, sheetsPerFile);
+    }
+
+    /**
+     * Очищает таблицу ремонтов перед каждой загрузкой.
+     */
+    @Setup(Level.Iteration)
+    public void clear() {
+        service.deleteAll();
+    }
+
+    /**
+     * Останавливает приложение.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        sources.forEach(source -> source.file().delete());
+    }
+
+    /**
+     * Загрузка всех файлов одной задачей с параллельным разбором листов.
+     * 
+     * @return количество добавленных и обновленных записей
+     * @throws IOException в случае ошибки чтения из файла
+     */
+    @Benchmark
+    public AtmRepairImportResultDto uploadTogether() throws IOException {
+        return fileService.saveData(sources, AtmRepairImportProgress.NONE);
+    }
+
+    /**
+     * Загрузка файлов по одному.
+     * 
+     * @return количество добавленных и обновленных записей
+     * @throws IOException в случае ошибки чтения из файла
+     */
+    @Benchmark
+    public AtmRepairImportResultDto uploadOneByOne() throws IOException {
+        AtmRepairImportResultDto result = new AtmRepairImportResultDto();
+        for (Source source : sources) {
+            result.add(fileService.saveData(source.file()));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,297 @@
+package com.example.atmra.service;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import com.example.atmra.dto.AtmRepairDto;
+
+import lombok.Builder;
+
+/**
+ * Генератор синтетических данных ремонтов для бенчмарков.
+ * <p>
+ * Данные определяются параметрами генератора и количеством записей: при одинаковых параметрах
+ * генерируются одинаковые записи. Время начала ремонтов равномерно распределено в периоде
+ * {@link #daySpan} дней с 2020-01-01, кроме повторных поломок: с вероятностью
+ * {@link #recurrenceRate} ремонт повторяет АТМ и причину предыдущего ремонта в течение
+ * {@link #recurrenceDays} дней после его начала.
+ */
+@Builder
+public class SyntheticAtmRepairs {
+
+    /** Начало периода ремонтов */
+    private static final LocalDateTime PERIOD_START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    /** Максимальное время ремонта, секунд */
+    private static final int MAX_DURATION_SECONDS = 72 * 3600;
+
+    /** Формат дат CSV файла */
+    private static final DateTimeFormatter CSV_DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** Наименования колонок XLSX и CSV файлов */
+    private static final String[] COLUMNS = { "Номер", "ID ATM", "Причина", "Начало",
+            "Окончание", "Серийный номер", "Банк", "Канал" };
+
+    /** Количество АТМ */
+    @Builder.Default
+    private final int atmCount = 20_000;
+
+    /** Количество причин ремонта */
+    @Builder.Default
+    private final int reasonCount = 40;
+
+    /** Количество банков */
+    @Builder.Default
+    private final int bankCount = 5;
+
+    /** Количество каналов */
+    @Builder.Default
+    private final int channelCount = 3;
+
+    /** Продолжительность периода ремонтов, дней */
+    @Builder.Default
+    private final int daySpan = 730;
+
+    /** Доля повторных поломок */
+    @Builder.Default
+    private final double recurrenceRate = 0.1;
+
+    /** Максимальное количество дней между повторными поломками */
+    @Builder.Default
+    private final int recurrenceDays = 15;
+
+    /** Начальное значение генератора случайных чисел */
+    @Builder.Default
+    private final long seed = 42;
+
+    /**
+     * Получатель записи ремонта.
+     */
+    @FunctionalInterface
+    public interface RepairConsumer {
+
+        /**
+         * Принимает запись ремонта.
+         * 
+         * @param caseId идентификатор записи ремонта
+         * @param atmId идентификатор АТМ
+         * @param reason причина ремонта
+         * @param startTime время начала ремонта в секундах от начала эпохи
+         * @param endTime время окончания ремонта в секундах от начала эпохи
+         * @param serialNumber серийный номер АТМ
+         * @param bankName наименование банка
+         * @param channel канал
+         */
+        void accept(long caseId, String atmId, String reason, long startTime, long endTime,
+                String serialNumber, String bankName, String channel);
+
+    }
+
+    /**
+     * Возвращает окончание периода ремонтов.
+     * 
+     * @return дата и время окончания периода
+     */
+    public LocalDateTime getPeriodEnd() {
+        return PERIOD_START.plusDays(daySpan);
+    }
+
+    /**
+     * Генерирует записи ремонтов с идентификаторами от 1 до {@code rows}.
+     * 
+     * @param rows количество записей
+     * @param consumer получатель записей
+     */
+    public void generate(int rows, RepairConsumer consumer) {
+        Random random = new Random(seed);
+        String[] atmIds = values("", 300_000, atmCount);
+        String[] serialNumbers = values("SN", 5_300_000, atmCount);
+        String[] reasons = values("Причина неисправности ", 1, reasonCount);
+        String[] bankNames = values("Банк ", 1, bankCount);
+        String[] channels = values("Канал ", 1, channelCount);
+        long periodStart = PERIOD_START.toEpochSecond(ZoneOffset.UTC);
+        long periodSeconds = daySpan * 86_400L;
+
+        int atm = 0;
+        int reason = 0;
+        long startTime = periodStart;
+        for (int row = 1; row <= rows; row++) {
+            if (row > 1 && random.nextDouble() < recurrenceRate) {
+                startTime += 1 + random.nextLong(recurrenceDays * 86_400L);
+            } else {
+                atm = random.nextInt(atmCount);
+                reason = random.nextInt(reasonCount);
+                startTime = periodStart + random.nextLong(periodSeconds);
+            }
+            long endTime = startTime + 600 + random.nextInt(MAX_DURATION_SECONDS);
+            consumer.accept(row, atmIds[atm], reasons[reason], startTime, endTime,
+                    serialNumbers[atm], bankNames[atm % bankCount], channels[row % channelCount]);
+        }
+    }
+
+    /**
+     * Генерирует DTO записей ремонтов.
+     * 
+     * @param rows количество записей
+     * @return список DTO
+     */
+    public List<AtmRepairDto> generate(int rows) {
+        List<AtmRepairDto> result = new ArrayList<>(rows);
+        generate(rows, (caseId, atmId, reason, startTime, endTime, serialNumber, bankName,
+                channel) -> result.add(AtmRepairDto.builder()
+                        .caseId(caseId)
+                        .atmId(atmId)
+                        .reason(reason)
+                        .startTime(AtmRepairSnapshot.toLocalDateTime(startTime))
+                        .endTime(AtmRepairSnapshot.toLocalDateTime(endTime))
+                        .serialNumber(serialNumber)
+                        .bankName(bankName)
+                        .channel(channel)
+                        .build()));
+        return result;
+    }
+
+    /**
+     * Записывает записи ремонтов в XLSX файл в формате загрузки
+     * {@link AtmRepairFileService#saveData}.
+     * 
+     * @param rows количество записей
+     * @param file XLSX файл
+     * @throws IOException в случае ошибки записи в файл
+     */
+    public void writeXlsx(int rows, File file) throws IOException {
+        writeXlsx(rows, List.of(file), 1);
+    }
+
+    /**
+     * Записывает записи ремонтов в несколько XLSX файлов по несколько листов в формате загрузки
+     * {@link AtmRepairFileService#saveData}. Записи делятся между листами поровну по порядку
+     * генерации: первый лист первого файла получает первые записи.
+     * 
+     * @param rows количество записей
+     * @param files XLSX файлы
+     * @param sheetsPerFile количество листов в файле
+     * @throws IOException в случае ошибки записи в файл
+     */
+    public void writeXlsx(int rows, List<File> files, int sheetsPerFile) throws IOException {
+        List<SXSSFWorkbook> workbooks = new ArrayList<>(files.size());
+        try {
+            Sheet[] sheets = new Sheet[files.size() * sheetsPerFile];
+            CellStyle[] dateStyles = new CellStyle[sheets.length];
+            for (int f = 0; f < files.size(); f++) {
+                SXSSFWorkbook workbook = new SXSSFWorkbook();
+                workbooks.add(workbook);
+                CellStyle dateStyle = workbook.createCellStyle();
+                dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat()
+                        .getFormat("dd.mm.yyyy hh:mm"));
+                for (int s = 0; s < sheetsPerFile; s++) {
+                    Sheet sheet = workbook.createSheet();
+                    Row header = sheet.createRow(0);
+                    for (int i = 0; i < COLUMNS.length; i++) {
+                        header.createCell(i).setCellValue(COLUMNS[i]);
+                    }
+                    sheets[f * sheetsPerFile + s] = sheet;
+                    dateStyles[f * sheetsPerFile + s] = dateStyle;
+                }
+            }
+            int[] rowIndex = { 0 };
+            generate(rows, (caseId, atmId, reason, startTime, endTime, serialNumber, bankName,
+                    channel) -> {
+                int part = (int) ((long) rowIndex[0]++ * sheets.length / rows);
+                Sheet sheet = sheets[part];
+                Row row = sheet.createRow(sheet.getLastRowNum() + 1);
+                row.createCell(0).setCellValue(caseId);
+                row.createCell(1).setCellValue(atmId);
+                row.createCell(2).setCellValue(reason);
+                row.createCell(3).setCellValue(AtmRepairSnapshot.toLocalDateTime(startTime));
+                row.getCell(3).setCellStyle(dateStyles[part]);
+                row.createCell(4).setCellValue(AtmRepairSnapshot.toLocalDateTime(endTime));
+                row.getCell(4).setCellStyle(dateStyles[part]);
+                row.createCell(5).setCellValue(serialNumber);
+                row.createCell(6).setCellValue(bankName);
+                row.createCell(7).setCellValue(channel);
+            });
+            for (int f = 0; f < files.size(); f++) {
+                try (OutputStream out = new FileOutputStream(files.get(f))) {
+                    workbooks.get(f).write(out);
+                }
+            }
+        } finally {
+            for (SXSSFWorkbook workbook : workbooks) {
+                workbook.close();
+            }
+        }
+    }
+
+    /**
+     * Записывает записи ремонтов в CSV файл с разделителем {@code ;} в формате загрузки
+     * {@link AtmRepairFileService#saveData}.
+     * 
+     * @param rows количество записей
+     * @param file CSV файл
+     * @param gzip признак сжатия файла gzip
+     * @throws IOException в случае ошибки записи в файл
+     */
+    public void writeCsv(int rows, File file, boolean gzip) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        if (gzip) {
+            out = new GZIPOutputStream(out, 1 << 16);
+        }
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+            writer.write(String.join(";", COLUMNS));
+            writer.write('\n');
+            generate(rows, (caseId, atmId, reason, startTime, endTime, serialNumber, bankName,
+                    channel) -> {
+                try {
+                    writer.write(caseId + ";" + atmId + ";" + reason + ";"
+                            + CSV_DATE_FORMAT.format(AtmRepairSnapshot.toLocalDateTime(startTime))
+                            + ";"
+                            + CSV_DATE_FORMAT.format(AtmRepairSnapshot.toLocalDateTime(endTime))
+                            + ";" + serialNumber + ";" + bankName + ";" + channel + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Возвращает значения колонки с префиксом и последовательными номерами.
+     * 
+     * @param prefix префикс
+     * @param first первый номер
+     * @param count количество значений
+     * @return значения колонки
+     */
+    private static String[] values(String prefix, int first, int count) {
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = prefix + (first + i);
+        }
+        return result;
+    }
+
+}
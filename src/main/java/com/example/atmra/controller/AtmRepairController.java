@@ -1,16 +1,27 @@
 package com.example.atmra.controller;
 
-import java.util.Map;
+import java.util.List;
+import java.util.function.Consumer;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.atmra.dto.AtmRepairAggregateCheckDto;
 import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairFilterDto;
+import com.example.atmra.dto.AtmRepairPageDto;
+import com.example.atmra.dto.AtmRepairPageRequestDto;
 import com.example.atmra.service.IAtmRepairService;
 
 import jakarta.validation.Valid;
@@ -26,6 +37,8 @@ public class AtmRepairController {
 
     private final IAtmRepairService atmRepairService;
 
+    private final AtmRepairJsonStreamWriter atmRepairJsonStreamWriter;
+
     /**
      * Обновляет запись в таблице ремонтов.
      * 
@@ -48,6 +61,42 @@ public class AtmRepairController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Сравнивает агрегаты таблицы ремонтов с пересчитанными по таблице ремонтов.
+     * 
+     * @return количество расхождений по каждому агрегату
+     */
+    @GetMapping("/aggregates")
+    public AtmRepairAggregateCheckDto checkAggregates() {
+        return atmRepairService.checkAggregates();
+    }
+
+    /**
+     * Пересчитывает агрегаты таблицы ремонтов.
+     * 
+     * @return количество расхождений по каждому агрегату до пересчета
+     */
+    @PostMapping("/aggregates/rebuild")
+    public AtmRepairAggregateCheckDto rebuildAggregates() {
+        return atmRepairService.rebuildAggregates();
+    }
+
+    /**
+     * Возвращает страницу данных из таблицы ремонтов.
+     * 
+     * @param filter условия отбора: {@code atmId}, {@code reason}, {@code bankName},
+     *            {@code channel}, период по дате начала ремонта {@code from} - {@code to}
+     * @param request сортировка {@code sort} ({@code caseId} или {@code startTime}),
+     *            {@code direction} ({@code asc} или {@code desc}), позиция {@code cursor} из
+     *            предыдущей страницы и размер страницы {@code size}
+     * @return страница данных
+     */
+    @GetMapping("/repairs")
+    public AtmRepairPageDto getPage(@ModelAttribute AtmRepairFilterDto filter,
+            @ModelAttribute AtmRepairPageRequestDto request) {
+        return atmRepairService.findPage(filter, request);
+    }
+
     /**
      * Возвращает данные из таблицы ремонтов в соотвествии с типом данных.
      * 
@@ -56,17 +105,73 @@ public class AtmRepairController {
      *            {@code mostCommonCauses} - наиболее часто встречающиеся причины неисправности <br>
      *            {@code longestRepairTimes} - наиболее долгих ремонта <br>
      *            {@code causeFailureRecurred} - причина поломки повторилась в течение 15 дней
+     * @param stream признак потоковой выдачи данных по мере чтения из БД. Все данные
+     *            ({@code allData}) выдаются потоком всегда
+     * @param accept принимаемые форматы ответа, при {@code application/x-ndjson} данные
+     *            выдаются потоком по одному JSON объекту на строке
+     * @param v версия формата ответа, по умолчанию {@code 1} <br>
+     *            {@code 1} - массив заголовков групп с текстом заголовка и данных ремонтов <br>
+     *            {@code 2} - группы с типом и значениями заголовка и данными ремонтов
+     * @param format представление данных ремонтов в версии 2 <br>
+     *            {@code grouped} - объекты <br>
+     *            {@code columnar} - массивы значений в порядке имен {@code columns}
+     * @param filter условия отбора ремонтов, по которым выполняется анализ: {@code atmId},
+     *            {@code reason}, {@code bankName}, {@code channel}, период по дате начала
+     *            ремонта {@code from} - {@code to}
      * @return набор данных
+     * @throws IllegalArgumentException если тип данных, версия или формат не известны
      */
     @GetMapping("/data/{type}")
-    public ResponseEntity<?> getData(@PathVariable String type) {
-        return switch (type) {
-        case "allData" -> ResponseEntity.ok(atmRepairService.findAll());
-        case "mostCommonCauses" -> ResponseEntity.ok(atmRepairService.findMostCommonCauses());
-        case "longestRepairTimes" -> ResponseEntity.ok(atmRepairService.findLongestRepairTimes());
-        case "causeFailureRecurred" -> ResponseEntity
-                .ok(atmRepairService.findCauseFailureRecurred());
-        default -> ResponseEntity.badRequest().body(Map.of("message", "Не известный тип: " + type));
+    public ResponseEntity<StreamingResponseBody> getData(@PathVariable String type,
+            @RequestParam(defaultValue = "false") boolean stream,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam(defaultValue = "1") int v,
+            @RequestParam(defaultValue = "grouped") String format,
+            @ModelAttribute AtmRepairFilterDto filter) {
+        AtmRepairResultFormat resultFormat = resultFormat(v, format);
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        Consumer<Consumer<Object>> source;
+        if (stream || ndjson) {
+            source = switch (type) {
+            case "allData" -> sink -> atmRepairService.streamAll(filter, sink);
+            case "mostCommonCauses" ->
+                sink -> atmRepairService.streamMostCommonCauses(filter, sink);
+            case "longestRepairTimes" -> atmRepairService.findLongestRepairTimes(filter)::forEach;
+            case "causeFailureRecurred" ->
+                sink -> atmRepairService.streamCauseFailureRecurred(filter, sink);
+            default -> throw new IllegalArgumentException("Не известный тип: " + type);
+            };
+        } else {
+            // Результаты анализа берутся из кэша до начала ответа
+            source = switch (type) {
+            case "allData" -> sink -> atmRepairService.streamAll(filter, sink);
+            case "mostCommonCauses" -> atmRepairService.findMostCommonCauses(filter)::forEach;
+            case "longestRepairTimes" -> atmRepairService.findLongestRepairTimes(filter)::forEach;
+            case "causeFailureRecurred" ->
+                ((List<?>) atmRepairService.findCauseFailureRecurred(filter))::forEach;
+            default -> throw new IllegalArgumentException("Не известный тип: " + type);
+            };
+        }
+        return atmRepairJsonStreamWriter.write(resultFormat, ndjson, source);
+    }
+
+    /**
+     * Возвращает формат ответа по версии и представлению данных ремонтов.
+     * 
+     * @param v версия формата ответа
+     * @param format представление данных ремонтов в версии 2
+     * @return формат ответа
+     * @throws IllegalArgumentException если версия или формат не известны
+     */
+    private static AtmRepairResultFormat resultFormat(int v, String format) {
+        return switch (v) {
+        case 1 -> AtmRepairResultFormat.V1;
+        case 2 -> switch (format) {
+            case "grouped" -> AtmRepairResultFormat.GROUPED;
+            case "columnar" -> AtmRepairResultFormat.COLUMNAR;
+            default -> throw new IllegalArgumentException("Не известный формат: " + format);
+            };
+        default -> throw new IllegalArgumentException("Не известная версия: " + v);
         };
     }
 
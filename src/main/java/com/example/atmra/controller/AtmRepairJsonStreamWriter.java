@@ -0,0 +1,71 @@
+package com.example.atmra.controller;
+
+import java.util.function.Consumer;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.atmra.repository.AtmRepairStreamingReads;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Формирует потоковые ответы REST сервисов в формате JSON или NDJSON.
+ * <p>
+ * Данные записываются в ответ генератором Jackson по мере получения от сервиса, поэтому память
+ * не зависит от количества записей, а первые байты ответа отправляются до окончания чтения БД.
+ * БД читается в {@link AtmRepairStreamingReads}, так как соединение удерживается до окончания
+ * передачи ответа.
+ * <p>
+ * Время формирования ответа, включая получение данных от сервиса, регистрируется метрикой
+ * {@value #WRITE_TIMER} с метками {@code format} и {@code ndjson}.
+ */
+@Component
+@RequiredArgsConstructor
+public class AtmRepairJsonStreamWriter {
+
+    /** Время формирования потокового ответа */
+    public static final String WRITE_TIMER = "atm.repairs.json.write";
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Возвращает потоковый ответ с данными, которые передает источник.
+     * 
+     * @param format формат ответа
+     * @param ndjson {@code true} - по одному JSON объекту на строке ({@code application/x-ndjson}),
+     *            {@code false} - JSON документ в формате {@code format}
+     * @param source источник данных, передающий их получателю
+     * @return потоковый ответ
+     */
+    public ResponseEntity<StreamingResponseBody> write(AtmRepairResultFormat format,
+            boolean ndjson, Consumer<Consumer<Object>> source) {
+        Timer timer = meterRegistry.timer(WRITE_TIMER,
+                "format", format.name().toLowerCase(), "ndjson", Boolean.toString(ndjson));
+        StreamingResponseBody body = outputStream -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                AtmRepairResultJsonWriter writer =
+                        new AtmRepairResultJsonWriter(generator, format, ndjson);
+                writer.start();
+                AtmRepairStreamingReads.run(() -> source.accept(writer));
+                writer.finish();
+            } finally {
+                sample.stop(timer);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.example.atmra.controller;
+
+/**
+ * Формат ответа с данными ремонтов.
+ */
+public enum AtmRepairResultFormat {
+
+    /**
+     * Прежний формат (версия 1): массив, в котором заголовки групп с текстом заголовка
+     * {@code groupTitle} перемежаются данными ремонтов.
+     */
+    V1,
+
+    /**
+     * Группы с типом и значениями заголовка и массивом данных ремонтов {@code rows}.
+     */
+    GROUPED,
+
+    /**
+     * Группы как в {@link #GROUPED}, данные ремонтов - массивы значений в порядке имен
+     * {@code columns}.
+     */
+    COLUMNAR
+
+}
@@ -0,0 +1,201 @@
+package com.example.atmra.controller;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairGroupDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+/**
+ * Записывает генератором JSON заголовки групп и данные ремонтов по мере получения от сервиса
+ * в заданном формате.
+ * <p>
+ * Сервис передает заголовок группы перед данными ремонтов группы, поэтому группы формируются
+ * без накопления данных в памяти. Данные ремонтов без заголовка группы записываются в группу без
+ * типа.
+ */
+final class AtmRepairResultJsonWriter implements Consumer<Object> {
+
+    /** Имена значений данных ремонта в формате {@link AtmRepairResultFormat#COLUMNAR} */
+    static final List<String> COLUMNS = List.of("caseId", "atmId", "reason", "startTime",
+            "endTime", "serialNumber", "bankName", "channel");
+
+    private final JsonGenerator generator;
+
+    private final AtmRepairResultFormat format;
+
+    /** Признак записи по одному JSON объекту на строке */
+    private final boolean ndjson;
+
+    /** Признак незакрытой группы */
+    private boolean groupOpen;
+
+    /**
+     * @param generator генератор JSON
+     * @param format формат ответа
+     * @param ndjson признак записи по одному JSON объекту на строке
+     */
+    AtmRepairResultJsonWriter(JsonGenerator generator, AtmRepairResultFormat format,
+            boolean ndjson) {
+        this.generator = generator;
+        this.format = format;
+        this.ndjson = ndjson;
+    }
+
+    /**
+     * Записывает начало ответа.
+     * 
+     * @throws IOException в случае ошибки записи
+     */
+    void start() throws IOException {
+        if (ndjson) {
+            generator.setRootValueSeparator(new SerializedString("\n"));
+            return;
+        }
+        if (format == AtmRepairResultFormat.V1) {
+            generator.writeStartArray();
+            return;
+        }
+        generator.writeStartObject();
+        if (format == AtmRepairResultFormat.COLUMNAR) {
+            generator.writeArrayFieldStart("columns");
+            for (String column : COLUMNS) {
+                generator.writeString(column);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeArrayFieldStart("groups");
+    }
+
+    @Override
+    public void accept(Object value) {
+        try {
+            if (ndjson || format == AtmRepairResultFormat.V1) {
+                writeElement(value);
+            } else if (value instanceof AtmRepairGroupDto group) {
+                closeGroup();
+                generator.writeStartObject();
+                writeGroupFields(group);
+                openRows();
+            } else {
+                if (!groupOpen) {
+                    generator.writeStartObject();
+                    openRows();
+                }
+                writeRow((AtmRepairDto) value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Записывает окончание ответа.
+     * 
+     * @throws IOException в случае ошибки записи
+     */
+    void finish() throws IOException {
+        if (ndjson) {
+            generator.writeRaw('\n');
+        } else if (format == AtmRepairResultFormat.V1) {
+            generator.writeEndArray();
+        } else {
+            closeGroup();
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Записывает заголовок группы или данные ремонта отдельным элементом.
+     * 
+     * @param value заголовок группы или данные ремонта
+     * @throws IOException в случае ошибки записи
+     */
+    private void writeElement(Object value) throws IOException {
+        if (value instanceof AtmRepairGroupDto group) {
+            generator.writeStartObject();
+            if (format == AtmRepairResultFormat.V1) {
+                generator.writeStringField("groupTitle", group.getGroupTitle());
+            } else {
+                writeGroupFields(group);
+            }
+            generator.writeEndObject();
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    /**
+     * Записывает тип и значения заголовка группы.
+     * 
+     * @param group заголовок группы
+     * @throws IOException в случае ошибки записи
+     */
+    private void writeGroupFields(AtmRepairGroupDto group) throws IOException {
+        generator.writeStringField("type", group.getType().name());
+        if (group.getAtmId() != null) {
+            generator.writeStringField("atmId", group.getAtmId());
+        }
+        if (group.getReason() != null) {
+            generator.writeStringField("reason", group.getReason());
+        }
+        if (group.getCount() != null) {
+            generator.writeNumberField("count", group.getCount());
+        }
+        if (group.getDurationHours() != null) {
+            generator.writeNumberField("durationHours", group.getDurationHours());
+        }
+    }
+
+    /**
+     * Записывает данные ремонта в группу.
+     * 
+     * @param dto данные ремонта
+     * @throws IOException в случае ошибки записи
+     */
+    private void writeRow(AtmRepairDto dto) throws IOException {
+        if (format != AtmRepairResultFormat.COLUMNAR) {
+            generator.writeObject(dto);
+            return;
+        }
+        generator.writeStartArray();
+        generator.writeObject(dto.getCaseId());
+        generator.writeString(dto.getAtmId());
+        generator.writeString(dto.getReason());
+        generator.writeObject(dto.getStartTime());
+        generator.writeObject(dto.getEndTime());
+        generator.writeString(dto.getSerialNumber());
+        generator.writeString(dto.getBankName());
+        generator.writeString(dto.getChannel());
+        generator.writeEndArray();
+    }
+
+    /**
+     * Открывает массив данных ремонтов группы.
+     * 
+     * @throws IOException в случае ошибки записи
+     */
+    private void openRows() throws IOException {
+        generator.writeArrayFieldStart("rows");
+        groupOpen = true;
+    }
+
+    /**
+     * Закрывает открытую группу.
+     * 
+     * @throws IOException в случае ошибки записи
+     */
+    private void closeGroup() throws IOException {
+        if (groupOpen) {
+            generator.writeEndArray();
+            generator.writeEndObject();
+            groupOpen = false;
+        }
+    }
+
+}
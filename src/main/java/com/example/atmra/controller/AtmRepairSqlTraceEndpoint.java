@@ -0,0 +1,69 @@
+package com.example.atmra.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.example.atmra.repository.AtmRepairSqlTracer;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Endpoint Actuator {@code /actuator/sqltrace} трассировки запросов SQL.
+ * <p>
+ * {@code GET} возвращает режим трассировки и статистику запросов, {@code POST} с полями
+ * {@code enabled} и {@code sampleRate} переключает режим, {@code DELETE} очищает статистику.
+ */
+@Component
+@Endpoint(id = "sqltrace")
+@RequiredArgsConstructor
+public class AtmRepairSqlTraceEndpoint {
+
+    private final AtmRepairSqlTracer atmRepairSqlTracer;
+
+    /**
+     * Возвращает режим трассировки и статистику запросов.
+     * 
+     * @return режим трассировки и статистика запросов по убыванию суммарного времени
+     */
+    @ReadOperation
+    public Map<String, Object> trace() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", atmRepairSqlTracer.isEnabled());
+        result.put("sampleRate", atmRepairSqlTracer.getSampleRate());
+        result.put("queries", atmRepairSqlTracer.getStats());
+        return result;
+    }
+
+    /**
+     * Переключает режим трассировки.
+     * 
+     * @param enabled признак включенной трассировки, {@code null} - не изменять
+     * @param sampleRate записывается в журнал каждый N-й оператор, 0 - не записывать,
+     *            {@code null} - не изменять
+     * @return режим трассировки и статистика запросов
+     */
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Boolean enabled,
+            @Nullable Integer sampleRate) {
+        atmRepairSqlTracer.configure(
+                enabled != null ? enabled : atmRepairSqlTracer.isEnabled(),
+                sampleRate != null ? sampleRate : atmRepairSqlTracer.getSampleRate());
+        return trace();
+    }
+
+    /**
+     * Очищает статистику запросов.
+     */
+    @DeleteOperation
+    public void reset() {
+        atmRepairSqlTracer.resetStats();
+    }
+
+}
@@ -1,19 +1,25 @@
 package com.example.atmra.controller;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.atmra.dto.AtmRepairUploadJobDto;
 import com.example.atmra.service.AtmRepairFileService;
+import com.example.atmra.service.AtmRepairUploadJobService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * Контроллер REST сервисоа загрузки данных из XLS файла в таблицу ремонтов.
+ * Контроллер REST сервисоа загрузки данных из XLS файлов в таблицу ремонтов.
  */
 @RestController
 @RequestMapping("/api/incidents")
@@ -21,49 +27,80 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AtmRepairUploadController {
 
-    private final AtmRepairFileService atmRepairFileService;
+    private final AtmRepairUploadJobService atmRepairUploadJobService;
 
     /**
-     * Загружает данные из XLS файла в таблицу ремонтов.
+     * Ставит в очередь загрузку данных из XLS файлов в таблицу ремонтов.
+     * <p>
+     * Файлы передаются несколькими частями {@code file} и загружаются одной задачей: все листы
+     * всех файлов, а также файлы .xls, .xlsx, .csv и .csv.gz из ZIP архивов.
      * 
-     * @param file XLS файл
-     * @return результат выполнения
+     * @param files XLS, XLSX, CSV, CSV.GZ или ZIP файлы
+     * @return результат постановки в очередь с идентификатором задачи загрузки
      */
     @PostMapping("/upload")
-    public ResponseEntity<?> uploadFile(MultipartFile file) {
-        if (file.isEmpty()) {
-            return ResponseEntity.badRequest().body(createResponse("Файл не выбран", -1, false));
+    public ResponseEntity<?> uploadFile(
+            @RequestParam(name = "file", required = false) List<MultipartFile> files) {
+        if (files == null || files.isEmpty() || files.stream().allMatch(MultipartFile::isEmpty)) {
+            return ResponseEntity.badRequest().body(createResponse("Файл не выбран", null, false));
         }
 
-        String originalFilename = file.getOriginalFilename();
-        if (!originalFilename.endsWith(".xls") && !originalFilename.endsWith(".xlsx")) {
-            return ResponseEntity.badRequest()
-                    .body(createResponse("Поддерживаются только файлы .xls и .xlsx", -1, false));
+        for (MultipartFile file : files) {
+            String originalFilename = String.valueOf(file.getOriginalFilename());
+            if (!AtmRepairFileService.isDataFile(originalFilename)
+                    && !originalFilename.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+                return ResponseEntity.badRequest().body(createResponse(
+                        "Поддерживаются только файлы .xls, .xlsx, .csv, .csv.gz и .zip", null,
+                        false));
+            }
         }
 
         try {
-            int size = atmRepairFileService.saveData(file);
-            return ResponseEntity.ok(createResponse("Файл успешно обработан", size, true));
+            AtmRepairUploadJobDto job = atmRepairUploadJobService.submit(files);
+            return ResponseEntity.accepted()
+                    .body(createResponse(files.size() == 1
+                            ? "Файл поставлен в очередь на обработку"
+                            : "Файлы поставлены в очередь на обработку", job, true));
+        } catch (RejectedExecutionException e) {
+            log.warn("Очередь загрузки файлов заполнена", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(createResponse("Очередь загрузки файлов заполнена, повторите позже",
+                            null, false));
         } catch (IOException e) {
             log.error("Ошибка при обработке файла", e);
             return ResponseEntity.internalServerError()
-                    .body(createResponse("Ошибка при обработке файла: " + e.getMessage(), -1,
+                    .body(createResponse("Ошибка при обработке файла: " + e.getMessage(), null,
                             false));
         }
     }
 
     /**
-     * Создает таблицу с результатом загрузки файла.
+     * Возвращает состояние задачи загрузки файла.
+     * 
+     * @param jobId идентификатор задачи загрузки
+     * @return состояние задачи загрузки
+     */
+    @GetMapping("/upload/{jobId}")
+    public ResponseEntity<?> getUploadJob(@PathVariable String jobId) {
+        return atmRepairUploadJobService.findJob(jobId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("message", "Не найдена задача загрузки: " + jobId)));
+    }
+
+    /**
+     * Создает таблицу с результатом постановки файла в очередь загрузки.
      * 
      * @param message сррбщение
-     * @param recordsCount количество загруженных записей
-     * @param success признак удачной загрузки
-     * @return таблицу с результатом загрузки файла
+     * @param job состояние задачи загрузки, {@code null} если задача не создана
+     * @param success признак удачной постановки в очередь
+     * @return таблицу с результатом постановки файла в очередь загрузки
      */
-    private Map<String, Object> createResponse(String message, int recordsCount, boolean success) {
+    private Map<String, Object> createResponse(String message, AtmRepairUploadJobDto job,
+            boolean success) {
         return Map.of(
                 "message", message,
-                "recordsCount", recordsCount,
+                "jobId", job == null ? "" : job.getJobId(),
                 "success", success);
     }
 
@@ -1,5 +1,7 @@
 package com.example.atmra.controller;
 
+import java.util.Map;
+
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -14,6 +16,24 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class GlobalExceptionHandler {
 
+    /**
+     * Обрабатывает ошибки в параметрах обращения к REST сервисам. Если у исключения нет
+     * сообщения, вместо него возвращается имя класса исключения.
+     * 
+     * @param exception исключение
+     * @param request запрос
+     * @return результат обработки ошибки
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<?> handleIllegalArgumentException(IllegalArgumentException exception,
+            WebRequest request) {
+        String message = exception.getMessage() != null
+                ? exception.getMessage()
+                : exception.getClass().getName();
+        log.warn("Ошибка в параметрах запроса: {}", message);
+        return ResponseEntity.badRequest().body(Map.of("message", message));
+    }
+
     /**
      * Обрабатывает ошибки обращения к REST сервисам.
      * 
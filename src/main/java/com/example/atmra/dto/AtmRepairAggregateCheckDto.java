@@ -0,0 +1,26 @@
+package com.example.atmra.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO результата проверки агрегатов таблицы ремонтов.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtmRepairAggregateCheckDto {
+
+    /** Признак соответствия агрегатов таблице ремонтов */
+    private boolean consistent;
+
+    /** Количество расхождений количества ремонтов по причинам */
+    private long reasonCountDifferences;
+
+    /** Количество расхождений повторных поломок */
+    private long recurrenceDifferences;
+
+}
@@ -0,0 +1,55 @@
+package com.example.atmra.dto;
+
+import java.time.LocalDateTime;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO условий отбора данных ремонтов. Незаполненные условия не применяются.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtmRepairFilterDto {
+
+    /** Идентификатор АТМ */
+    private String atmId;
+
+    /** Причина ремонта */
+    private String reason;
+
+    /** Наименование банка */
+    private String bankName;
+
+    /** Канал */
+    private String channel;
+
+    /** Начало периода по дате начала ремонта, включительно */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    /** Окончание периода по дате начала ремонта, не включительно */
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    /**
+     * Проверяет, что ни одно условие отбора не заполнено.
+     * 
+     * @return {@code true}, если отбираются все данные
+     */
+    public boolean isEmpty() {
+        return isBlank(atmId) && isBlank(reason) && isBlank(bankName) && isBlank(channel)
+                && from == null && to == null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+}
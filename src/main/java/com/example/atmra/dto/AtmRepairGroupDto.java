@@ -1,6 +1,8 @@
 package com.example.atmra.dto;
 
-import jakarta.validation.constraints.NotBlank;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -8,15 +10,93 @@ import lombok.NoArgsConstructor;
 
 /**
  * DTO заголовка группы данных ремонтов.
+ * <p>
+ * Заголовок содержит тип группы и значения, по которым клиент формирует текст заголовка. Текст
+ * заголовка на сервере формируется только для прежнего формата ответа по
+ * {@link #getGroupTitle()}.
  */
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class AtmRepairGroupDto {
 
-    /** Текст заголовка группы данных ремонтов */
-    @NotBlank
-    private String groupTitle;
+    /**
+     * Тип группы данных ремонтов.
+     */
+    public enum Type {
+
+        /** Ремонты по одной из наиболее часто встречающихся причин неисправности */
+        MOST_COMMON_CAUSE,
+
+        /** Один из наиболее долгих ремонтов */
+        LONGEST_REPAIR,
+
+        /** Ремонты АТМ, причина поломки которых повторилась */
+        CAUSE_FAILURE_RECURRED
+    }
+
+    /** Тип группы */
+    private Type type;
+
+    /** Идентификатор АТМ */
+    private String atmId;
+
+    /** Причина ремонта */
+    private String reason;
+
+    /** Количество ремонтов по причине */
+    private Long count;
+
+    /** Время ремонта в часах */
+    private Long durationHours;
+
+    /**
+     * Возвращает заголовок группы ремонтов по одной из наиболее часто встречающихся причин.
+     * 
+     * @param reason причина ремонта
+     * @param count количество ремонтов по причине
+     * @return заголовок группы
+     */
+    public static AtmRepairGroupDto mostCommonCause(String reason, long count) {
+        return new AtmRepairGroupDto(Type.MOST_COMMON_CAUSE, null, reason, count, null);
+    }
+
+    /**
+     * Возвращает заголовок группы одного из наиболее долгих ремонтов.
+     * 
+     * @param reason причина ремонта
+     * @param durationHours время ремонта в часах
+     * @return заголовок группы
+     */
+    public static AtmRepairGroupDto longestRepair(String reason, long durationHours) {
+        return new AtmRepairGroupDto(Type.LONGEST_REPAIR, null, reason, null, durationHours);
+    }
+
+    /**
+     * Возвращает заголовок группы ремонтов АТМ, причина поломки которых повторилась.
+     * 
+     * @param atmId идентификатор АТМ
+     * @param reason причина ремонта
+     * @return заголовок группы
+     */
+    public static AtmRepairGroupDto causeFailureRecurred(String atmId, String reason) {
+        return new AtmRepairGroupDto(Type.CAUSE_FAILURE_RECURRED, atmId, reason, null, null);
+    }
+
+    /**
+     * Возвращает текст заголовка группы данных ремонтов для прежнего формата ответа.
+     * 
+     * @return текст заголовка группы
+     */
+    @JsonIgnore
+    public String getGroupTitle() {
+        return switch (type) {
+        case MOST_COMMON_CAUSE -> "%s (Всего: %s)".formatted(reason, count);
+        case LONGEST_REPAIR -> "%s. Время ремонта %d часов".formatted(reason, durationHours);
+        case CAUSE_FAILURE_RECURRED -> "АТМ: %s. %s".formatted(atmId, reason);
+        };
+    }
 
 }
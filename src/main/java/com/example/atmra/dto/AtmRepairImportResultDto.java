@@ -0,0 +1,48 @@
+package com.example.atmra.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO результата загрузки данных ремонтов.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtmRepairImportResultDto {
+
+    /** Количество добавленных записей */
+    private int inserted;
+
+    /** Количество обновленных записей */
+    private int updated;
+
+    /** Количество записей, совпавших с сохраненными и пропущенных при загрузке */
+    private int unchanged;
+
+    /**
+     * Возвращает общее количество загруженных записей, включая неизмененные.
+     * 
+     * @return количество загруженных записей
+     */
+    public int getTotal() {
+        return inserted + updated + unchanged;
+    }
+
+    /**
+     * Добавляет к результату количество записей из другого результата.
+     * 
+     * @param other другой результат загрузки
+     * @return этот результат
+     */
+    public AtmRepairImportResultDto add(AtmRepairImportResultDto other) {
+        inserted += other.inserted;
+        updated += other.updated;
+        unchanged += other.unchanged;
+        return this;
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.example.atmra.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO страницы данных ремонтов.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtmRepairPageDto {
+
+    /** Данные ремонтов страницы */
+    private List<AtmRepairDto> content;
+
+    /** Позиция следующей страницы, {@code null} если страница последняя */
+    private String nextCursor;
+
+}
@@ -0,0 +1,37 @@
+package com.example.atmra.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO запроса страницы данных ремонтов.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtmRepairPageRequestDto {
+
+    /** Сортировка по идентификатору записи ремонта */
+    public static final String SORT_CASE_ID = "caseId";
+
+    /** Сортировка по дате начала ремонта */
+    public static final String SORT_START_TIME = "startTime";
+
+    /** Поле сортировки: {@code caseId} или {@code startTime} */
+    @Builder.Default
+    private String sort = SORT_CASE_ID;
+
+    /** Направление сортировки: {@code asc} или {@code desc} */
+    @Builder.Default
+    private String direction = "asc";
+
+    /** Позиция, с которой начинается страница, из предыдущей страницы. Пусто - первая страница */
+    private String cursor;
+
+    /** Количество записей на странице. Пусто - размер по умолчанию */
+    private Integer size;
+
+}
@@ -0,0 +1,35 @@
+package com.example.atmra.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO статистики выполнения запроса SQL в режиме трассировки.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtmRepairSqlStatDto {
+
+    /** Текст запроса */
+    private String sql;
+
+    /** Количество выполнений */
+    private long count;
+
+    /** Количество строк в пакетах выполнений {@code executeBatch} */
+    private long batchRows;
+
+    /** Суммарное время выполнения, мс */
+    private double totalMillis;
+
+    /** Среднее время выполнения, мс */
+    private double avgMillis;
+
+    /** Максимальное время выполнения, мс */
+    private double maxMillis;
+
+}
@@ -0,0 +1,74 @@
+package com.example.atmra.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO состояния задачи загрузки файла в таблицу ремонтов.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AtmRepairUploadJobDto {
+
+    /** Состояние задачи */
+    public enum Status {
+        /** Ожидает выполнения */
+        QUEUED,
+        /** Выполняется */
+        RUNNING,
+        /** Успешно завершена */
+        DONE,
+        /** Завершена с ошибкой */
+        FAILED
+    }
+
+    /** Идентификатор задачи */
+    private String jobId;
+
+    /** Имена загружаемых файлов через запятую */
+    private String fileName;
+
+    /** Состояние задачи */
+    private Status status;
+
+    /** Количество листов XLSX файлов и XLS файлов */
+    private int sheetCount;
+
+    /** Количество разобранных листов */
+    private int sheetsParsed;
+
+    /** Количество разобранных строк файла */
+    private long rowsParsed;
+
+    /** Количество сохраненных записей, включая совпавшие с сохраненными */
+    private long rowsPersisted;
+
+    /** Количество добавленных записей */
+    private long insertedCount;
+
+    /** Количество обновленных записей */
+    private long updatedCount;
+
+    /** Количество записей, совпавших с сохраненными */
+    private long unchangedCount;
+
+    /** Скорость сохранения, записей в секунду */
+    private double rowsPerSecond;
+
+    /** Дата и время начала выполнения */
+    private LocalDateTime startTime;
+
+    /** Дата и время окончания выполнения */
+    private LocalDateTime endTime;
+
+    /** Ошибки выполнения */
+    private List<String> errors;
+
+}
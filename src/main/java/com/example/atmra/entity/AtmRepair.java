@@ -1,11 +1,16 @@
 package com.example.atmra.entity;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -15,11 +20,18 @@ import lombok.NoArgsConstructor;
 
 /**
  * Сущность данных ремонта.
+ * <p>
+ * АТМ, причина, серийный номер, банк и канал хранятся идентификаторами справочников
+ * {@link AtmRepairDictionary}.
  */
 @Entity
 @Table(name = "repairs", indexes = {
-        @Index(name = "idx_atmId_reason", columnList = "atmId, reason"),
-        @Index(name = "idx_reason", columnList = "reason")
+        @Index(name = "idx_atm_reason_start_time",
+                columnList = "atm_ref, reason_ref, start_time"),
+        @Index(name = "idx_reason_ref", columnList = "reason_ref"),
+        @Index(name = "idx_duration_seconds", columnList = "duration_seconds DESC"),
+        @Index(name = "idx_start_time_reason_ref",
+                columnList = "start_time, case_id, reason_ref")
 })
 @Data
 @Builder
@@ -28,37 +40,163 @@ import lombok.NoArgsConstructor;
 @EqualsAndHashCode(of = {"caseId"})
 public class AtmRepair {
 
+    /** Начальное значение хэша FNV-1a */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /** Множитель хэша FNV-1a */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Тип колонки с идентификатором справочника, к которому добавляется таблица справочника.
+     * Значение по умолчанию позволяет SQLite добавить колонку NOT NULL в существующую таблицу,
+     * такие колонки заполняет {@code AtmRepairSchemaMigrator}.
+     */
+    private static final String DICTIONARY_REF = "INTEGER DEFAULT 0 REFERENCES ";
+
     /** Идентификатор записи ремонта */
     @Id
     @Column(name = "case_id", columnDefinition = "INTEGER")
     private Long caseId;
 
     /** Идентификатор АТМ */
-    @Column(name = "atm_id", nullable = false, columnDefinition = "TEXT")
+    @Column(name = "atm_ref", nullable = false,
+            columnDefinition = DICTIONARY_REF + "repair_atms (id)")
+    @Convert(converter = AtmRepairDictionaryConverter.Atm.class)
     private String atmId;
 
     /** Причина ремонта */
-    @Column(name = "reason", nullable = false, columnDefinition = "TEXT")
+    @Column(name = "reason_ref", nullable = false,
+            columnDefinition = DICTIONARY_REF + "repair_reasons (id)")
+    @Convert(converter = AtmRepairDictionaryConverter.Reason.class)
     private String reason;
 
     /** Дата и время начала ремонта */
-    @Column(name = "start_time", nullable = false, columnDefinition = "TEXT")
+    @Column(name = "start_time", nullable = false, columnDefinition = "NUMERIC")
     private LocalDateTime startTime;
 
     /** Дата и время окончания ремонта */
-    @Column(name = "end_time", columnDefinition = "TEXT")
+    @Column(name = "end_time", columnDefinition = "NUMERIC")
     private LocalDateTime endTime;
 
     /** Серийный номер АТМ */
-    @Column(name = "serial_number", nullable = false, columnDefinition = "TEXT")
+    @Column(name = "serial_number_ref", nullable = false,
+            columnDefinition = DICTIONARY_REF + "repair_serial_numbers (id)")
+    @Convert(converter = AtmRepairDictionaryConverter.SerialNumber.class)
     private String serialNumber;
 
     /** Наименование банка */
-    @Column(name = "bank_nm", nullable = false, columnDefinition = "TEXT")
+    @Column(name = "bank_ref", nullable = false,
+            columnDefinition = DICTIONARY_REF + "repair_banks (id)")
+    @Convert(converter = AtmRepairDictionaryConverter.Bank.class)
     private String bankName;
 
     /** Канал */
-    @Column(name = "channel", nullable = false, columnDefinition = "TEXT")
+    @Column(name = "channel_ref", nullable = false,
+            columnDefinition = DICTIONARY_REF + "repair_channels (id)")
+    @Convert(converter = AtmRepairDictionaryConverter.Channel.class)
     private String channel;
 
+    /** Время ремонта в секундах, {@code null} если ремонт не завершен */
+    @Column(name = "duration_seconds", columnDefinition = "INTEGER")
+    private Long durationSeconds;
+
+    /**
+     * Хэш содержимого записи для пропуска неизмененных записей при загрузке,
+     * {@code null} для записей, сохраненных до появления колонки
+     */
+    @Column(name = "content_hash", columnDefinition = "INTEGER")
+    private Long contentHash;
+
+    /**
+     * Пересчитывает время ремонта и хэш содержимого перед сохранением сущности.
+     */
+    @PrePersist
+    @PreUpdate
+    void updateDerivedColumns() {
+        durationSeconds = durationSeconds(startTime, endTime);
+        TimeStorageMode mode = TimeStorageMode.active();
+        contentHash = contentHash(atmId, reason, mode.toStoredValue(startTime),
+                mode.toStoredValue(endTime), serialNumber, bankName, channel);
+    }
+
+    /**
+     * Возвращает время ремонта в секундах.
+     * 
+     * @param startTime дата и время начала ремонта
+     * @param endTime дата и время окончания ремонта
+     * @return время ремонта в секундах, {@code null} если ремонт не завершен
+     */
+    public static Long durationSeconds(LocalDateTime startTime, LocalDateTime endTime) {
+        return startTime == null || endTime == null
+                ? null
+                : Duration.between(startTime, endTime).toSeconds();
+    }
+
+    /**
+     * Возвращает хэш содержимого записи ремонта без идентификатора. Значение не зависит от
+     * запуска приложения, поэтому сохраняется в БД. Даты передаются в точности способа
+     * хранения ({@link TimeStorageMode#toStoredValue}), чтобы хэш загружаемой записи совпадал с
+     * хэшем той же записи, прочитанной из БД.
+     * 
+     * @param atmId идентификатор АТМ
+     * @param reason причина ремонта
+     * @param startTime дата и время начала ремонта
+     * @param endTime дата и время окончания ремонта
+     * @param serialNumber серийный номер АТМ
+     * @param bankName наименование банка
+     * @param channel канал
+     * @return 64-битный хэш содержимого
+     */
+    public static long contentHash(String atmId, String reason, LocalDateTime startTime,
+            LocalDateTime endTime, String serialNumber, String bankName, String channel) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, atmId);
+        hash = hash(hash, reason);
+        hash = hash(hash, startTime);
+        hash = hash(hash, endTime);
+        hash = hash(hash, serialNumber);
+        hash = hash(hash, bankName);
+        hash = hash(hash, channel);
+        // Перемешивание старших битов (финализатор MurmurHash3)
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Добавляет к хэшу строку с ее длиной, чтобы границы полей не смещались.
+     */
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return hash(hash, -1L);
+        }
+        hash = hash(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Добавляет к хэшу дату и время с точностью до наносекунды.
+     */
+    private static long hash(long hash, LocalDateTime value) {
+        if (value == null) {
+            return hash(hash, Long.MIN_VALUE);
+        }
+        return hash(hash(hash, value.toEpochSecond(ZoneOffset.UTC)), value.getNano());
+    }
+
+    /**
+     * Добавляет к хэшу число по 16 бит.
+     */
+    private static long hash(long hash, long value) {
+        for (int shift = 0; shift < Long.SIZE; shift += Character.SIZE) {
+            hash = (hash ^ ((value >>> shift) & 0xFFFF)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
 }
@@ -0,0 +1,61 @@
+package com.example.atmra.entity;
+
+/**
+ * Справочник строковых значений ремонтов с небольшим количеством различных значений.
+ * <p>
+ * Значения хранятся в таблице справочника {@code (id INTEGER PRIMARY KEY, name TEXT UNIQUE)},
+ * таблица ремонтов ссылается на них колонкой с идентификатором. Значения справочников в памяти
+ * хранит {@code AtmRepairDictionaryRepository}, который используется
+ * {@link AtmRepairDictionaryConverter}: при чтении ремонтов значение по идентификатору берется из
+ * памяти, поэтому сущности и DTO с одинаковым значением ссылаются на один экземпляр строки.
+ */
+public enum AtmRepairDictionary {
+
+    /** Идентификаторы АТМ */
+    ATM("repair_atms", "atm_ref"),
+
+    /** Причины ремонта */
+    REASON("repair_reasons", "reason_ref"),
+
+    /** Серийные номера АТМ */
+    SERIAL_NUMBER("repair_serial_numbers", "serial_number_ref"),
+
+    /** Наименования банков */
+    BANK("repair_banks", "bank_ref"),
+
+    /** Каналы */
+    CHANNEL("repair_channels", "channel_ref");
+
+    /** Идентификатор значения, которого нет в справочнике. Не совпадает ни с одной записью */
+    public static final int UNKNOWN_ID = 0;
+
+    /** Имя таблицы справочника */
+    private final String table;
+
+    /** Имя колонки таблицы ремонтов с идентификатором значения */
+    private final String column;
+
+    AtmRepairDictionary(String table, String column) {
+        this.table = table;
+        this.column = column;
+    }
+
+    /**
+     * Возвращает имя таблицы справочника.
+     * 
+     * @return имя таблицы
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Возвращает имя колонки таблицы ремонтов с идентификатором значения.
+     * 
+     * @return имя колонки
+     */
+    public String getColumn() {
+        return column;
+    }
+
+}
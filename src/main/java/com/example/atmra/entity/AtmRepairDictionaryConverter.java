@@ -0,0 +1,95 @@
+package com.example.atmra.entity;
+
+import com.example.atmra.repository.AtmRepairDictionaryRepository;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Конвертер строкового поля, хранящегося в БД идентификатором справочника
+ * {@link AtmRepairDictionary}.
+ * <p>
+ * Значения справочников берутся из {@link AtmRepairDictionaryRepository}. Конвертеры создаются
+ * контейнером Spring, поэтому репозиторий передается в конструктор.
+ * <p>
+ * Значение записываемого поля должно быть добавлено в справочник заранее: для значения, которого
+ * нет в справочнике, выбрасывается {@link IllegalStateException}, чтобы ремонт не был записан
+ * со ссылкой на несуществующее значение. Условия отбора по таким значениям строятся без
+ * конвертера в {@code AtmRepairSpecifications}.
+ */
+public abstract class AtmRepairDictionaryConverter implements AttributeConverter<String, Integer> {
+
+    private final AtmRepairDictionary dictionary;
+
+    private final AtmRepairDictionaryRepository atmRepairDictionaryRepository;
+
+    protected AtmRepairDictionaryConverter(AtmRepairDictionary dictionary,
+            AtmRepairDictionaryRepository atmRepairDictionaryRepository) {
+        this.dictionary = dictionary;
+        this.atmRepairDictionaryRepository = atmRepairDictionaryRepository;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String attribute) {
+        if (attribute == null) {
+            return null;
+        }
+        int id = atmRepairDictionaryRepository.id(dictionary, attribute);
+        if (id == AtmRepairDictionary.UNKNOWN_ID) {
+            throw new IllegalStateException(
+                    "Значение \"" + attribute + "\" не добавлено в справочник " + dictionary);
+        }
+        return id;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer dbData) {
+        return dbData == null ? null : atmRepairDictionaryRepository.name(dictionary, dbData);
+    }
+
+    /** Конвертер идентификатора АТМ */
+    @Converter
+    public static class Atm extends AtmRepairDictionaryConverter {
+
+        public Atm(AtmRepairDictionaryRepository atmRepairDictionaryRepository) {
+            super(AtmRepairDictionary.ATM, atmRepairDictionaryRepository);
+        }
+    }
+
+    /** Конвертер причины ремонта */
+    @Converter
+    public static class Reason extends AtmRepairDictionaryConverter {
+
+        public Reason(AtmRepairDictionaryRepository atmRepairDictionaryRepository) {
+            super(AtmRepairDictionary.REASON, atmRepairDictionaryRepository);
+        }
+    }
+
+    /** Конвертер серийного номера АТМ */
+    @Converter
+    public static class SerialNumber extends AtmRepairDictionaryConverter {
+
+        public SerialNumber(AtmRepairDictionaryRepository atmRepairDictionaryRepository) {
+            super(AtmRepairDictionary.SERIAL_NUMBER, atmRepairDictionaryRepository);
+        }
+    }
+
+    /** Конвертер наименования банка */
+    @Converter
+    public static class Bank extends AtmRepairDictionaryConverter {
+
+        public Bank(AtmRepairDictionaryRepository atmRepairDictionaryRepository) {
+            super(AtmRepairDictionary.BANK, atmRepairDictionaryRepository);
+        }
+    }
+
+    /** Конвертер канала */
+    @Converter
+    public static class Channel extends AtmRepairDictionaryConverter {
+
+        public Channel(AtmRepairDictionaryRepository atmRepairDictionaryRepository) {
+            super(AtmRepairDictionary.CHANNEL, atmRepairDictionaryRepository);
+        }
+    }
+
+}
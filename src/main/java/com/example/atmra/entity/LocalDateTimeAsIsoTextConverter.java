@@ -3,24 +3,24 @@ package com.example.atmra.entity;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 
 /**
  * Конвертер даты для поля даты в БД SQLite.
+ * <p>
+ * Значение в БД формируется действующим способом хранения {@link TimeStorageMode#active()}:
+ * текстом ISO-8601 или количеством секунд, которое SQLite сохраняет как INTEGER в колонке с
+ * типом NUMERIC.
  */
 @Converter(autoApply = true)
 public class LocalDateTimeAsIsoTextConverter implements AttributeConverter<LocalDateTime, String> {
 
-    /** Формат двты */
-    private static final DateTimeFormatter FMT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-
     @Override
     public String convertToDatabaseColumn(LocalDateTime attribute) {
-        return attribute == null ? null : FMT.format(attribute);
+        return attribute == null ? null : TimeStorageMode.active().toDatabaseValue(attribute);
     }
 
     @Override
     public LocalDateTime convertToEntityAttribute(String dbData) {
-        return dbData == null ? null : LocalDateTime.parse(dbData);
+        return dbData == null ? null : TimeStorageMode.parse(dbData);
     }
 }
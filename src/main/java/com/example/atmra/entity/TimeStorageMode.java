@@ -0,0 +1,167 @@
+package com.example.atmra.entity;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Способ хранения даты и времени в полях даты БД SQLite.
+ * <p>
+ * Действующий способ задается при запуске приложения и используется
+ * {@link LocalDateTimeAsIsoTextConverter}. Значения читаются в любом из способов хранения, что
+ * позволяет работать с БД до завершения преобразования.
+ */
+public enum TimeStorageMode {
+
+    /** Текст в формате ISO-8601 без часового пояса */
+    ISO_TEXT("text") {
+
+        @Override
+        public String toDatabaseValue(LocalDateTime value) {
+            return ISO_FORMAT.format(value);
+        }
+
+        @Override
+        public LocalDateTime toStoredValue(LocalDateTime value) {
+            return value;
+        }
+
+        @Override
+        public String epochSecondsSql(String column) {
+            return "strftime('%%s', %s)".formatted(column);
+        }
+
+        @Override
+        public String fromOtherModeSql(String column) {
+            return "strftime('%%Y-%%m-%%dT%%H:%%M:%%S', %s, 'unixepoch')".formatted(column);
+        }
+    },
+
+    /** Целое количество секунд с 1970-01-01T00:00:00 в UTC */
+    EPOCH_SECONDS("integer") {
+
+        @Override
+        public String toDatabaseValue(LocalDateTime value) {
+            return Long.toString(value.toEpochSecond(ZoneOffset.UTC));
+        }
+
+        @Override
+        public LocalDateTime toStoredValue(LocalDateTime value) {
+            return value == null ? null : value.withNano(0);
+        }
+
+        @Override
+        public String epochSecondsSql(String column) {
+            return column;
+        }
+
+        @Override
+        public String fromOtherModeSql(String column) {
+            return "CAST(strftime('%%s', %s) AS INTEGER)".formatted(column);
+        }
+    };
+
+    /** Формат даты */
+    private static final DateTimeFormatter ISO_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    /** Действующий способ хранения */
+    private static volatile TimeStorageMode active = ISO_TEXT;
+
+    /** Тип значения в SQLite, возвращаемый функцией {@code typeof} */
+    private final String sqliteType;
+
+    TimeStorageMode(String sqliteType) {
+        this.sqliteType = sqliteType;
+    }
+
+    /**
+     * Возвращает действующий способ хранения.
+     * 
+     * @return способ хранения
+     */
+    public static TimeStorageMode active() {
+        return active;
+    }
+
+    /**
+     * Устанавливает действующий способ хранения.
+     * 
+     * @param mode способ хранения
+     */
+    public static void activate(TimeStorageMode mode) {
+        active = mode;
+    }
+
+    /**
+     * Возвращает дату из значения поля БД в любом из способов хранения.
+     * 
+     * @param dbData значение поля БД
+     * @return дата и время
+     */
+    public static LocalDateTime parse(String dbData) {
+        return isEpochSeconds(dbData)
+                ? LocalDateTime.ofEpochSecond(Long.parseLong(dbData), 0, ZoneOffset.UTC)
+                : LocalDateTime.parse(dbData, ISO_FORMAT);
+    }
+
+    /**
+     * Возвращает тип значения в SQLite, возвращаемый функцией {@code typeof}.
+     * 
+     * @return тип значения
+     */
+    public String getSqliteType() {
+        return sqliteType;
+    }
+
+    /**
+     * Возвращает значение поля БД для даты.
+     * 
+     * @param value дата и время
+     * @return значение поля БД
+     */
+    public abstract String toDatabaseValue(LocalDateTime value);
+
+    /**
+     * Возвращает дату в том виде, в котором она будет прочитана из БД после сохранения.
+     * 
+     * @param value дата и время, может быть {@code null}
+     * @return дата и время с точностью способа хранения
+     */
+    public abstract LocalDateTime toStoredValue(LocalDateTime value);
+
+    /**
+     * Возвращает выражение SQL с количеством секунд с 1970-01-01 для поля даты.
+     * 
+     * @param column имя поля даты
+     * @return выражение SQL
+     */
+    public abstract String epochSecondsSql(String column);
+
+    /**
+     * Возвращает выражение SQL, преобразующее значение поля даты, сохраненное другим способом.
+     * 
+     * @param column имя поля даты
+     * @return выражение SQL
+     */
+    public abstract String fromOtherModeSql(String column);
+
+    /**
+     * Проверяет, что значение поля БД сохранено в виде количества секунд.
+     * 
+     * @param dbData значение поля БД
+     * @return {@code true}, если значение - целое число
+     */
+    private static boolean isEpochSeconds(String dbData) {
+        int start = dbData.startsWith("-") ? 1 : 0;
+        if (start == dbData.length()) {
+            return false;
+        }
+        for (int i = start; i < dbData.length(); i++) {
+            if (!Character.isDigit(dbData.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
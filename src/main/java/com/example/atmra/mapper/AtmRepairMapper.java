@@ -3,6 +3,7 @@ package com.example.atmra.mapper;
 import java.util.List;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingConstants;
 import org.mapstruct.MappingTarget;
 
@@ -21,6 +22,8 @@ public interface AtmRepairMapper {
      * @param dto DTO {@link AtmRepairDto}
      * @return сущность {@link AtmRepair}
      */
+    @Mapping(target = "durationSeconds", ignore = true)
+    @Mapping(target = "contentHash", ignore = true)
     AtmRepair toEntity(AtmRepairDto dto);
 
     /**
@@ -45,6 +48,8 @@ public interface AtmRepairMapper {
      * @param entity сущность {@link AtmRepair}
      * @param dto DTO {@link AtmRepairDto}
      */
+    @Mapping(target = "durationSeconds", ignore = true)
+    @Mapping(target = "contentHash", ignore = true)
     void updateEntity(@MappingTarget AtmRepair entity, AtmRepairDto dto);
 
 }
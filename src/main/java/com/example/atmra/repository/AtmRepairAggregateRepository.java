@@ -0,0 +1,331 @@
+package com.example.atmra.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.atmra.dto.AtmRepairAggregateCheckDto;
+import com.example.atmra.entity.AtmRepairDictionary;
+import com.example.atmra.entity.TimeStorageMode;
+import com.example.atmra.service.AtmRepairConfiguration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Репозиторий агрегатов таблицы ремонтов посредством JDBC.
+ * <p>
+ * Агрегаты хранятся в таблицах:
+ * <ul>
+ * <li>{@code repair_reason_counts} - количество ремонтов по причине;</li>
+ * <li>{@code repair_recurrences} - ремонты, причина которых повторилась на том же АТМ в течение
+ * {@link AtmRepairConfiguration#getCountCauseFailureRecurred()} дней до или после ремонта.</li>
+ * </ul>
+ * Агрегаты обновляются в транзакции изменения таблицы ремонтов: количество по причинам -
+ * приращением, повторные поломки - пересчетом только затронутых комбинаций АТМ и причины.
+ * Агрегаты пересчитываются полностью при изменении количества дней повторной поломки или
+ * способа хранения дат, а также по запросу.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class AtmRepairAggregateRepository {
+
+    /** Запросы создания таблиц агрегатов */
+    private static final List<String> CREATE_TABLES_SQL = List.of("""
+            CREATE TABLE IF NOT EXISTS repair_reason_counts (
+                reason TEXT,
+                repair_count INTEGER NOT NULL
+            )
+            """, """
+            CREATE UNIQUE INDEX IF NOT EXISTS idx_repair_reason_counts_reason
+                ON repair_reason_counts (reason)
+            """, """
+            CREATE INDEX IF NOT EXISTS idx_repair_reason_counts_count
+                ON repair_reason_counts (repair_count DESC, reason)
+            """, """
+            CREATE TABLE IF NOT EXISTS repair_recurrences (
+                case_id INTEGER PRIMARY KEY,
+                atm_id TEXT,
+                reason TEXT,
+                start_time NUMERIC
+            )
+            """, """
+            CREATE INDEX IF NOT EXISTS idx_repair_recurrences_order
+                ON repair_recurrences (atm_id, reason, start_time, case_id)
+            """, """
+            CREATE TABLE IF NOT EXISTS repair_aggregate_state (
+                name TEXT PRIMARY KEY,
+                value TEXT NOT NULL
+            )
+            """);
+
+    /** Таблицы агрегатов */
+    private static final List<String> AGGREGATE_TABLES =
+            List.of("repair_reason_counts", "repair_recurrences");
+
+    /**
+     * Запрос количества ремонтов по причинам. Параметр шаблона - источник строк {@code r}.
+     */
+    private static final String REASON_COUNTS_SQL = """
+            SELECT r.reason, count(*)
+            FROM %s
+            GROUP BY r.reason
+            """;
+
+    /**
+     * Запрос повторных поломок. Параметры шаблона - источник строк {@code r}, выражения
+     * количества секунд для дат начала ремонта, предыдущего и следующего ремонтов.
+     */
+    private static final String RECURRENCES_SQL = """
+            SELECT case_id, atm_id, reason, start_time
+            FROM (
+                SELECT r.case_id, r.atm_id, r.reason, r.start_time,
+                       LAG(r.start_time) OVER w AS previous_start_time,
+                       LEAD(r.start_time) OVER w AS next_start_time
+                FROM %1$s
+                WINDOW w AS (PARTITION BY r.atm_id, r.reason ORDER BY r.start_time, r.case_id)
+            )
+            WHERE (%2$s - %3$s) / 86400 <= %5$d
+               OR (%4$s - %2$s) / 86400 <= %5$d
+            """;
+
+    /**
+     * Источник всех строк таблицы ремонтов с идентификатором АТМ и причиной из справочников.
+     * Агрегаты хранят значения, а не идентификаторы справочников, чтобы повторные поломки
+     * читались по индексу в порядке АТМ и причины.
+     */
+    private static final String ALL_REPAIRS = """
+            (SELECT r.case_id, a.name AS atm_id, c.name AS reason, r.start_time
+             FROM repairs r
+             JOIN repair_atms a ON a.id = r.atm_ref
+             JOIN repair_reasons c ON c.id = r.reason_ref) r""";
+
+    /**
+     * Источник строк таблицы ремонтов затронутых комбинаций АТМ и причины {@code pairs}. Ремонты
+     * находятся по индексу {@code idx_atm_reason_start_time}.
+     */
+    private static final String PAIR_REPAIRS = """
+            (SELECT r.case_id, p.atm_id, p.reason, r.start_time
+             FROM pairs p
+             JOIN repair_atms a ON a.name = p.atm_id
+             JOIN repair_reasons c ON c.name = p.reason
+             JOIN repairs r ON r.atm_ref = a.id AND r.reason_ref = c.id) r""";
+
+    /**
+     * Условие принадлежности строки таблицы агрегатов затронутой комбинации АТМ и причины.
+     * Строки находятся по индексу таблицы агрегатов по АТМ и причине.
+     */
+    private static final String IN_PAIRS = "rowid IN (SELECT x.rowid FROM pairs p "
+            + "JOIN %s x ON x.atm_id IS p.atm_id AND x.reason IS p.reason)";
+
+    /** Максимальное количество комбинаций АТМ и причины в одном запросе */
+    private static final int MAX_PAIRS_PER_QUERY = 400;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private final AtmRepairConfiguration atmRepairConfiguration;
+
+    /**
+     * Комбинация АТМ и причины ремонта.
+     * 
+     * @param atmId идентификатор АТМ
+     * @param reason причина ремонта
+     */
+    public record Pair(String atmId, String reason) {
+    }
+
+    /**
+     * Количество ремонтов по причине.
+     * 
+     * @param reason причина ремонта
+     * @param count количество ремонтов
+     */
+    public record ReasonCount(String reason, long count) {
+    }
+
+    /**
+     * Создает таблицы агрегатов и пересчитывает агрегаты, если они построены для другого
+     * количества дней повторной поломки или способа хранения дат. Должен вызываться в
+     * транзакции после преобразования таблицы ремонтов.
+     */
+    public void initialize() {
+        CREATE_TABLES_SQL.forEach(jdbcTemplate()::execute);
+        String state = aggregateState();
+        List<String> stored = jdbcTemplate().queryForList(
+                "SELECT value FROM repair_aggregate_state WHERE name = 'state'", String.class);
+        if (!stored.equals(List.of(state))) {
+            rebuild();
+            log.info("Агрегаты таблицы ремонтов пересчитаны ({})", state);
+        }
+    }
+
+    /**
+     * Обновляет агрегаты после изменения ремонтов. Должен вызываться в транзакции изменения.
+     * 
+     * @param removed комбинации АТМ и причины ремонтов до изменения, по одной на ремонт
+     * @param added комбинации АТМ и причины ремонтов после изменения, по одной на ремонт
+     */
+    public void update(Collection<Pair> removed, Collection<Pair> added) {
+        Map<String, Long> deltas = new HashMap<>();
+        removed.forEach(pair -> deltas.merge(pair.reason(), -1L, Long::sum));
+        added.forEach(pair -> deltas.merge(pair.reason(), 1L, Long::sum));
+        deltas.forEach(this::addReasonCount);
+        jdbcTemplate().update("DELETE FROM repair_reason_counts WHERE repair_count <= 0");
+
+        Set<Pair> pairs = new LinkedHashSet<>(removed);
+        pairs.addAll(added);
+        List<Pair> pairList = new ArrayList<>(pairs);
+        for (int from = 0; from < pairList.size(); from += MAX_PAIRS_PER_QUERY) {
+            refreshPairs(pairList.subList(from,
+                    Math.min(pairList.size(), from + MAX_PAIRS_PER_QUERY)));
+        }
+    }
+
+    /**
+     * Удаляет все агрегаты. Должен вызываться в транзакции удаления всех ремонтов.
+     */
+    public void clear() {
+        AGGREGATE_TABLES.forEach(table -> jdbcTemplate().update("DELETE FROM " + table));
+    }
+
+    /**
+     * Пересчитывает все агрегаты по таблице ремонтов. Должен вызываться в транзакции.
+     */
+    public void rebuild() {
+        clear();
+        jdbcTemplate().update("INSERT INTO repair_reason_counts (reason, repair_count) "
+                + REASON_COUNTS_SQL.formatted(ALL_REPAIRS));
+        jdbcTemplate().update("INSERT INTO repair_recurrences (case_id, atm_id, reason, "
+                + "start_time) " + recurrencesSql(ALL_REPAIRS));
+        jdbcTemplate().update("INSERT OR REPLACE INTO repair_aggregate_state (name, value) "
+                + "VALUES ('state', ?)", aggregateState());
+    }
+
+    /**
+     * Сравнивает агрегаты с пересчитанными по таблице ремонтов.
+     * 
+     * @return количество расхождений по каждому агрегату
+     */
+    public AtmRepairAggregateCheckDto check() {
+        long reasonCounts = countDifferences(REASON_COUNTS_SQL.formatted(ALL_REPAIRS),
+                "SELECT reason, repair_count FROM repair_reason_counts");
+        long recurrences = countDifferences(recurrencesSql(ALL_REPAIRS),
+                "SELECT case_id, atm_id, reason, start_time FROM repair_recurrences");
+        return AtmRepairAggregateCheckDto.builder()
+                .consistent(reasonCounts == 0 && recurrences == 0)
+                .reasonCountDifferences(reasonCounts)
+                .recurrenceDifferences(recurrences)
+                .build();
+    }
+
+    /**
+     * Возвращает наиболее часто встречающиеся причины ремонтов.
+     * 
+     * @param count количество причин
+     * @return причины с количеством ремонтов по убыванию количества
+     */
+    public List<ReasonCount> findTopReasonCounts(int count) {
+        return jdbcTemplate().query("""
+                SELECT reason, repair_count
+                FROM repair_reason_counts
+                ORDER BY repair_count DESC, reason
+                LIMIT ?
+                """, (rs, rowNum) -> new ReasonCount(rs.getString(1), rs.getLong(2)), count);
+    }
+
+    /**
+     * Изменяет количество ремонтов по причине.
+     * 
+     * @param reason причина ремонта
+     * @param delta приращение количества
+     */
+    private void addReasonCount(String reason, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        int updated = jdbcTemplate().update("UPDATE repair_reason_counts "
+                + "SET repair_count = repair_count + ? WHERE reason IS ?", delta, reason);
+        if (updated == 0) {
+            jdbcTemplate().update("INSERT INTO repair_reason_counts (reason, repair_count) "
+                    + "VALUES (?, ?)", reason, delta);
+        }
+    }
+
+    /**
+     * Пересчитывает повторные поломки комбинаций АТМ и причины.
+     * 
+     * @param pairs комбинации АТМ и причины
+     */
+    private void refreshPairs(List<Pair> pairs) {
+        StringBuilder values = new StringBuilder("WITH pairs(atm_id, reason) AS (VALUES ");
+        Object[] args = new Object[pairs.size() * 2];
+        for (int i = 0; i < pairs.size(); i++) {
+            values.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+            args[2 * i] = pairs.get(i).atmId();
+            args[2 * i + 1] = pairs.get(i).reason();
+        }
+        String with = values.append(")\n").toString();
+
+        jdbcTemplate().update(with + "DELETE FROM repair_recurrences WHERE "
+                + IN_PAIRS.formatted("repair_recurrences"), args);
+        jdbcTemplate().update(with + "INSERT INTO repair_recurrences (case_id, atm_id, reason, "
+                + "start_time) " + recurrencesSql(PAIR_REPAIRS), args);
+    }
+
+    /**
+     * Возвращает количество строк, которые есть только в одном из результатов запросов.
+     * 
+     * @param expectedSql запрос ожидаемых значений
+     * @param actualSql запрос сохраненных значений
+     * @return количество расхождений
+     */
+    private long countDifferences(String expectedSql, String actualSql) {
+        return Objects.requireNonNull(jdbcTemplate().queryForObject("""
+                SELECT count(*) FROM (
+                    SELECT * FROM (%1$s EXCEPT %2$s)
+                    UNION ALL
+                    SELECT * FROM (%2$s EXCEPT %1$s)
+                )
+                """.formatted(expectedSql, actualSql), Long.class));
+    }
+
+    /**
+     * Возвращает запрос повторных поломок для действующего способа хранения дат.
+     * 
+     * @param source источник строк {@code r}
+     * @return текст запроса
+     */
+    private String recurrencesSql(String source) {
+        TimeStorageMode mode = TimeStorageMode.active();
+        return RECURRENCES_SQL.formatted(source,
+                mode.epochSecondsSql("start_time"),
+                mode.epochSecondsSql("previous_start_time"),
+                mode.epochSecondsSql("next_start_time"),
+                atmRepairConfiguration.getCountCauseFailureRecurred());
+    }
+
+    /**
+     * Возвращает параметры, для которых построены агрегаты.
+     * 
+     * @return параметры агрегатов
+     */
+    private String aggregateState() {
+        return "days=%d,timeStorage=%s".formatted(
+                atmRepairConfiguration.getCountCauseFailureRecurred(), TimeStorageMode.active());
+    }
+
+    private JdbcTemplate jdbcTemplate() {
+        return namedParameterJdbcTemplate.getJdbcTemplate();
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.example.atmra.repository;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.sqlite.SQLiteConfig;
+
+import com.example.atmra.service.AtmRepairConfiguration;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Источники данных SQLite в режиме {@link SqliteProfile#PERFORMANCE}.
+ * <p>
+ * Соединения открываются с журналом WAL, {@code synchronous=NORMAL}, {@code mmap_size},
+ * {@code cache_size} и {@code busy_timeout} из {@link AtmRepairConfiguration}. SQLite допускает
+ * только одну пишущую транзакцию, поэтому пул записи состоит из одного соединения: транзакции
+ * записи ожидают его в очереди пула, а не получают {@code SQLITE_BUSY}. Время ожидания задается
+ * {@link AtmRepairConfiguration#getSqliteWriteTimeout()}, по умолчанию не ограничено. Транзакции
+ * только для чтения ({@code @Transactional(readOnly = true)}) выполняются на отдельном пуле
+ * соединений с {@code query_only} и в режиме WAL не ожидают завершения записи. Чтение для
+ * потоковых ответов ({@link AtmRepairStreamingReads}) выполняется на своем пуле, так как
+ * соединение удерживается до окончания передачи ответа клиенту.
+ * <p>
+ * Настройки {@code spring.datasource.hikari.*} применяются ко всем пулам, кроме размера пула,
+ * его имени и запроса инициализации соединения, которые задаются режимом. Время ожидания
+ * соединения записи задается только {@link AtmRepairConfiguration#getSqliteWriteTimeout()}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "atm-repairs-analizer.sqlite-profile", havingValue = "performance")
+public class AtmRepairDataSourceConfiguration {
+
+    /**
+     * Возвращает пул соединений записи из одного соединения.
+     * 
+     * @param properties настройки источника данных {@code spring.datasource}
+     * @param environment окружение с настройками {@code spring.datasource.hikari}
+     * @param atmRepairConfiguration конфигурация
+     * @return пул соединений записи
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource writeDataSource(DataSourceProperties properties,
+            Environment environment, AtmRepairConfiguration atmRepairConfiguration) {
+        HikariDataSource dataSource = createDataSource(properties, environment,
+                atmRepairConfiguration, "atm-repairs-write", 1);
+        // 0 - ожидание без ограничения
+        dataSource.setConnectionTimeout(atmRepairConfiguration.getSqliteWriteTimeout().toMillis());
+        return dataSource;
+    }
+
+    /**
+     * Возвращает пул соединений чтения.
+     * 
+     * @param properties настройки источника данных {@code spring.datasource}
+     * @param environment окружение с настройками {@code spring.datasource.hikari}
+     * @param atmRepairConfiguration конфигурация
+     * @return пул соединений чтения
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource readDataSource(DataSourceProperties properties,
+            Environment environment, AtmRepairConfiguration atmRepairConfiguration) {
+        HikariDataSource dataSource = createDataSource(properties, environment,
+                atmRepairConfiguration, "atm-repairs-read",
+                atmRepairConfiguration.getSqliteReadPoolSize());
+        dataSource.setConnectionInitSql("PRAGMA query_only = 1");
+        return dataSource;
+    }
+
+    /**
+     * Возвращает пул соединений чтения для потоковых ответов.
+     * 
+     * @param properties настройки источника данных {@code spring.datasource}
+     * @param environment окружение с настройками {@code spring.datasource.hikari}
+     * @param atmRepairConfiguration конфигурация
+     * @return пул соединений чтения для потоковых ответов
+     */
+    @Bean(destroyMethod = "close")
+    public HikariDataSource streamDataSource(DataSourceProperties properties,
+            Environment environment, AtmRepairConfiguration atmRepairConfiguration) {
+        HikariDataSource dataSource = createDataSource(properties, environment,
+                atmRepairConfiguration, "atm-repairs-stream",
+                atmRepairConfiguration.getSqliteStreamPoolSize());
+        dataSource.setConnectionInitSql("PRAGMA query_only = 1");
+        return dataSource;
+    }
+
+    /**
+     * Возвращает источник данных приложения, получающий соединение при первом запросе к БД:
+     * в транзакциях только для чтения - из пула чтения или, при формировании потокового ответа,
+     * из пула чтения для потоковых ответов, иначе - из пула записи.
+     * 
+     * @param writeDataSource пул соединений записи
+     * @param readDataSource пул соединений чтения
+     * @param streamDataSource пул соединений чтения для потоковых ответов
+     * @return источник данных приложения
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource writeDataSource,
+            HikariDataSource readDataSource, HikariDataSource streamDataSource) {
+        AbstractRoutingDataSource readOnlyDataSource = new AbstractRoutingDataSource() {
+
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return AtmRepairStreamingReads.isActive();
+            }
+        };
+        readOnlyDataSource.setTargetDataSources(
+                Map.of(Boolean.FALSE, readDataSource, Boolean.TRUE, streamDataSource));
+        readOnlyDataSource.afterPropertiesSet();
+
+        LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(writeDataSource);
+        dataSource.setReadOnlyDataSource(readOnlyDataSource);
+        return dataSource;
+    }
+
+    /**
+     * Создает пул соединений с настройками {@code spring.datasource.hikari} и настройками SQLite
+     * режима {@link SqliteProfile#PERFORMANCE}.
+     * 
+     * @param properties настройки источника данных {@code spring.datasource}
+     * @param environment окружение с настройками {@code spring.datasource.hikari}
+     * @param atmRepairConfiguration конфигурация
+     * @param poolName имя пула
+     * @param poolSize размер пула
+     * @return пул соединений
+     */
+    private static HikariDataSource createDataSource(DataSourceProperties properties,
+            Environment environment, AtmRepairConfiguration atmRepairConfiguration,
+            String poolName, int poolSize) {
+        SQLiteConfig sqliteConfig = new SQLiteConfig();
+        sqliteConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        sqliteConfig.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        sqliteConfig.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        sqliteConfig.setBusyTimeout(
+                (int) atmRepairConfiguration.getSqliteBusyTimeout().toMillis());
+        // Отрицательное значение cache_size задает размер кэша в КиБ, а не в страницах
+        sqliteConfig.setCacheSize(
+                (int) -atmRepairConfiguration.getSqliteCacheSize().toKilobytes());
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.MMAP_SIZE,
+                String.valueOf(atmRepairConfiguration.getSqliteMmapSize().toBytes()));
+
+        HikariDataSource dataSource =
+                properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+        dataSource.setMaximumPoolSize(Math.max(1, poolSize));
+        sqliteConfig.toProperties().forEach(
+                (name, value) -> dataSource.addDataSourceProperty((String) name, value));
+        return dataSource;
+    }
+
+}
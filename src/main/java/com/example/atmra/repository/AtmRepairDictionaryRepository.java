@@ -0,0 +1,301 @@
+package com.example.atmra.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.entity.AtmRepairDictionary;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Репозиторий справочников {@link AtmRepairDictionary} посредством JDBC.
+ * <p>
+ * Справочники загружаются в память при запуске приложения и дополняются при записи ремонтов с
+ * новыми значениями. Значения из справочников не удаляются: при удалении всех ремонтов
+ * идентификаторы сохраняются для повторной загрузки тех же данных.
+ * <p>
+ * Справочники в памяти принадлежат экземпляру репозитория и читаются без блокировки. Значения,
+ * добавленные в транзакции, до ее фиксации видны только в этой транзакции: другие транзакции
+ * записи не ссылаются на идентификаторы, которые могут исчезнуть при откате.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AtmRepairDictionaryRepository {
+
+    /** Запрос создания таблицы справочника. Параметр шаблона - имя таблицы */
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS %s (
+                id INTEGER PRIMARY KEY,
+                name TEXT NOT NULL UNIQUE
+            )
+            """;
+
+    /** Максимальное количество значений в одном запросе идентификаторов */
+    private static final int MAX_NAMES_PER_QUERY = 500;
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /** Справочники в памяти */
+    private final Map<AtmRepairDictionary, Values> dictionaries = createDictionaries();
+
+    /**
+     * Возвращает идентификатор значения справочника.
+     * 
+     * @param dictionary справочник
+     * @param name значение
+     * @return идентификатор или {@link AtmRepairDictionary#UNKNOWN_ID}, если значения нет в
+     *         справочнике
+     */
+    public int id(AtmRepairDictionary dictionary, String name) {
+        int id = dictionaries.get(dictionary).id(name);
+        if (id == AtmRepairDictionary.UNKNOWN_ID && name != null) {
+            Values added = transactionValues(dictionary);
+            if (added != null) {
+                id = added.id(name);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Возвращает значение справочника по идентификатору.
+     * 
+     * @param dictionary справочник
+     * @param id идентификатор
+     * @return значение или {@code null}, если идентификатора нет в справочнике
+     */
+    public String name(AtmRepairDictionary dictionary, int id) {
+        String name = dictionaries.get(dictionary).name(id);
+        if (name == null && id != AtmRepairDictionary.UNKNOWN_ID) {
+            Values added = transactionValues(dictionary);
+            if (added != null) {
+                name = added.name(id);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Создает таблицы справочников.
+     */
+    public void initialize() {
+        for (AtmRepairDictionary dictionary : AtmRepairDictionary.values()) {
+            jdbcTemplate().execute(CREATE_TABLE_SQL.formatted(dictionary.getTable()));
+        }
+    }
+
+    /**
+     * Загружает справочники в память.
+     */
+    public void load() {
+        for (AtmRepairDictionary dictionary : AtmRepairDictionary.values()) {
+            Values values = dictionaries.get(dictionary);
+            values.clear();
+            jdbcTemplate().query("SELECT id, name FROM " + dictionary.getTable(),
+                    rs -> {
+                        values.put(rs.getInt(1), rs.getString(2));
+                    });
+        }
+    }
+
+    /**
+     * Добавляет в справочники значения ремонтов, которых в них еще нет. Должен вызываться в
+     * транзакции записи ремонтов: добавленные значения попадают в справочники в памяти только
+     * после фиксации транзакции, при откате транзакции они отбрасываются.
+     * 
+     * @param dtoList данные ремонтов
+     */
+    public void register(Collection<AtmRepairDto> dtoList) {
+        for (AtmRepairDictionary dictionary : AtmRepairDictionary.values()) {
+            Set<String> names = new LinkedHashSet<>();
+            for (AtmRepairDto dto : dtoList) {
+                String name = value(dictionary, dto);
+                if (name != null && id(dictionary, name) == AtmRepairDictionary.UNKNOWN_ID) {
+                    names.add(name);
+                }
+            }
+            if (!names.isEmpty()) {
+                insert(dictionary, new ArrayList<>(names));
+            }
+        }
+    }
+
+    /**
+     * Возвращает значение ремонта для справочника.
+     * 
+     * @param dictionary справочник
+     * @param dto данные ремонта
+     * @return значение
+     */
+    private static String value(AtmRepairDictionary dictionary, AtmRepairDto dto) {
+        return switch (dictionary) {
+        case ATM -> dto.getAtmId();
+        case REASON -> dto.getReason();
+        case SERIAL_NUMBER -> dto.getSerialNumber();
+        case BANK -> dto.getBankName();
+        case CHANNEL -> dto.getChannel();
+        };
+    }
+
+    /**
+     * Добавляет значения в таблицу справочника и в значения, добавленные в текущей транзакции.
+     * Без транзакции значения сразу добавляются в справочник в памяти.
+     * 
+     * @param dictionary справочник
+     * @param names новые значения
+     */
+    private void insert(AtmRepairDictionary dictionary, List<String> names) {
+        String table = dictionary.getTable();
+        Values values = TransactionSynchronizationManager.isSynchronizationActive()
+                ? addedInTransaction().computeIfAbsent(dictionary, key -> new Values())
+                : dictionaries.get(dictionary);
+        jdbcTemplate().batchUpdate("INSERT OR IGNORE INTO " + table + " (name) VALUES (?)",
+                names.stream().map(name -> new Object[] { name }).toList());
+        for (int from = 0; from < names.size(); from += MAX_NAMES_PER_QUERY) {
+            namedParameterJdbcTemplate.query(
+                    "SELECT id, name FROM " + table + " WHERE name IN (:names)",
+                    Map.of("names", names.subList(from,
+                            Math.min(names.size(), from + MAX_NAMES_PER_QUERY))),
+                    rs -> {
+                        values.put(rs.getInt(1), rs.getString(2));
+                    });
+        }
+    }
+
+    /**
+     * Возвращает значения справочника, добавленные в текущей транзакции.
+     * 
+     * @param dictionary справочник
+     * @return значения или {@code null}, если в транзакции значения не добавлялись
+     */
+    @SuppressWarnings("unchecked")
+    private Values transactionValues(AtmRepairDictionary dictionary) {
+        Map<AtmRepairDictionary, Values> added =
+                (Map<AtmRepairDictionary, Values>) TransactionSynchronizationManager
+                        .getResource(this);
+        return added == null ? null : added.get(dictionary);
+    }
+
+    /**
+     * Возвращает значения справочников, добавленные в текущей транзакции, при первом обращении
+     * привязывая их к транзакции. После фиксации транзакции значения добавляются в справочники
+     * в памяти раньше обработчиков событий фиксации, которые их читают.
+     * 
+     * @return значения по справочнику
+     */
+    @SuppressWarnings("unchecked")
+    private Map<AtmRepairDictionary, Values> addedInTransaction() {
+        Map<AtmRepairDictionary, Values> added =
+                (Map<AtmRepairDictionary, Values>) TransactionSynchronizationManager
+                        .getResource(this);
+        if (added == null) {
+            Map<AtmRepairDictionary, Values> transactionValues =
+                    new EnumMap<>(AtmRepairDictionary.class);
+            TransactionSynchronizationManager.bindResource(this, transactionValues);
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+
+                        @Override
+                        public int getOrder() {
+                            return Ordered.HIGHEST_PRECEDENCE;
+                        }
+
+                        @Override
+                        public void afterCommit() {
+                            transactionValues.forEach(
+                                    (dictionary, values) -> values.copyTo(
+                                            dictionaries.get(dictionary)));
+                        }
+
+                        @Override
+                        public void afterCompletion(int status) {
+                            TransactionSynchronizationManager.unbindResourceIfPossible(
+                                    AtmRepairDictionaryRepository.this);
+                        }
+                    });
+            added = transactionValues;
+        }
+        return added;
+    }
+
+    private JdbcTemplate jdbcTemplate() {
+        return namedParameterJdbcTemplate.getJdbcTemplate();
+    }
+
+    /**
+     * Создает пустые справочники в памяти.
+     * 
+     * @return справочники
+     */
+    private static Map<AtmRepairDictionary, Values> createDictionaries() {
+        Map<AtmRepairDictionary, Values> result = new EnumMap<>(AtmRepairDictionary.class);
+        for (AtmRepairDictionary dictionary : AtmRepairDictionary.values()) {
+            result.put(dictionary, new Values());
+        }
+        return result;
+    }
+
+    /**
+     * Значения справочника в памяти.
+     */
+    private static class Values {
+
+        /** Начальный размер массива значений по идентификатору */
+        private static final int INITIAL_CAPACITY = 64;
+
+        /** Идентификаторы по значению */
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+
+        /**
+         * Значения по идентификатору. Изменения массива публикуются повторной записью поля,
+         * поэтому значения читаются без блокировки.
+         */
+        private volatile String[] names = new String[INITIAL_CAPACITY];
+
+        int id(String name) {
+            Integer id = name == null ? null : ids.get(name);
+            return id == null ? AtmRepairDictionary.UNKNOWN_ID : id;
+        }
+
+        String name(int id) {
+            String[] current = names;
+            return id > 0 && id < current.length ? current[id] : null;
+        }
+
+        synchronized void put(int id, String name) {
+            String[] current = names;
+            if (id >= current.length) {
+                current = Arrays.copyOf(current, Math.max(id + 1, current.length * 2));
+            }
+            current[id] = name;
+            ids.put(name, id);
+            names = current;
+        }
+
+        synchronized void copyTo(Values target) {
+            ids.forEach((name, id) -> target.put(id, name));
+        }
+
+        synchronized void clear() {
+            ids.clear();
+            names = new String[INITIAL_CAPACITY];
+        }
+
+    }
+
+}
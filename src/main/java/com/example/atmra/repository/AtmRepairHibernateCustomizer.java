@@ -0,0 +1,28 @@
+package com.example.atmra.repository;
+
+import java.util.Map;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import com.example.atmra.service.AtmRepairConfiguration;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Дополняет настройки Hibernate значениями конфигурации приложения.
+ */
+@Component
+@RequiredArgsConstructor
+public class AtmRepairHibernateCustomizer implements HibernatePropertiesCustomizer {
+
+    private final AtmRepairConfiguration atmRepairConfiguration;
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.LOG_SLOW_QUERY,
+                atmRepairConfiguration.getSlowQueryThreshold().toMillis());
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.example.atmra.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.atmra.dto.AtmRepairImportResultDto;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Репозиторий файлов, загруженных из каталога импорта, посредством JDBC.
+ * <p>
+ * Таблица {@code import_files} хранит контрольную сумму SHA-256 каждого загруженного файла,
+ * поэтому файл с тем же содержимым, положенный в каталог повторно, не загружается. Сведения не
+ * удаляются при удалении всех ремонтов: иначе файлы, оставшиеся в каталоге импорта, например
+ * копии уже загруженных, были бы загружены снова.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AtmRepairImportFileRepository {
+
+    /** Запрос создания таблицы загруженных файлов */
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS import_files (
+                checksum TEXT PRIMARY KEY,
+                file_name TEXT NOT NULL,
+                file_size INTEGER NOT NULL,
+                imported_at TEXT NOT NULL,
+                inserted INTEGER NOT NULL,
+                updated INTEGER NOT NULL,
+                unchanged INTEGER NOT NULL
+            )
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Создает таблицу загруженных файлов.
+     */
+    public void initialize() {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+    }
+
+    /**
+     * Возвращает признак загруженного файла с контрольной суммой.
+     * 
+     * @param checksum контрольная сумма SHA-256 содержимого файла
+     * @return признак загруженного файла
+     */
+    public boolean exists(String checksum) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM import_files WHERE checksum = ?",
+                Integer.class, checksum).isEmpty();
+    }
+
+    /**
+     * Сохраняет сведения о загруженном файле.
+     * 
+     * @param checksum контрольная сумма SHA-256 содержимого файла
+     * @param fileName имя файла
+     * @param fileSize размер файла
+     * @param result количество добавленных, обновленных и неизмененных записей
+     */
+    public void save(String checksum, String fileName, long fileSize,
+            AtmRepairImportResultDto result) {
+        jdbcTemplate.update("""
+                INSERT OR REPLACE INTO import_files (checksum, file_name, file_size, imported_at,
+                                                     inserted, updated, unchanged)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, checksum, fileName, fileSize, LocalDateTime.now().toString(),
+                result.getInserted(), result.getUpdated(), result.getUnchanged());
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.example.atmra.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.entity.AtmRepair;
+import com.example.atmra.entity.AtmRepairDictionary;
+import com.example.atmra.entity.LocalDateTimeAsIsoTextConverter;
+import com.example.atmra.entity.TimeStorageMode;
+import com.example.atmra.repository.AtmRepairAggregateRepository.Pair;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Репозиторий пакетной записи данных ремонтов посредством JDBC.
+ */
+@Repository
+@RequiredArgsConstructor
+public class AtmRepairJdbcRepository {
+
+    /** Запрос добавления или обновления записи ремонта */
+    private static final String UPSERT_SQL = """
+            INSERT INTO repairs (case_id, atm_ref, reason_ref, start_time, end_time,
+                                 serial_number_ref, bank_ref, channel_ref, duration_seconds,
+                                 content_hash)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT(case_id) DO UPDATE SET
+                atm_ref = excluded.atm_ref,
+                reason_ref = excluded.reason_ref,
+                start_time = excluded.start_time,
+                end_time = excluded.end_time,
+                serial_number_ref = excluded.serial_number_ref,
+                bank_ref = excluded.bank_ref,
+                channel_ref = excluded.channel_ref,
+                duration_seconds = excluded.duration_seconds,
+                content_hash = excluded.content_hash
+            """;
+
+    /** Конвертер даты для полей даты в БД */
+    private static final LocalDateTimeAsIsoTextConverter DATE_CONVERTER =
+            new LocalDateTimeAsIsoTextConverter();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final AtmRepairDictionaryRepository atmRepairDictionaryRepository;
+
+    /**
+     * Сохраненное состояние записи ремонта, по которому определяются измененные записи и
+     * пересчитываются агрегаты.
+     * 
+     * @param contentHash хэш содержимого, {@code null} для записей без хэша
+     * @param pair комбинация АТМ и причины ремонта
+     */
+    public record StoredRepair(Long contentHash, Pair pair) {
+    }
+
+    /**
+     * Добавляет или обновляет записи ремонтов одним пакетом JDBC. Новые значения справочников
+     * добавляются до записи ремонтов. Должен вызываться в транзакции.
+     * 
+     * @param dtoList данные ремонтов с уникальными идентификаторами
+     */
+    public void upsert(Collection<AtmRepairDto> dtoList) {
+        if (dtoList.isEmpty()) {
+            return;
+        }
+        atmRepairDictionaryRepository.register(dtoList);
+        TimeStorageMode mode = TimeStorageMode.active();
+        List<Object[]> batchArgs = dtoList.stream()
+                .map(dto -> {
+                    LocalDateTime startTime = mode.toStoredValue(dto.getStartTime());
+                    LocalDateTime endTime = mode.toStoredValue(dto.getEndTime());
+                    return new Object[] {
+                            dto.getCaseId(),
+                            ref(AtmRepairDictionary.ATM, dto.getAtmId()),
+                            ref(AtmRepairDictionary.REASON, dto.getReason()),
+                            DATE_CONVERTER.convertToDatabaseColumn(startTime),
+                            DATE_CONVERTER.convertToDatabaseColumn(endTime),
+                            ref(AtmRepairDictionary.SERIAL_NUMBER, dto.getSerialNumber()),
+                            ref(AtmRepairDictionary.BANK, dto.getBankName()),
+                            ref(AtmRepairDictionary.CHANNEL, dto.getChannel()),
+                            AtmRepair.durationSeconds(startTime, endTime),
+                            contentHash(dto)};
+                })
+                .toList();
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPSERT_SQL, batchArgs);
+    }
+
+    /**
+     * Возвращает идентификатор значения справочника для колонки таблицы ремонтов.
+     * 
+     * @param dictionary справочник
+     * @param name значение, добавленное в справочник
+     * @return идентификатор или {@code null} для пустого значения
+     */
+    private Integer ref(AtmRepairDictionary dictionary, String name) {
+        return name == null ? null : atmRepairDictionaryRepository.id(dictionary, name);
+    }
+
+    /**
+     * Возвращает сохраненное состояние записей ремонтов, которые уже есть в таблице ремонтов,
+     * одним запросом.
+     * 
+     * @param caseIds идентификаторы ремонтов
+     * @return состояние по идентификатору существующей записи
+     */
+    public Map<Long, StoredRepair> findStored(Collection<Long> caseIds) {
+        Map<Long, StoredRepair> result = new HashMap<>();
+        if (caseIds.isEmpty()) {
+            return result;
+        }
+        jdbcTemplate.query("""
+                SELECT case_id, content_hash, atm_ref, reason_ref
+                FROM repairs
+                WHERE case_id IN (:caseIds)
+                """,
+                Map.of("caseIds", caseIds),
+                rs -> {
+                    long hash = rs.getLong(2);
+                    Long contentHash = rs.wasNull() ? null : hash;
+                    result.put(rs.getLong(1), new StoredRepair(contentHash,
+                            new Pair(atmRepairDictionaryRepository.name(
+                                    AtmRepairDictionary.ATM, rs.getInt(3)),
+                                    atmRepairDictionaryRepository.name(
+                                            AtmRepairDictionary.REASON, rs.getInt(4)))));
+                });
+        return result;
+    }
+
+    /**
+     * Возвращает хэш содержимого записи ремонта, сохраняемый в колонке {@code content_hash}.
+     * Даты приводятся к точности действующего способа хранения, поэтому хэш совпадает с
+     * хэшем сохраненной записи, даже если загружаемые даты содержат доли секунды.
+     * 
+     * @param dto данные ремонта
+     * @return хэш содержимого
+     * @see AtmRepair#contentHash
+     */
+    public static long contentHash(AtmRepairDto dto) {
+        TimeStorageMode mode = TimeStorageMode.active();
+        return AtmRepair.contentHash(dto.getAtmId(), dto.getReason(),
+                mode.toStoredValue(dto.getStartTime()), mode.toStoredValue(dto.getEndTime()),
+                dto.getSerialNumber(), dto.getBankName(), dto.getChannel());
+    }
+
+}
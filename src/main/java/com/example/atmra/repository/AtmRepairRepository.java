@@ -1,21 +1,84 @@
 package com.example.atmra.repository;
 
-import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
 import com.example.atmra.entity.AtmRepair;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * Репозиторий для данных ремонтов.
  */
-public interface AtmRepairRepository extends JpaRepository<AtmRepair, Long> {
+public interface AtmRepairRepository
+        extends JpaRepository<AtmRepair, Long>, JpaSpecificationExecutor<AtmRepair> {
+
+    /** Количество строк, получаемых из БД за одно обращение при потоковом чтении */
+    String STREAM_FETCH_SIZE = "1000";
+
+    /**
+     * Запрос ремонтов по наиболее часто встречающимся причинам из агрегата количества ремонтов
+     * по причинам {@link AtmRepairAggregateRepository} с ограничением количества по одной
+     * причине. Ремонты упорядочены по убыванию количества ремонтов причины, причине и
+     * идентификатору записи ремонта.
+     */
+    String REPAIRS_BY_TOP_REASONS_SQL = """
+            WITH top_reasons AS (
+                SELECT c.id, n.reason, n.repair_count
+                FROM (
+                    SELECT reason, repair_count
+                    FROM repair_reason_counts
+                    ORDER BY repair_count DESC, reason
+                    LIMIT :count
+                ) n
+                JOIN repair_reasons c ON c.name = n.reason
+            )
+            SELECT x.*
+            FROM (
+                SELECT r.*,
+                       ROW_NUMBER() OVER (PARTITION BY r.reason_ref ORDER BY r.case_id) AS row_num
+                FROM repairs r
+                WHERE r.reason_ref IN (SELECT id FROM top_reasons)
+            ) x
+            JOIN top_reasons t ON t.id = x.reason_ref
+            WHERE :maxRowsPerGroup <= 0 OR x.row_num <= :maxRowsPerGroup
+            ORDER BY t.repair_count DESC, t.reason, x.case_id
+            """;
+
+    /** Запрос ремонтов из агрегата повторных поломок {@link AtmRepairAggregateRepository} */
+    String RECURRENCES_SQL = """
+            SELECT r.*
+            FROM repair_recurrences x
+            JOIN repairs r ON r.case_id = x.case_id
+            ORDER BY x.atm_id, x.reason, x.start_time, x.case_id
+            """;
+
+    /**
+     * Возвращает поток ремонтов по наиболее часто встречающимся причинам, упорядоченный по
+     * убыванию количества ремонтов причины и причине. Поток должен читаться и закрываться в
+     * транзакции.
+     * 
+     * @param count количество причин
+     * @param maxRowsPerGroup максимальное количество ремонтов по одной причине, если больше 0
+     * @return поток ремонтов
+     */
+    @Query(value = REPAIRS_BY_TOP_REASONS_SQL, nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<AtmRepair> streamRepairsByTopReasons(int count, int maxRowsPerGroup);
 
     /**
-     * Возвращает список ремонтов по причине.
+     * Возвращает поток ремонтов, причина которых повторилась, упорядоченный по АТМ, причине и
+     * дате начала ремонта. Поток должен читаться и закрываться в транзакции.
      * 
-     * @param reason причина ремонта
-     * @return список ремонтов
+     * @return поток ремонтов
      */
-    List<AtmRepair> findRepairsByReason(String reason);
+    @Query(value = RECURRENCES_SQL, nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<AtmRepair> streamRecurrences();
 
 }
@@ -0,0 +1,234 @@
+package com.example.atmra.repository;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.atmra.entity.AtmRepairDictionary;
+import com.example.atmra.entity.TimeStorageMode;
+import com.example.atmra.service.AtmRepairConfiguration;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Дополняет схему и данные таблицы ремонтов после обновления схемы БД.
+ * <p>
+ * Создается после {@code entityManagerFactory}, поэтому выполняется после создания новых колонок
+ * и индексов Hibernate ({@code ddl-auto: update}).
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class AtmRepairSchemaMigrator {
+
+    /** Тип колонок даты, в которых SQLite сохраняет и текст, и целые числа */
+    private static final String TIME_COLUMN_TYPE = "NUMERIC";
+
+    /** Колонки даты таблицы ремонтов */
+    private static final List<String> TIME_COLUMNS = List.of("start_time", "end_time");
+
+    /** Индексы таблицы ремонтов, замененные другими индексами */
+    private static final List<String> OBSOLETE_INDEXES = List.of("idx_atmId_reason",
+            "idx_start_time", "idx_atmId_reason_start_time", "idx_reason",
+            "idx_start_time_reason");
+
+    /** Текстовые колонки таблицы ремонтов, замененные идентификаторами справочников */
+    private static final Map<AtmRepairDictionary, String> TEXT_COLUMNS =
+            new EnumMap<>(Map.of(
+                    AtmRepairDictionary.ATM, "atm_id",
+                    AtmRepairDictionary.REASON, "reason",
+                    AtmRepairDictionary.SERIAL_NUMBER, "serial_number",
+                    AtmRepairDictionary.BANK, "bank_nm",
+                    AtmRepairDictionary.CHANNEL, "channel"));
+
+    /**
+     * Запрос заполнения справочника значениями текстовой колонки. Параметры шаблона - таблица
+     * справочника и текстовая колонка.
+     */
+    private static final String FILL_DICTIONARY_SQL = """
+            INSERT OR IGNORE INTO %1$s (name)
+            SELECT DISTINCT %2$s FROM repairs ORDER BY %2$s
+            """;
+
+    /**
+     * Запрос заполнения колонки идентификаторов справочника по текстовой колонке. Параметры
+     * шаблона - таблица справочника, текстовая колонка и колонка идентификаторов.
+     */
+    private static final String FILL_REF_SQL = """
+            UPDATE repairs
+            SET %3$s = (SELECT d.id FROM %1$s d WHERE d.name = repairs.%2$s)
+            """;
+
+    /** Запрос заполнения времени ремонта для записей, сохраненных до появления колонки */
+    private static final String BACKFILL_DURATION_SECONDS_SQL = """
+            UPDATE repairs
+            SET duration_seconds = %s - %s
+            WHERE duration_seconds IS NULL AND end_time IS NOT NULL
+            """;
+
+    /** Запрос преобразования дат, сохраненных другим способом */
+    private static final String CONVERT_TIME_SQL = """
+            UPDATE repairs
+            SET start_time = CASE WHEN typeof(start_time) = '%1$s' THEN start_time ELSE %2$s END,
+                end_time = CASE WHEN typeof(end_time) = '%1$s' THEN end_time ELSE %3$s END
+            WHERE typeof(start_time) <> '%1$s'
+               OR (end_time IS NOT NULL AND typeof(end_time) <> '%1$s')
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtmRepairConfiguration atmRepairConfiguration;
+
+    private final AtmRepairAggregateRepository atmRepairAggregateRepository;
+
+    private final AtmRepairImportFileRepository atmRepairImportFileRepository;
+
+    private final AtmRepairDictionaryRepository atmRepairDictionaryRepository;
+
+    /**
+     * Удаляет замененные индексы, переносит текстовые значения в справочники и загружает
+     * справочники в память, приводит даты к настроенному способу хранения, заполняет время
+     * ремонта в существующих записях, создает агрегаты таблицы ремонтов и таблицу файлов,
+     * загруженных из каталога импорта. После переноса значений в справочники файл БД сжимается.
+     */
+    @PostConstruct
+    void migrate() {
+        TimeStorageMode mode = atmRepairConfiguration.getTimeStorage();
+        TimeStorageMode.activate(mode);
+        boolean normalized = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            dropObsoleteIndexes();
+            atmRepairDictionaryRepository.initialize();
+            boolean result = moveTextColumnsToDictionaries();
+            atmRepairDictionaryRepository.load();
+            if (mode == TimeStorageMode.EPOCH_SECONDS && !hasNumericTimeColumns()) {
+                rebuildWithNumericTimeColumns();
+            }
+            convertTimeStorage(mode);
+            backfillDurationSeconds(mode);
+            atmRepairAggregateRepository.initialize();
+            atmRepairImportFileRepository.initialize();
+            return result;
+        }));
+        if (normalized) {
+            // Место удаленных колонок освобождается только пересозданием файла БД
+            jdbcTemplate.execute("VACUUM");
+            log.info("Файл БД сжат после переноса значений в справочники");
+        }
+    }
+
+    /**
+     * Удаляет индексы таблицы ремонтов, замененные другими индексами.
+     */
+    private void dropObsoleteIndexes() {
+        OBSOLETE_INDEXES.forEach(index -> jdbcTemplate.execute("DROP INDEX IF EXISTS " + index));
+    }
+
+    /**
+     * Переносит значения текстовых колонок, сохраненных до появления справочников, в
+     * справочники и колонки идентификаторов, после чего удаляет текстовые колонки. Колонки
+     * идентификаторов добавлены Hibernate со значением по умолчанию.
+     * 
+     * @return {@code true}, если текстовые колонки были и перенесены
+     */
+    private boolean moveTextColumnsToDictionaries() {
+        Set<String> columns = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT name FROM pragma_table_info('repairs')", String.class));
+        boolean moved = false;
+        for (var entry : TEXT_COLUMNS.entrySet()) {
+            AtmRepairDictionary dictionary = entry.getKey();
+            String column = entry.getValue();
+            if (!columns.contains(column)) {
+                continue;
+            }
+            jdbcTemplate.update(FILL_DICTIONARY_SQL.formatted(dictionary.getTable(), column));
+            jdbcTemplate.update(FILL_REF_SQL.formatted(dictionary.getTable(), column,
+                    dictionary.getColumn()));
+            jdbcTemplate.execute("ALTER TABLE repairs DROP COLUMN " + column);
+            log.info("Колонка {} таблицы ремонтов заменена справочником {}", column,
+                    dictionary.getTable());
+            moved = true;
+        }
+        return moved;
+    }
+
+    /**
+     * Проверяет, что колонки даты объявлены с типом {@link #TIME_COLUMN_TYPE}. В колонке TEXT
+     * SQLite сохраняет целые числа текстом.
+     * 
+     * @return {@code true}, если все колонки даты имеют тип NUMERIC
+     */
+    private boolean hasNumericTimeColumns() {
+        return jdbcTemplate.queryForList("SELECT name, type FROM pragma_table_info('repairs')")
+                .stream()
+                .filter(column -> TIME_COLUMNS.contains(column.get("name")))
+                .allMatch(column ->
+                        TIME_COLUMN_TYPE.equalsIgnoreCase((String) column.get("type")));
+    }
+
+    /**
+     * Пересоздает таблицу ремонтов с колонками даты типа NUMERIC, сохраняя данные и индексы.
+     * SQLite не позволяет изменить тип колонки существующей таблицы.
+     */
+    private void rebuildWithNumericTimeColumns() {
+        String tableSql = jdbcTemplate.queryForObject(
+                "SELECT sql FROM sqlite_master WHERE type = 'table' AND name = 'repairs'",
+                String.class);
+        List<String> indexSqls = jdbcTemplate.queryForList(
+                "SELECT sql FROM sqlite_master "
+                        + "WHERE type = 'index' AND tbl_name = 'repairs' AND sql IS NOT NULL",
+                String.class);
+
+        String newTableSql = tableSql.replaceFirst("(?i)^create\\s+table\\s+\"?repairs\"?",
+                "CREATE TABLE repairs_new");
+        for (String column : TIME_COLUMNS) {
+            newTableSql = newTableSql.replaceFirst("(?i)(\\b" + column + "\\s+)\\w+",
+                    "$1" + TIME_COLUMN_TYPE);
+        }
+
+        jdbcTemplate.execute(newTableSql);
+        jdbcTemplate.execute("INSERT INTO repairs_new SELECT * FROM repairs");
+        jdbcTemplate.execute("DROP TABLE repairs");
+        jdbcTemplate.execute("ALTER TABLE repairs_new RENAME TO repairs");
+        indexSqls.forEach(jdbcTemplate::execute);
+        log.info("Колонки даты таблицы ремонтов преобразованы к типу {}", TIME_COLUMN_TYPE);
+    }
+
+    /**
+     * Преобразует даты, сохраненные другим способом, к указанному способу хранения.
+     * 
+     * @param mode способ хранения
+     */
+    private void convertTimeStorage(TimeStorageMode mode) {
+        int updated = jdbcTemplate.update(CONVERT_TIME_SQL.formatted(mode.getSqliteType(),
+                mode.fromOtherModeSql("start_time"), mode.fromOtherModeSql("end_time")));
+        if (updated > 0) {
+            log.info("Даты {} записей преобразованы к способу хранения {}", updated, mode);
+        }
+    }
+
+    /**
+     * Заполняет время ремонта в записях, сохраненных до появления колонки.
+     * 
+     * @param mode способ хранения дат
+     */
+    private void backfillDurationSeconds(TimeStorageMode mode) {
+        int updated = jdbcTemplate.update(BACKFILL_DURATION_SECONDS_SQL.formatted(
+                mode.epochSecondsSql("end_time"), mode.epochSecondsSql("start_time")));
+        if (updated > 0) {
+            log.info("Заполнено время ремонта для {} записей", updated);
+        }
+    }
+
+}
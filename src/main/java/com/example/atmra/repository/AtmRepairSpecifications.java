@@ -0,0 +1,150 @@
+package com.example.atmra.repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.example.atmra.dto.AtmRepairFilterDto;
+import com.example.atmra.entity.AtmRepair;
+import com.example.atmra.entity.AtmRepairDictionary;
+import com.example.atmra.entity.TimeStorageMode;
+
+/**
+ * Условия отбора данных ремонтов для {@link AtmRepairRepository}.
+ * <p>
+ * Условия фильтра описываются один раз списком {@link Condition} и строятся из него как
+ * {@link Specification} для Criteria API и как условие SQL для запросов с оконными функциями.
+ */
+public final class AtmRepairSpecifications {
+
+    private AtmRepairSpecifications() {
+    }
+
+    /**
+     * Оператор сравнения поля ремонта со значением условия.
+     */
+    private enum Operator {
+
+        /** Равно */
+        EQUAL("="),
+
+        /** Больше или равно */
+        GREATER_OR_EQUAL(">="),
+
+        /** Меньше */
+        LESS("<");
+
+        /** Оператор SQL */
+        private final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    /**
+     * Условие отбора по полю ремонта.
+     * 
+     * @param attribute имя поля сущности
+     * @param dictionary справочник значений поля, {@code null} - поле даты начала ремонта
+     * @param parameter имя параметра запроса SQL
+     * @param operator оператор сравнения
+     * @param value значение
+     */
+    private record Condition(String attribute, AtmRepairDictionary dictionary, String parameter,
+            Operator operator, Object value) {
+    }
+
+    /**
+     * Возвращает условие отбора ремонтов по заполненным полям фильтра. Условие равенства
+     * значению, которого нет в справочнике, не выполняется ни для одного ремонта.
+     * 
+     * @param filter условия отбора
+     * @param dictionaries справочники значений полей
+     * @return условие отбора
+     */
+    public static Specification<AtmRepair> matches(AtmRepairFilterDto filter,
+            AtmRepairDictionaryRepository dictionaries) {
+        return Specification.allOf(conditions(filter).stream()
+                .<Specification<AtmRepair>> map(condition -> (root, query, cb) -> {
+                    String attribute = condition.attribute();
+                    return switch (condition.operator()) {
+                    case EQUAL -> dictionaries.id(condition.dictionary(),
+                            (String) condition.value()) == AtmRepairDictionary.UNKNOWN_ID
+                                    ? cb.disjunction()
+                                    : cb.equal(root.get(attribute), condition.value());
+                    case GREATER_OR_EQUAL -> cb.greaterThanOrEqualTo(
+                            root.<LocalDateTime> get(attribute), (LocalDateTime) condition.value());
+                    case LESS -> cb.lessThan(
+                            root.<LocalDateTime> get(attribute), (LocalDateTime) condition.value());
+                    };
+                })
+                .toList());
+    }
+
+    /**
+     * Возвращает условие SQL отбора ремонтов таблицы {@code repairs r} по заполненным полям
+     * фильтра. Значения передаются идентификаторами справочников, даты - в способе хранения
+     * дат.
+     * 
+     * @param filter условия отбора
+     * @param mode способ хранения дат
+     * @param dictionaries справочники значений полей
+     * @param parameters значения параметров условия по имени, дополняются условиями отбора
+     * @return условие SQL
+     */
+    public static String whereSql(AtmRepairFilterDto filter, TimeStorageMode mode,
+            AtmRepairDictionaryRepository dictionaries, Map<String, Object> parameters) {
+        List<String> sql = new ArrayList<>();
+        for (Condition condition : conditions(filter)) {
+            AtmRepairDictionary dictionary = condition.dictionary();
+            sql.add("r." + (dictionary == null ? "start_time" : dictionary.getColumn()) + " "
+                    + condition.operator().sql + " :" + condition.parameter());
+            parameters.put(condition.parameter(), dictionary == null
+                    ? mode.toDatabaseValue((LocalDateTime) condition.value())
+                    : dictionaries.id(dictionary, (String) condition.value()));
+        }
+        return sql.isEmpty() ? "1 = 1" : String.join(" AND ", sql);
+    }
+
+    /**
+     * Возвращает условия по заполненным полям фильтра.
+     * 
+     * @param filter условия отбора
+     * @return условия
+     */
+    private static List<Condition> conditions(AtmRepairFilterDto filter) {
+        List<Condition> conditions = new ArrayList<>();
+        addEqual(conditions, "atmId", AtmRepairDictionary.ATM, filter.getAtmId());
+        addEqual(conditions, "reason", AtmRepairDictionary.REASON, filter.getReason());
+        addEqual(conditions, "bankName", AtmRepairDictionary.BANK, filter.getBankName());
+        addEqual(conditions, "channel", AtmRepairDictionary.CHANNEL, filter.getChannel());
+        if (filter.getFrom() != null) {
+            conditions.add(new Condition("startTime", null, "from", Operator.GREATER_OR_EQUAL,
+                    filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            conditions.add(new Condition("startTime", null, "to", Operator.LESS, filter.getTo()));
+        }
+        return conditions;
+    }
+
+    /**
+     * Добавляет условие равенства поля значению, если значение заполнено.
+     * 
+     * @param conditions условия
+     * @param attribute имя поля
+     * @param dictionary справочник значений поля
+     * @param value значение, {@code null} или пустая строка - без условия
+     */
+    private static void addEqual(List<Condition> conditions, String attribute,
+            AtmRepairDictionary dictionary, String value) {
+        if (value != null && !value.isBlank()) {
+            conditions.add(new Condition(attribute, dictionary, attribute, Operator.EQUAL, value));
+        }
+    }
+
+}
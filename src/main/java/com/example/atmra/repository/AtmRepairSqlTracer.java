@@ -0,0 +1,337 @@
+package com.example.atmra.repository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import com.example.atmra.dto.AtmRepairSqlStatDto;
+import com.example.atmra.service.AtmRepairConfiguration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Трассировка запросов SQL на уровне JDBC.
+ * <p>
+ * Пока трассировка выключена, соединения источника данных не оборачиваются и запросы
+ * выполняются без накладных расходов. Во включенном режиме для каждого запроса собирается
+ * статистика выполнения (количество, суммарное, среднее и максимальное время), а каждый N-й
+ * оператор записывается в журнал вместе со значениями параметров. Режим переключается без
+ * перезапуска приложения, изменение действует для соединений, полученных после переключения.
+ * Обернутые операторы возвращают из {@link Statement#getConnection()} обертку соединения, чтобы
+ * операторы, созданные через нее, тоже трассировались.
+ */
+@Component
+@Slf4j
+public class AtmRepairSqlTracer {
+
+    /** Максимальное количество запросов в статистике */
+    static final int MAX_QUERIES = 1000;
+
+    /** Ключ статистики запросов, не поместившихся в {@link #MAX_QUERIES} */
+    static final String OTHER_QUERIES = "(другие запросы)";
+
+    /** Признак включенной трассировки */
+    private volatile boolean enabled;
+
+    /** Записывается в журнал каждый N-й оператор */
+    private volatile int sampleRate;
+
+    /** Количество созданных операторов, для выбора записываемых в журнал */
+    private final AtomicLong statementCounter = new AtomicLong();
+
+    /** Статистика по тексту запроса */
+    private final Map<String, QueryStat> stats = new ConcurrentHashMap<>();
+
+    public AtmRepairSqlTracer(AtmRepairConfiguration atmRepairConfiguration) {
+        configure(atmRepairConfiguration.isSqlTraceEnabled(),
+                atmRepairConfiguration.getSqlTraceSampleRate());
+    }
+
+    /**
+     * Включает или выключает трассировку и задает частоту записи операторов в журнал.
+     * 
+     * @param enabled признак включенной трассировки
+     * @param sampleRate записывается в журнал каждый N-й оператор, 0 - не записывать
+     */
+    public void configure(boolean enabled, int sampleRate) {
+        this.sampleRate = Math.max(0, sampleRate);
+        this.enabled = enabled;
+    }
+
+    /**
+     * Возвращает признак включенной трассировки.
+     * 
+     * @return признак включенной трассировки
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Возвращает частоту записи операторов в журнал.
+     * 
+     * @return записывается в журнал каждый N-й оператор, 0 - не записывать
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Возвращает статистику запросов по убыванию суммарного времени выполнения.
+     * 
+     * @return статистика запросов
+     */
+    public List<AtmRepairSqlStatDto> getStats() {
+        return stats.entrySet().stream()
+                .map(entry -> entry.getValue().toDto(entry.getKey()))
+                .sorted(Comparator.comparingDouble(AtmRepairSqlStatDto::getTotalMillis)
+                        .reversed())
+                .toList();
+    }
+
+    /**
+     * Очищает статистику запросов.
+     */
+    public void resetStats() {
+        stats.clear();
+    }
+
+    /**
+     * Оборачивает соединение для трассировки, если она включена.
+     * 
+     * @param connection соединение
+     * @return соединение с трассировкой или исходное соединение
+     */
+    public Connection wrap(Connection connection) {
+        if (!enabled) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Учитывает выполнение запроса в статистике.
+     * 
+     * @param sql текст запроса
+     * @param nanos время выполнения, нс
+     * @param batchRows количество строк в пакете
+     */
+    private void record(String sql, long nanos, int batchRows) {
+        String key = sql.strip();
+        QueryStat stat = stats.get(key);
+        if (stat == null) {
+            stat = stats.size() < MAX_QUERIES
+                    ? stats.computeIfAbsent(key, k -> new QueryStat())
+                    : stats.computeIfAbsent(OTHER_QUERIES, k -> new QueryStat());
+        }
+        stat.add(nanos, batchRows);
+    }
+
+    /**
+     * Возвращает результат вызова метода объекта JDBC, передавая исключения без обертки.
+     * 
+     * @param target объект JDBC
+     * @param method метод
+     * @param args аргументы
+     * @return результат вызова
+     * @throws Throwable исключение метода
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        // Равенство оберток определяется по ссылке, как у объектов JDBC пула соединений
+        switch (method.getName()) {
+        case "equals":
+            return args[0] != null && Proxy.isProxyClass(args[0].getClass())
+                    && Proxy.getInvocationHandler(args[0]) instanceof Handler handler
+                    && handler.target() == target;
+        case "hashCode":
+            return System.identityHashCode(target);
+        default:
+            break;
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Статистика выполнения запроса.
+     */
+    private static class QueryStat {
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder batchRows = new LongAdder();
+
+        private final LongAdder totalNanos = new LongAdder();
+
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void add(long nanos, int rows) {
+            count.increment();
+            batchRows.add(rows);
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        AtmRepairSqlStatDto toDto(String sql) {
+            long executions = count.sum();
+            double total = totalNanos.sum() / 1e6;
+            return AtmRepairSqlStatDto.builder()
+                    .sql(sql)
+                    .count(executions)
+                    .batchRows(batchRows.sum())
+                    .totalMillis(total)
+                    .avgMillis(executions > 0 ? total / executions : 0)
+                    .maxMillis(maxNanos.get() / 1e6)
+                    .build();
+        }
+
+    }
+
+    /**
+     * Обработчик вызовов обертки объекта JDBC.
+     */
+    private interface Handler extends InvocationHandler {
+
+        /**
+         * Возвращает обернутый объект JDBC.
+         * 
+         * @return обернутый объект
+         */
+        Object target();
+
+    }
+
+    /**
+     * Обработчик вызовов соединения, оборачивающий создаваемые операторы.
+     */
+    private class ConnectionHandler implements Handler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object target() {
+            return target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = AtmRepairSqlTracer.invoke(target, method, args);
+            String name = method.getName();
+            if (result instanceof Statement statement && (name.startsWith("prepare")
+                    || name.equals("createStatement"))) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String s
+                        ? s
+                        : null;
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class
+                        : Statement.class;
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                        new Class<?>[] { type },
+                        new StatementHandler(statement, (Connection) proxy, sql));
+            }
+            return result;
+        }
+
+    }
+
+    /**
+     * Обработчик вызовов оператора, измеряющий время выполнения запросов.
+     */
+    private class StatementHandler implements Handler {
+
+        private final Statement target;
+
+        /** Обертка соединения, создавшего оператор */
+        private final Connection connection;
+
+        /** Текст подготовленного запроса или {@code null} для {@link Statement} */
+        private final String sql;
+
+        /** Значения параметров по номеру или {@code null}, если оператор не записывается */
+        private final Map<Integer, Object> parameters;
+
+        /** Количество строк в текущем пакете */
+        private int batchRows;
+
+        StatementHandler(Statement target, Connection connection, String sql) {
+            this.target = target;
+            this.connection = connection;
+            this.sql = sql;
+            int rate = sampleRate;
+            this.parameters = rate > 0 && statementCounter.incrementAndGet() % rate == 0
+                    ? new TreeMap<>()
+                    : null;
+        }
+
+        @Override
+        public Object target() {
+            return target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                // Исключение закрытого оператора передается как есть
+                AtmRepairSqlTracer.invoke(target, method, args);
+                return connection;
+            }
+            if (name.startsWith("execute")) {
+                String executed = args != null && args.length > 0 && args[0] instanceof String s
+                        ? s
+                        : sql;
+                int rows = name.equals("executeBatch") || name.equals("executeLargeBatch")
+                        ? batchRows
+                        : 0;
+                long start = System.nanoTime();
+                try {
+                    return AtmRepairSqlTracer.invoke(target, method, args);
+                } finally {
+                    long elapsed = System.nanoTime() - start;
+                    if (executed != null) {
+                        record(executed, elapsed, rows);
+                        if (parameters != null) {
+                            log.info("{} мс{}: {} {}", elapsed / 1_000_000,
+                                    rows > 0 ? ", строк в пакете " + rows : "", executed.strip(),
+                                    parameters);
+                        }
+                    }
+                    if (rows > 0) {
+                        batchRows = 0;
+                    }
+                }
+            }
+            if (name.equals("addBatch") && (args == null || args.length == 0)) {
+                batchRows++;
+            } else if (parameters != null && name.startsWith("set") && args != null
+                    && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, name.equals("setNull") ? null : args[1]);
+            }
+            return AtmRepairSqlTracer.invoke(target, method, args);
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.example.atmra.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Оборачивает источник данных приложения {@value #DATA_SOURCE_BEAN} для трассировки запросов
+ * SQL посредством {@link AtmRepairSqlTracer}. Пулы соединений режима
+ * {@link SqliteProfile#PERFORMANCE} не оборачиваются, так как используются через источник
+ * данных приложения.
+ */
+@Component
+@RequiredArgsConstructor
+public class AtmRepairSqlTracingPostProcessor implements BeanPostProcessor {
+
+    /** Имя бина источника данных приложения */
+    static final String DATA_SOURCE_BEAN = "dataSource";
+
+    private final ObjectProvider<AtmRepairSqlTracer> atmRepairSqlTracer;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource dataSource) {
+            return new TracingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    /**
+     * Источник данных, оборачивающий соединения при включенной трассировке.
+     */
+    private class TracingDataSource extends DelegatingDataSource {
+
+        /** Трассировщик, получаемый при первом соединении после создания контекста */
+        private volatile AtmRepairSqlTracer tracer;
+
+        TracingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return tracer().wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return tracer().wrap(super.getConnection(username, password));
+        }
+
+        private AtmRepairSqlTracer tracer() {
+            AtmRepairSqlTracer result = tracer;
+            if (result == null) {
+                result = atmRepairSqlTracer.getObject();
+                tracer = result;
+            }
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.example.atmra.repository;
+
+/**
+ * Признак чтения БД при формировании потокового ответа.
+ * <p>
+ * Потоковый ответ читает БД по мере передачи данных клиенту и удерживает соединение до окончания
+ * передачи. В режиме {@link SqliteProfile#PERFORMANCE} транзакции только для чтения, начатые
+ * внутри {@link #run(Runnable)}, получают соединение из отдельного пула, поэтому медленные
+ * клиенты не занимают соединения пула чтения остальных запросов.
+ */
+public final class AtmRepairStreamingReads {
+
+    /** Признак чтения для потокового ответа в текущем потоке */
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private AtmRepairStreamingReads() {
+    }
+
+    /**
+     * Выполняет действие, формирующее потоковый ответ.
+     * 
+     * @param action действие
+     */
+    public static void run(Runnable action) {
+        if (isActive()) {
+            action.run();
+            return;
+        }
+        ACTIVE.set(Boolean.TRUE);
+        try {
+            action.run();
+        } finally {
+            ACTIVE.remove();
+        }
+    }
+
+    /**
+     * Возвращает признак чтения для потокового ответа в текущем потоке.
+     * 
+     * @return {@code true}, если текущий поток формирует потоковый ответ
+     */
+    static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.example.atmra.repository;
+
+/**
+ * Режим работы с БД SQLite.
+ */
+public enum SqliteProfile {
+
+    /** Настройки SQLite и пула соединений по умолчанию */
+    DEFAULT,
+
+    /**
+     * Журнал WAL, {@code synchronous=NORMAL}, отображение файла БД в память и увеличенный кэш
+     * страниц. Запись выполняется через одно соединение, чтение в транзакциях только для чтения -
+     * через отдельный пул соединений (см. {@link AtmRepairDataSourceConfiguration}).
+     */
+    PERFORMANCE
+
+}
@@ -1,15 +1,45 @@
 package com.example.atmra.service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.atmra.dto.AtmRepairAggregateCheckDto;
 import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairFilterDto;
+import com.example.atmra.dto.AtmRepairImportResultDto;
+import com.example.atmra.dto.AtmRepairPageDto;
+import com.example.atmra.dto.AtmRepairPageRequestDto;
 import com.example.atmra.entity.AtmRepair;
 import com.example.atmra.mapper.AtmRepairMapper;
+import com.example.atmra.repository.AtmRepairAggregateRepository;
+import com.example.atmra.repository.AtmRepairAggregateRepository.Pair;
+import com.example.atmra.repository.AtmRepairDictionaryRepository;
+import com.example.atmra.repository.AtmRepairJdbcRepository;
+import com.example.atmra.repository.AtmRepairJdbcRepository.StoredRepair;
 import com.example.atmra.repository.AtmRepairRepository;
+import com.example.atmra.repository.AtmRepairSpecifications;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 
 /**
  * Сервис работы с таблицей ремонтов.
@@ -17,47 +47,218 @@ import com.example.atmra.repository.AtmRepairRepository;
 @Service
 abstract class AbstractAtmRepairService implements IAtmRepairService {
 
+    @Autowired
+    protected EntityManager entityManager;
+
     @Autowired
     protected AtmRepairRepository atmRepairRepository;
 
+    @Autowired
+    protected AtmRepairJdbcRepository atmRepairJdbcRepository;
+
+    @Autowired
+    protected AtmRepairAggregateRepository atmRepairAggregateRepository;
+
+    @Autowired
+    protected AtmRepairDictionaryRepository atmRepairDictionaryRepository;
+
     @Autowired
     protected AtmRepairMapper atmRepairMapper;
 
     @Autowired
     protected AtmRepairConfiguration atmRepairConfiguration;
 
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
+
+    @Autowired
+    protected ApplicationEventPublisher eventPublisher;
+
     @Override
     @Transactional
     public AtmRepairDto update(AtmRepairDto dto) {
         AtmRepair entity = atmRepairRepository.findById(dto.getCaseId()).orElseThrow();
+        Pair previous = new Pair(entity.getAtmId(), entity.getReason());
         atmRepairMapper.updateEntity(entity, dto);
-        return atmRepairMapper.toDto(atmRepairRepository.save(entity));
+        atmRepairDictionaryRepository.register(List.of(dto));
+        // Агрегаты пересчитываются запросами SQL, поэтому изменения сущности записываются сразу
+        AtmRepairDto result = atmRepairMapper.toDto(atmRepairRepository.saveAndFlush(entity));
+        atmRepairAggregateRepository.update(List.of(previous),
+                List.of(new Pair(result.getAtmId(), result.getReason())));
+        eventPublisher.publishEvent(AtmRepairDataChangedEvent.ofChanged(List.of(result)));
+        return result;
     }
 
     @Override
     @Transactional
     public void deleteAll() {
         atmRepairRepository.deleteAll();
+        atmRepairAggregateRepository.clear();
+        eventPublisher.publishEvent(AtmRepairDataChangedEvent.ofCleared());
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<AtmRepairDto> findAll() {
-        return atmRepairMapper.toDtoList(atmRepairRepository.findAll());
+    public void streamAll(AtmRepairFilterDto filter, Consumer<? super AtmRepairDto> sink) {
+        forEachDetached(streamMatching(
+                AtmRepairSpecifications.matches(filter, atmRepairDictionaryRepository), 0),
+                repair -> sink.accept(atmRepairMapper.toDto(repair)));
     }
 
     @Override
-    @Transactional
-    public void createOrUpdate(List<AtmRepairDto> dtoList) {
+    @Transactional(readOnly = true)
+    public AtmRepairPageDto findPage(AtmRepairFilterDto filter, AtmRepairPageRequestDto request) {
+        int size = request.getSize() == null
+                ? atmRepairConfiguration.getPageSize()
+                : Math.clamp(request.getSize(), 1, atmRepairConfiguration.getMaxPageSize());
+        Sort sort = AtmRepairPageCursor.sort(request);
+        KeysetScrollPosition position = AtmRepairPageCursor.decode(request);
+        Window<AtmRepair> window = atmRepairRepository.findBy(
+                AtmRepairSpecifications.matches(filter, atmRepairDictionaryRepository),
+                query -> query.sortBy(sort).limit(size).scroll(position));
+
+        return AtmRepairPageDto.builder()
+                .content(atmRepairMapper.toDtoList(window.getContent()))
+                .nextCursor(window.hasNext() && !window.isEmpty()
+                        ? AtmRepairPageCursor.encode(window.positionAt(window.size() - 1))
+                        : null)
+                .build();
+    }
+
+    /**
+     * Возвращает поток ремонтов, удовлетворяющих условию отбора, упорядоченный по
+     * идентификатору. Условия по дате начала ремонта выполняются в БД по индексу
+     * {@code idx_start_time_reason_ref}. Поток должен читаться и закрываться в транзакции.
+     * 
+     * @param specification условие отбора
+     * @param maxResults максимальное количество ремонтов, если больше 0
+     * @return поток ремонтов
+     */
+    protected Stream<AtmRepair> streamMatching(Specification<AtmRepair> specification,
+            int maxResults) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<AtmRepair> query = cb.createQuery(AtmRepair.class);
+        Root<AtmRepair> root = query.from(AtmRepair.class);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(cb.asc(root.get("caseId")));
+
+        TypedQuery<AtmRepair> typedQuery = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, AtmRepairRepository.STREAM_FETCH_SIZE);
+        if (maxResults > 0) {
+            typedQuery.setMaxResults(maxResults);
+        }
+        return typedQuery.getResultStream();
+    }
+
+    /**
+     * Обрабатывает сущности из потока и отсоединяет их от контекста постоянства, чтобы память
+     * не росла с количеством прочитанных записей. Поток закрывается по завершении.
+     * 
+     * @param repairs поток сущностей
+     * @param action обработчик сущности
+     */
+    protected void forEachDetached(Stream<AtmRepair> repairs, Consumer<AtmRepair> action) {
+        try (repairs) {
+            repairs.forEach(repair -> {
+                action.accept(repair);
+                entityManager.detach(repair);
+            });
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Записи сохраняются пакетами JDBC по {@link AtmRepairConfiguration#getJdbcBatchSize()}
+     * записей, каждый пакет фиксируется в отдельной транзакции вместе с обновлением агрегатов.
+     * При {@link AtmRepairConfiguration#isDeltaImport()} записи, хэш содержимого которых
+     * совпадает с сохраненным, не записываются и не сбрасывают результаты анализа.
+     * 
+     * @throws IllegalArgumentException если у записи не задан идентификатор
+     */
+    @Override
+    public AtmRepairImportResultDto createOrUpdate(List<AtmRepairDto> dtoList) {
+        Map<Long, AtmRepairDto> uniqueDtos = new LinkedHashMap<>();
         for (AtmRepairDto atmRepairDto : dtoList) {
-            AtmRepair e = atmRepairRepository.findById(atmRepairDto.getCaseId()).orElse(null);
-            if (e == null) {
-                e = atmRepairMapper.toEntity(atmRepairDto);
-                atmRepairRepository.save(e);
-            } else {
-                atmRepairMapper.updateEntity(e, atmRepairDto);
+            if (atmRepairDto.getCaseId() == null) {
+                throw new IllegalArgumentException("Не задан идентификатор записи ремонта");
             }
+            uniqueDtos.put(atmRepairDto.getCaseId(), atmRepairDto);
+        }
+        List<AtmRepairDto> dtos = List.copyOf(uniqueDtos.values());
+
+        AtmRepairImportResultDto result = new AtmRepairImportResultDto();
+        int batchSize = Math.max(1, atmRepairConfiguration.getJdbcBatchSize());
+        boolean deltaImport = atmRepairConfiguration.isDeltaImport();
+        for (int from = 0; from < dtos.size(); from += batchSize) {
+            List<AtmRepairDto> batch =
+                    dtos.subList(from, Math.min(from + batchSize, dtos.size()));
+            result.add(transactionTemplate.execute(status -> saveBatch(batch, deltaImport)));
+        }
+        return result;
+    }
+
+    /**
+     * Сохраняет пакет записей ремонтов. Должен вызываться в транзакции.
+     * 
+     * @param batch данные ремонтов с уникальными идентификаторами
+     * @param deltaImport признак пропуска записей, совпадающих с сохраненными
+     * @return количество добавленных, обновленных и неизмененных записей
+     */
+    private AtmRepairImportResultDto saveBatch(List<AtmRepairDto> batch, boolean deltaImport) {
+        Map<Long, StoredRepair> stored = atmRepairJdbcRepository.findStored(
+                batch.stream().map(AtmRepairDto::getCaseId).toList());
+        List<AtmRepairDto> changed = deltaImport
+                ? batch.stream()
+                        .filter(dto -> {
+                            StoredRepair repair = stored.get(dto.getCaseId());
+                            return repair == null || !Objects.equals(repair.contentHash(),
+                                    AtmRepairJdbcRepository.contentHash(dto));
+                        })
+                        .toList()
+                : batch;
+        int inserted = (int) changed.stream()
+                .filter(dto -> !stored.containsKey(dto.getCaseId()))
+                .count();
+
+        if (!changed.isEmpty()) {
+            List<Pair> previous = changed.stream()
+                    .map(dto -> stored.get(dto.getCaseId()))
+                    .filter(Objects::nonNull)
+                    .map(StoredRepair::pair)
+                    .toList();
+            atmRepairJdbcRepository.upsert(changed);
+            atmRepairAggregateRepository.update(previous, changed.stream()
+                    .map(dto -> new Pair(dto.getAtmId(), dto.getReason()))
+                    .toList());
+            eventPublisher.publishEvent(AtmRepairDataChangedEvent.ofImported(changed));
+        }
+        return AtmRepairImportResultDto.builder()
+                .inserted(inserted)
+                .updated(changed.size() - inserted)
+                .unchanged(batch.size() - changed.size())
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AtmRepairAggregateCheckDto checkAggregates() {
+        return atmRepairAggregateRepository.check();
+    }
+
+    @Override
+    @Transactional
+    public AtmRepairAggregateCheckDto rebuildAggregates() {
+        AtmRepairAggregateCheckDto result = atmRepairAggregateRepository.check();
+        atmRepairAggregateRepository.rebuild();
+        if (!result.isConsistent()) {
+            // Сбрасывает результаты анализа, построенные по расходящимся агрегатам
+            eventPublisher.publishEvent(new AtmRepairAnalysisResetEvent());
         }
+        return result;
     }
 
 }
@@ -0,0 +1,100 @@
+package com.example.atmra.service;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.atmra.dto.AtmRepairFilterDto;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Кэш результатов анализа таблицы ремонтов.
+ * <p>
+ * Ключ результата включает тип анализа, значения {@link AtmRepairConfiguration}, влияющие на
+ * результат, и версию данных. Версия увеличивается при каждом изменении данных после фиксации
+ * транзакции, поэтому результат, вычисленный по старым данным одновременно с изменением, не будет
+ * возвращен из кэша. Кэш очищается при изменении данных, а при загрузке - один раз по окончании
+ * загрузки по {@link AtmRepairAnalysisResetEvent}, а не после каждой порции записей. Изменяемые
+ * условия отбора {@link AtmRepairFilterDto} входят в ключ копией, чтобы изменение переданного
+ * объекта после вызова не меняло ключ сохраненного результата.
+ */
+@Component(AtmRepairAnalysisCache.KEY_GENERATOR)
+@RequiredArgsConstructor
+public class AtmRepairAnalysisCache implements KeyGenerator {
+
+    /** Имя кэша результатов анализа */
+    public static final String CACHE_NAME = "analysis";
+
+    /** Имя генератора ключей кэша результатов анализа */
+    public static final String KEY_GENERATOR = "atmRepairAnalysisCache";
+
+    private final CacheManager cacheManager;
+
+    private final AtmRepairConfiguration atmRepairConfiguration;
+
+    /** Версия данных таблицы ремонтов */
+    private final AtomicLong dataVersion = new AtomicLong();
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return new SimpleKey(
+                method.getName(),
+                dataVersion.get(),
+                atmRepairConfiguration.getCountTopMostCommonCauses(),
+                atmRepairConfiguration.getMaxRowsPerGroup(),
+                atmRepairConfiguration.getCountTopLongestRepairTimes(),
+                atmRepairConfiguration.getCountCauseFailureRecurred(),
+                new SimpleKey(Arrays.stream(params)
+                        .map(param -> param instanceof AtmRepairFilterDto filter
+                                ? filter.toBuilder().build()
+                                : param)
+                        .toArray()));
+    }
+
+    /**
+     * Сбрасывает результаты анализа после изменения данных. Для порции загружаемых записей
+     * только увеличивает версию данных.
+     * 
+     * @param event событие изменения данных
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onDataChanged(AtmRepairDataChangedEvent event) {
+        dataVersion.incrementAndGet();
+        if (!event.imported()) {
+            clear();
+        }
+    }
+
+    /**
+     * Сбрасывает результаты анализа без изменения данных или по окончании загрузки.
+     * 
+     * @param event событие сброса результатов анализа
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAnalysisReset(AtmRepairAnalysisResetEvent event) {
+        dataVersion.incrementAndGet();
+        clear();
+    }
+
+    /**
+     * Очищает кэш результатов анализа.
+     */
+    private void clear() {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.example.atmra.service;
+
+/**
+ * Событие сброса результатов анализа без изменения данных в таблице ремонтов: после пересчета
+ * расходящихся агрегатов или по окончании загрузки файлов, порции которой кэш не очищают.
+ * <p>
+ * Публикуется в транзакции или вне ее, в транзакции результаты анализа сбрасываются после ее
+ * фиксации.
+ */
+public record AtmRepairAnalysisResetEvent() {
+}
@@ -1,17 +1,27 @@
 package com.example.atmra.service;
 
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.atmra.dto.AtmRepairFilterDto;
 import com.example.atmra.dto.AtmRepairGroupDto;
 import com.example.atmra.entity.AtmRepair;
-import jakarta.persistence.EntityManager;
+import com.example.atmra.entity.TimeStorageMode;
+import com.example.atmra.repository.AtmRepairAggregateRepository.ReasonCount;
+import com.example.atmra.repository.AtmRepairRepository;
+import com.example.atmra.repository.AtmRepairSpecifications;
+
+import jakarta.persistence.Query;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Expression;
@@ -19,59 +29,224 @@ import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 
 /**
- * Сервис работы с таблицей ремонтов посредством Сriteria API.
+ * Сервис работы с таблицей ремонтов посредством запросов к БД: самые долгие ремонты отбираются
+ * запросом Criteria API, частые причины и повторные поломки - запросами SQL с оконными функциями
+ * по условиям {@link AtmRepairSpecifications}.
+ * <p>
+ * Без условий отбора наиболее часто встречающиеся причины и повторные поломки читаются из
+ * агрегатов {@link com.example.atmra.repository.AtmRepairAggregateRepository}, которые
+ * обновляются при изменении данных. Агрегаты построены по всей таблице ремонтов, поэтому при
+ * заданных условиях анализ выполняется запросами к отобранным ремонтам.
  */
 @Service
 @ConditionalOnProperty(name = "atm-service.type", havingValue = "cb")
 public class AtmRepairCBService extends AbstractAtmRepairService {
 
-    @Autowired
-    private EntityManager entityManager;
+    /**
+     * Запрос ремонтов, причина которых повторилась на том же АТМ в течение {@code :days} дней
+     * до или после ремонта. Параметры шаблона - выражения количества секунд для дат начала
+     * ремонта, предыдущего и следующего ремонтов в действующем способе хранения дат и условия
+     * отбора ремонтов. Окна строятся по идентификаторам справочников, а результат упорядочен по
+     * значениям АТМ и причины.
+     */
+    private static final String CAUSE_FAILURE_RECURRED_SQL = """
+            SELECT x.*
+            FROM (
+                SELECT r.*,
+                       LAG(r.start_time) OVER w AS previous_start_time,
+                       LEAD(r.start_time) OVER w AS next_start_time
+                FROM repairs r
+                WHERE %4$s
+                WINDOW w AS (PARTITION BY r.atm_ref, r.reason_ref
+                             ORDER BY r.start_time, r.case_id)
+            ) x
+            JOIN repair_atms a ON a.id = x.atm_ref
+            JOIN repair_reasons c ON c.id = x.reason_ref
+            WHERE (%1$s - %2$s) / 86400 <= :days
+               OR (%3$s - %1$s) / 86400 <= :days
+            ORDER BY a.name, c.name, x.start_time, x.case_id
+            """;
+
+    /**
+     * Запрос количества отобранных ремонтов по причинам. Параметр шаблона - условия отбора.
+     * Унарный плюс исключает группировку по индексу {@code idx_reason_ref}: иначе SQLite
+     * просматривает весь индекс вместо диапазона дат по индексу
+     * {@code idx_start_time_reason_ref}, который содержит и причину.
+     */
+    private static final String REASON_COUNTS_SQL = """
+            SELECT x.reason_ref, c.name AS reason, x.repair_count
+            FROM (
+                SELECT r.reason_ref, COUNT(*) AS repair_count
+                FROM repairs r
+                WHERE %s
+                GROUP BY +r.reason_ref
+            ) x
+            JOIN repair_reasons c ON c.id = x.reason_ref
+            ORDER BY x.repair_count DESC, c.name
+            LIMIT :count
+            """;
+
+    /**
+     * Запрос отобранных ремонтов по наиболее часто встречающимся причинам с ограничением
+     * количества по одной причине. Параметры шаблона - запрос количества ремонтов по причинам и
+     * условия отбора. Ремонты упорядочены по убыванию количества ремонтов причины, причине и
+     * идентификатору записи ремонта.
+     */
+    private static final String REPAIRS_BY_TOP_REASONS_SQL = """
+            WITH top_reasons AS (
+            %1$s)
+            SELECT x.*
+            FROM (
+                SELECT r.*,
+                       ROW_NUMBER() OVER (PARTITION BY r.reason_ref ORDER BY r.case_id) AS row_num
+                FROM repairs r
+                WHERE %2$s
+                  AND r.reason_ref IN (SELECT reason_ref FROM top_reasons)
+            ) x
+            JOIN top_reasons t ON t.reason_ref = x.reason_ref
+            WHERE :maxRowsPerGroup <= 0 OR x.row_num <= :maxRowsPerGroup
+            ORDER BY t.repair_count DESC, t.reason, x.case_id
+            """;
 
     @Override
     @Transactional(readOnly = true)
-    public List<Object> findMostCommonCauses() {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
-        Root<AtmRepair> root = query.from(AtmRepair.class);
+    public List<Object> findMostCommonCauses(AtmRepairFilterDto filter) {
+        List<Object> result = new ArrayList<>();
+        streamMostCommonCauses(filter, result::add);
+        return result;
+    }
 
-        query.multiselect(
-                root.get("reason"),
-                cb.count(root));
-        query.groupBy(root.get("reason"));
-        query.orderBy(cb.desc(cb.count(root)));
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Ремонты всех причин читаются потоком одним запросом, соединенным с наиболее часто
+     * встречающимися причинами и упорядоченным по убыванию количества ремонтов причины. Без
+     * условий отбора причины берутся из агрегата количества ремонтов по причинам, иначе -
+     * подсчитываются по отобранным ремонтам в том же запросе.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamMostCommonCauses(AtmRepairFilterDto filter, Consumer<Object> sink) {
+        int maxRowsPerGroup = atmRepairConfiguration.getMaxRowsPerGroup();
+        List<ReasonCount> reasonCounts = findTopReasonCounts(filter);
+        writeGroupedByReason(reasonCounts, filter.isEmpty()
+                ? atmRepairRepository.streamRepairsByTopReasons(reasonCounts.size(),
+                        maxRowsPerGroup)
+                : streamRepairsByTopReasons(filter, maxRowsPerGroup), sink);
+    }
 
-        var reasonCounts = entityManager.createQuery(query)
-                .setMaxResults(atmRepairConfiguration.getCountTopMostCommonCauses())
-                .getResultList();
+    /**
+     * Возвращает поток отобранных ремонтов по наиболее часто встречающимся причинам, найденных
+     * одним запросом. Поток должен читаться и закрываться в транзакции.
+     *
+     * @param filter условия отбора ремонтов
+     * @param maxRowsPerGroup максимальное количество ремонтов по одной причине, если больше 0
+     * @return поток ремонтов, упорядоченный по убыванию количества ремонтов причины и причине
+     */
+    @SuppressWarnings("unchecked")
+    private Stream<AtmRepair> streamRepairsByTopReasons(AtmRepairFilterDto filter,
+            int maxRowsPerGroup) {
+        Map<String, Object> parameters = new HashMap<>();
+        String where = AtmRepairSpecifications.whereSql(filter, TimeStorageMode.active(),
+                atmRepairDictionaryRepository, parameters);
+        Query query = entityManager
+                .createNativeQuery(REPAIRS_BY_TOP_REASONS_SQL.formatted(
+                        REASON_COUNTS_SQL.formatted(where), where), AtmRepair.class)
+                .setParameter("count", atmRepairConfiguration.getCountTopMostCommonCauses())
+                .setParameter("maxRowsPerGroup", maxRowsPerGroup)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, AtmRepairRepository.STREAM_FETCH_SIZE);
+        parameters.forEach(query::setParameter);
+        return query.getResultStream();
+    }
 
-        List<Object> result = new ArrayList<>();
-        for (Object[] row : reasonCounts) {
-            var reason = (String) row[0];
-            var count = (Long) row[1];
+    /**
+     * Передает получателю ремонты, упорядоченные по причинам в порядке причин с количеством
+     * ремонтов, с заголовком группы перед ремонтами каждой причины.
+     * <p>
+     * Причины и ремонты читаются разными запросами. Ремонт, причина которого не входит в
+     * причины или уже пройдена, например измененный между запросами, пропускается, чтобы
+     * переданные получателю группы оставались согласованными.
+     *
+     * @param reasonCounts причины с количеством ремонтов
+     * @param repairs поток ремонтов, упорядоченный по причинам в порядке {@code reasonCounts}
+     * @param sink получатель заголовков групп и данных ремонтов
+     */
+    private void writeGroupedByReason(List<ReasonCount> reasonCounts, Stream<AtmRepair> repairs,
+            Consumer<Object> sink) {
+        Map<String, Integer> groupIndexes = new HashMap<>();
+        for (int i = 0; i < reasonCounts.size(); i++) {
+            groupIndexes.putIfAbsent(reasonCounts.get(i).reason(), i);
+        }
+        // Количество переданных заголовков групп
+        int[] written = new int[1];
+        forEachDetached(repairs, repair -> {
+            Integer index = groupIndexes.get(repair.getReason());
+            if (index == null || index < written[0] - 1) {
+                return;
+            }
+            while (written[0] <= index) {
+                writeGroup(reasonCounts.get(written[0]++), sink);
+            }
+            sink.accept(atmRepairMapper.toDto(repair));
+        });
+        while (written[0] < reasonCounts.size()) {
+            writeGroup(reasonCounts.get(written[0]++), sink);
+        }
+    }
 
-            result.add(AtmRepairGroupDto.builder()
-                    .groupTitle("%s (Всего: %s)".formatted(reason, count))
-                    .build());
+    /**
+     * Передает получателю заголовок группы ремонтов причины.
+     *
+     * @param reasonCount причина с количеством ремонтов
+     * @param sink получатель заголовков групп
+     */
+    private static void writeGroup(ReasonCount reasonCount, Consumer<Object> sink) {
+        sink.accept(AtmRepairGroupDto.mostCommonCause(reasonCount.reason(), reasonCount.count()));
+    }
 
-            var repairs = atmRepairRepository.findRepairsByReason(reason);
-            result.addAll(atmRepairMapper.toDtoList(repairs));
+    /**
+     * Возвращает наиболее часто встречающиеся причины неисправности с количеством ремонтов.
+     * Без условий отбора причины читаются из агрегата количества ремонтов по причинам, без
+     * подсчета по таблице ремонтов.
+     *
+     * @param filter условия отбора ремонтов
+     * @return причины с количеством ремонтов по убыванию количества
+     */
+    private List<ReasonCount> findTopReasonCounts(AtmRepairFilterDto filter) {
+        int count = atmRepairConfiguration.getCountTopMostCommonCauses();
+        if (filter.isEmpty()) {
+            return atmRepairAggregateRepository.findTopReasonCounts(count);
         }
-        return result;
+
+        Map<String, Object> parameters = new HashMap<>();
+        Query query = entityManager
+                .createNativeQuery(REASON_COUNTS_SQL.formatted(AtmRepairSpecifications.whereSql(
+                        filter, TimeStorageMode.active(), atmRepairDictionaryRepository,
+                        parameters)))
+                .setParameter("count", count);
+        parameters.forEach(query::setParameter);
+        List<?> rows = query.getResultList();
+        return rows.stream()
+                .map(Object[].class::cast)
+                .map(row -> new ReasonCount((String) row[1], ((Number) row[2]).longValue()))
+                .toList();
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Object> findLongestRepairTimes() {
+    public List<Object> findLongestRepairTimes(AtmRepairFilterDto filter) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<AtmRepair> query = cb.createQuery(AtmRepair.class);
         Root<AtmRepair> root = query.from(AtmRepair.class);
 
-        Expression<Long> durationInHours = cb.diff(
-                cb.function("julianday", Long.class, root.get("endTime")),
-                cb.function("julianday", Long.class, root.get("startTime")));
-        query.select(root);
-        query.orderBy(cb.desc(durationInHours));
+        // Сортировка по сохраненному времени ремонта выполняется по индексу idx_duration_seconds
+        Expression<Long> durationSeconds = root.get("durationSeconds");
+        Predicate matches = AtmRepairSpecifications.matches(filter, atmRepairDictionaryRepository)
+                .toPredicate(root, query, cb);
+        query.select(root).where(matches == null
+                ? cb.isNotNull(durationSeconds)
+                : cb.and(cb.isNotNull(durationSeconds), matches));
+        query.orderBy(cb.desc(durationSeconds));
 
         var longestRepairs = entityManager.createQuery(query)
                 .setMaxResults(atmRepairConfiguration.getCountTopLongestRepairTimes())
@@ -79,11 +254,9 @@ public class AtmRepairCBService extends AbstractAtmRepairService {
 
         List<Object> result = new ArrayList<>();
         for (AtmRepair repair : longestRepairs) {
-            long hours = ChronoUnit.HOURS.between(repair.getStartTime(), repair.getEndTime());
+            long hours = repair.getDurationSeconds() / 3600;
 
-            result.add(AtmRepairGroupDto.builder()
-                    .groupTitle("%s. Время ремонта %d часов".formatted(repair.getReason(), hours))
-                    .build());
+            result.add(AtmRepairGroupDto.longestRepair(repair.getReason(), hours));
             result.add(atmRepairMapper.toDto(repair));
         }
         return result;
@@ -91,89 +264,85 @@ public class AtmRepairCBService extends AbstractAtmRepairService {
 
     @Override
     @Transactional(readOnly = true)
-    public List<Object> findCauseFailureRecurred() {
-        // Сначала получаем все комбинации ATM+причина, которые повторяются
-        var recurringCombinations = findRecurringAtmReasonCombinations();
-
+    public List<Object> findCauseFailureRecurred(AtmRepairFilterDto filter) {
         List<Object> result = new ArrayList<>();
-        for (Object[] combination : recurringCombinations) {
-            var atmId = (String) combination[0];
-            var reason = (String) combination[1];
-
-            var repairs = findRepairsByAtmAndReasonWithRecurrence(atmId, reason);
-            if (!repairs.isEmpty()) {
-                result.add(AtmRepairGroupDto.builder()
-                        .groupTitle("АТМ: %s. %s".formatted(atmId, reason))
-                        .build());
-                result.addAll(atmRepairMapper.toDtoList(repairs));
-            }
-        }
+        streamCauseFailureRecurred(filter, result::add);
         return result;
     }
 
     /**
-     * Находит комбинации ATM + причина, которые повторяются
-     *
-     * @return список комбинации ATM + причина, которые повторяются
+     * {@inheritDoc}
+     * <p>
+     * Без условий отбора ремонты читаются одним запросом по агрегату повторных поломок,
+     * упорядоченному по АТМ, причине и дате начала ремонта, иначе - запросом с оконными
+     * функциями по отобранным ремонтам.
      */
-    private List<Object[]> findRecurringAtmReasonCombinations() {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
-        Root<AtmRepair> root = query.from(AtmRepair.class);
-        query.multiselect(
-                root.get("atmId"),
-                root.get("reason"),
-                cb.count(root));
-        query.groupBy(root.get("atmId"), root.get("reason"));
-        query.having(cb.gt(cb.count(root), 1));
-        return entityManager.createQuery(query).getResultList();
+    @Override
+    @Transactional(readOnly = true)
+    public void streamCauseFailureRecurred(AtmRepairFilterDto filter, Consumer<Object> sink) {
+        writeGroupedByAtmAndReason(filter.isEmpty()
+                ? atmRepairRepository.streamRecurrences()
+                : streamCauseFailureRecurredByWindow(filter), sink);
     }
 
     /**
-     * Находит ремонты по ATM и причине с проверкой повторяемости
+     * Возвращает поток ремонтов, причина которых повторилась, найденных одним запросом с
+     * {@code LAG}/{@code LEAD} по отобранным ремонтам. Условия отбора выполняются до оконных
+     * функций: по дате начала ремонта - по индексу {@code idx_start_time_reason_ref}, по АТМ -
+     * по индексу {@code idx_atm_reason_start_time} в порядке окна. Поток должен читаться и
+     * закрываться в транзакции.
      *
-     * @param atmId идентификато АТМ
-     * @param reason причина ремонта
-     * @return список ремонтов
+     * @param filter условия отбора ремонтов
+     * @return поток ремонтов, упорядоченный по АТМ, причине и дате начала ремонта
      */
-    private List<AtmRepair> findRepairsByAtmAndReasonWithRecurrence(String atmId, String reason) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<AtmRepair> query = cb.createQuery(AtmRepair.class);
-        Root<AtmRepair> root = query.from(AtmRepair.class);
-
-        Predicate conditions = cb.and(
-                cb.equal(root.get("atmId"), atmId),
-                cb.equal(root.get("reason"), reason));
-
-        query.select(root).where(conditions);
-        query.orderBy(cb.asc(root.get("startTime")));
-
-        List<AtmRepair> allRepairs = entityManager.createQuery(query).getResultList();
-        return filterRepairsByRecurrence(allRepairs);
+    @SuppressWarnings("unchecked")
+    protected Stream<AtmRepair> streamCauseFailureRecurredByWindow(AtmRepairFilterDto filter) {
+        TimeStorageMode mode = TimeStorageMode.active();
+        Map<String, Object> parameters = new HashMap<>();
+        Query query = entityManager
+                .createNativeQuery(CAUSE_FAILURE_RECURRED_SQL.formatted(
+                        mode.epochSecondsSql("start_time"),
+                        mode.epochSecondsSql("previous_start_time"),
+                        mode.epochSecondsSql("next_start_time"),
+                        AtmRepairSpecifications.whereSql(filter, mode,
+                                atmRepairDictionaryRepository, parameters)),
+                        AtmRepair.class)
+                .setParameter("days", atmRepairConfiguration.getCountCauseFailureRecurred())
+                .setHint(HibernateHints.HINT_FETCH_SIZE,
+                        AtmRepairRepository.STREAM_FETCH_SIZE);
+        parameters.forEach(query::setParameter);
+        return query.getResultStream();
     }
 
     /**
-     * Фильтрует ремонты по критерию повторяемости
+     * Передает получателю ремонты, упорядоченные по АТМ и причине, с заголовком группы перед
+     * первым ремонтом каждой комбинации ATM + причина.
      *
-     * @param repairs список ремонтов
-     * @return отфильтрованный список ремонтов
+     * @param repairs поток ремонтов, упорядоченный по АТМ и причине
+     * @param sink получатель заголовков групп и данных ремонтов
      */
-    private List<AtmRepair> filterRepairsByRecurrence(List<AtmRepair> repairs) {
-        List<AtmRepair> recurring = new ArrayList<>();
-        int countCauseFailureRecurred = atmRepairConfiguration.getCountCauseFailureRecurred();
-        int size = repairs.size();
-        for (int i = 1; i < size; i++) {
-            var previous = repairs.get(i - 1);
-            var current = repairs.get(i);
-            if (ChronoUnit.DAYS.between(previous.getStartTime(),
-                    current.getStartTime()) <= countCauseFailureRecurred) {
-                if (recurring.isEmpty() || (recurring.getLast() != previous)) {
-                    recurring.add(previous);
-                }
-                recurring.add(current);
+    protected void writeGroupedByAtmAndReason(Stream<AtmRepair> repairs, Consumer<Object> sink) {
+        AtmRepair[] previous = new AtmRepair[1];
+        forEachDetached(repairs, repair -> {
+            if (previous[0] == null || !isSameAtmAndReason(previous[0], repair)) {
+                sink.accept(AtmRepairGroupDto.causeFailureRecurred(repair.getAtmId(),
+                        repair.getReason()));
             }
-        }
-        return recurring;
+            sink.accept(atmRepairMapper.toDto(repair));
+            previous[0] = repair;
+        });
+    }
+
+    /**
+     * Проверяет, что ремонты относятся к одной комбинации ATM + причина.
+     *
+     * @param first первый ремонт
+     * @param second второй ремонт
+     * @return {@code true}, если АТМ и причина ремонтов совпадают
+     */
+    private static boolean isSameAtmAndReason(AtmRepair first, AtmRepair second) {
+        return Objects.equals(first.getAtmId(), second.getAtmId())
+                && Objects.equals(first.getReason(), second.getReason());
     }
 
 }
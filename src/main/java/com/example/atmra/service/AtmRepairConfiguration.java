@@ -1,7 +1,14 @@
 package com.example.atmra.service;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.example.atmra.entity.TimeStorageMode;
+import com.example.atmra.repository.SqliteProfile;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -18,10 +25,96 @@ public class AtmRepairConfiguration {
     /** Количество наиболее часто встречающихся причин неисправности */
     private int countTopMostCommonCauses = 3;
 
+    /**
+     * Максимальное количество ремонтов, возвращаемых по одной из наиболее часто встречающихся
+     * причин неисправности. 0 - без ограничения
+     */
+    private int maxRowsPerGroup = 0;
+
     /** Количество наиболее долгих ремонта */
     private int countTopLongestRepairTimes = 3;
 
     /** Количество дней за которые причина поломки повторилась */
     private int countCauseFailureRecurred = 15;
 
+    /**
+     * Количество потоков поиска повторных поломок в сервисе обработки данных в коде. 0 - по
+     * количеству процессоров, 1 - в потоке запроса
+     */
+    private int recurrenceParallelism = 0;
+
+    /** Количество записей, сохраняемых за один раз при загрузке файла */
+    private int uploadChunkSize = 1000;
+
+    /** Количество записей в пакете JDBC при сохранении загруженных данных */
+    private int jdbcBatchSize = 500;
+
+    /**
+     * Признак пропуска при загрузке записей, совпадающих с сохраненными по хэшу содержимого
+     */
+    private boolean deltaImport = true;
+
+    /** Количество потоков загрузки файлов */
+    private int uploadThreads = 2;
+
+    /** Количество потоков разбора листов загружаемых файлов, 0 - по количеству процессоров */
+    private int uploadParseThreads = 0;
+
+    /** Количество файлов, ожидающих загрузки */
+    private int uploadQueueCapacity = 16;
+
+    /** Время хранения состояния завершенной задачи загрузки */
+    private Duration uploadJobTtl = Duration.ofHours(1);
+
+    /** Каталог импорта файлов, {@code null} - файлы загружаются только через HTTP */
+    private Path importDir;
+
+    /** Период просмотра каталога импорта */
+    private Duration importPollInterval = Duration.ofMinutes(1);
+
+    /** Количество записей на странице данных ремонтов по умолчанию */
+    private int pageSize = 100;
+
+    /** Максимальное количество записей на странице данных ремонтов */
+    private int maxPageSize = 1000;
+
+    /** Способ хранения даты и времени в БД */
+    private TimeStorageMode timeStorage = TimeStorageMode.ISO_TEXT;
+
+    /**
+     * Время выполнения запроса Hibernate, после которого запрос записывается в журнал
+     * {@code org.hibernate.SQL_SLOW}. 0 - не записывать
+     */
+    private Duration slowQueryThreshold = Duration.ofMillis(500);
+
+    /** Признак трассировки запросов SQL при запуске приложения */
+    private boolean sqlTraceEnabled = false;
+
+    /** При трассировке записывается в журнал каждый N-й оператор SQL, 0 - не записывать */
+    private int sqlTraceSampleRate = 100;
+
+    /** Режим работы с БД SQLite */
+    private SqliteProfile sqliteProfile = SqliteProfile.DEFAULT;
+
+    /** Размер части файла БД, отображаемой в память ({@code mmap_size}), в режиме performance */
+    private DataSize sqliteMmapSize = DataSize.ofMegabytes(256);
+
+    /** Размер кэша страниц соединения ({@code cache_size}) в режиме performance */
+    private DataSize sqliteCacheSize = DataSize.ofMegabytes(32);
+
+    /** Время ожидания блокировки БД ({@code busy_timeout}) в режиме performance */
+    private Duration sqliteBusyTimeout = Duration.ofSeconds(5);
+
+    /** Количество соединений чтения в режиме performance */
+    private int sqliteReadPoolSize = 4;
+
+    /** Количество соединений чтения для потоковых ответов в режиме performance */
+    private int sqliteStreamPoolSize = 2;
+
+    /**
+     * Время ожидания соединения записи в режиме performance, 0 - ожидать без ограничения.
+     * Минимальное значение - 250 мс
+     */
+    private Duration sqliteWriteTimeout = Duration.ZERO;
+
 }
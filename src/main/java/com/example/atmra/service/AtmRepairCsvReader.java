@@ -0,0 +1,496 @@
+package com.example.atmra.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Читатель CSV файла с данными ремонтов, в том числе сжатого gzip.
+ * <p>
+ * Колонки следуют в том же порядке, что и в XLSX файле, первая строка - заголовок. Разделитель
+ * ({@code ;}, {@code ,} или табуляция) определяется по заголовку, значения в кавычках
+ * разбираются по RFC 4180. Файл читается в кодировке UTF-8.
+ * <p>
+ * Файл без сжатия отображается в память окнами по {@value #WINDOW_SIZE} байт, сжатый файл
+ * распаковывается в буфер. Записи разбираются непосредственно из буфера: идентификатор ремонта
+ * и даты - без создания строк, строки создаются только для текстовых колонок.
+ */
+class AtmRepairCsvReader {
+
+    /** Размер окна отображения файла в память */
+    static final int WINDOW_SIZE = 64 << 20;
+
+    /** Начальный размер буфера распакованных данных */
+    static final int BUFFER_SIZE = 1 << 20;
+
+    /** Возможные разделители колонок по убыванию приоритета */
+    private static final byte[] SEPARATORS = { ';', ',', '\t' };
+
+    /** Номера колонок дат */
+    private static final int START_TIME_COLUMN = 3;
+
+    private static final int END_TIME_COLUMN = 4;
+
+    /** Получатель значений колонок строки */
+    private final Consumer<Object[]> rowConsumer;
+
+    /** Разделитель колонок, 0 - не определен */
+    private byte separator;
+
+    /** Номер текущей записи (с 1) */
+    private long recordNum;
+
+    /** Начало и конец значений колонок текущей записи в буфере */
+    private final int[] fieldStart = new int[AtmRepairXlsxReader.COLUMN_COUNT];
+
+    private final int[] fieldEnd = new int[AtmRepairXlsxReader.COLUMN_COUNT];
+
+    /** Признаки значений в кавычках */
+    private final boolean[] fieldQuoted = new boolean[AtmRepairXlsxReader.COLUMN_COUNT];
+
+    /** Буфер байтов текстовых значений */
+    private byte[] bytes = new byte[256];
+
+    private AtmRepairCsvReader(Consumer<Object[]> rowConsumer) {
+        this.rowConsumer = rowConsumer;
+    }
+
+    /**
+     * Читает CSV файл и передает значения колонок каждой строки, кроме заголовка.
+     * <p>
+     * Значения соответствуют значениям {@link AtmRepairXlsxReader#read}: {@link Long} для
+     * идентификатора ремонта, {@link LocalDateTime} для дат, строка для остальных колонок,
+     * {@code null} для пустых значений. Строки без значений пропускаются.
+     * 
+     * @param file CSV файл или CSV файл, сжатый gzip
+     * @param rowConsumer получатель значений колонок строки
+     * @throws IOException в случае ошибки чтения из файла, неверного значения или записи без
+     *             идентификатора ремонта
+     */
+    static void read(File file, Consumer<Object[]> rowConsumer) throws IOException {
+        AtmRepairCsvReader reader = new AtmRepairCsvReader(rowConsumer);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (isGzip(channel)) {
+                reader.readGzip(channel);
+            } else {
+                reader.readMapped(channel);
+            }
+        }
+    }
+
+    /**
+     * Возвращает признак файла, сжатого gzip.
+     * 
+     * @param channel канал файла
+     * @return признак сжатого файла
+     * @throws IOException в случае ошибки чтения из файла
+     */
+    private static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        channel.read(magic, 0);
+        return magic.position() == 2 && (magic.get(0) & 0xFF) == 0x1F
+                && (magic.get(1) & 0xFF) == 0x8B;
+    }
+
+    /**
+     * Читает файл без сжатия, отображая его в память окнами.
+     * 
+     * @param channel канал файла
+     * @throws IOException в случае ошибки чтения из файла или неверного значения
+     */
+    private void readMapped(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        while (offset < size) {
+            int length = (int) Math.min(WINDOW_SIZE, size - offset);
+            boolean last = offset + length == size;
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            int consumed = parse(buffer, offset == 0 ? skipBom(buffer, length) : 0, length,
+                    last);
+            if (last) {
+                break;
+            }
+            if (consumed == 0) {
+                throw error("запись длиннее " + WINDOW_SIZE + " байт");
+            }
+            offset += consumed;
+        }
+    }
+
+    /**
+     * Читает файл, сжатый gzip, распаковывая его в буфер.
+     * 
+     * @param channel канал файла
+     * @throws IOException в случае ошибки чтения из файла или неверного значения
+     */
+    private void readGzip(FileChannel channel) throws IOException {
+        try (InputStream in = new GZIPInputStream(Channels.newInputStream(channel), 1 << 16)) {
+            byte[] data = new byte[BUFFER_SIZE];
+            int length = 0;
+            boolean first = true;
+            while (true) {
+                length += in.readNBytes(data, length, data.length - length);
+                boolean last = length < data.length;
+                ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+                int consumed = parse(buffer, first ? skipBom(buffer, length) : 0, length, last);
+                first = false;
+                if (last) {
+                    break;
+                }
+                if (consumed == 0) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                } else {
+                    System.arraycopy(data, consumed, data, 0, length - consumed);
+                    length -= consumed;
+                }
+            }
+        }
+    }
+
+    /**
+     * Возвращает позицию после метки порядка байтов UTF-8 в начале файла.
+     * 
+     * @param buffer буфер с началом файла
+     * @param limit размер данных в буфере
+     * @return 3, если файл начинается с метки порядка байтов, иначе 0
+     */
+    private static int skipBom(ByteBuffer buffer, int limit) {
+        return limit >= 3 && (buffer.get(0) & 0xFF) == 0xEF && (buffer.get(1) & 0xFF) == 0xBB
+                && (buffer.get(2) & 0xFF) == 0xBF ? 3 : 0;
+    }
+
+    /**
+     * Разбирает полные записи буфера.
+     * 
+     * @param buffer буфер
+     * @param from позиция начала первой записи
+     * @param limit размер данных в буфере
+     * @param last признак последнего буфера файла: последняя запись может не заканчиваться
+     *            переводом строки
+     * @return позиция начала первой неполной записи, {@code limit} для последнего буфера
+     * @throws IOException в случае неверного значения
+     */
+    private int parse(ByteBuffer buffer, int from, int limit, boolean last) throws IOException {
+        int pos = from;
+        if (separator == 0) {
+            int lineEnd = pos;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == limit && !last) {
+                return pos;
+            }
+            separator = detectSeparator(buffer, pos, lineEnd);
+        }
+        while (pos < limit) {
+            int end = parseRecord(buffer, pos, limit, last);
+            if (end < 0) {
+                break;
+            }
+            pos = end;
+        }
+        return pos;
+    }
+
+    /**
+     * Определяет разделитель колонок по строке заголовка: наиболее частый из
+     * {@link #SEPARATORS}.
+     */
+    private static byte detectSeparator(ByteBuffer buffer, int from, int to) {
+        int[] counts = new int[SEPARATORS.length];
+        for (int p = from; p < to; p++) {
+            byte b = buffer.get(p);
+            for (int i = 0; i < SEPARATORS.length; i++) {
+                if (b == SEPARATORS[i]) {
+                    counts[i]++;
+                }
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < counts.length; i++) {
+            if (counts[i] > counts[best]) {
+                best = i;
+            }
+        }
+        return SEPARATORS[best];
+    }
+
+    /**
+     * Разбирает запись, начинающуюся с позиции, и передает ее значения получателю.
+     * 
+     * @param buffer буфер
+     * @param pos позиция начала записи
+     * @param limit размер данных в буфере
+     * @param last признак последнего буфера файла
+     * @return позиция начала следующей записи или -1, если запись не закончена в буфере
+     * @throws IOException в случае неверного значения
+     */
+    private int parseRecord(ByteBuffer buffer, int pos, int limit, boolean last)
+            throws IOException {
+        int p = pos;
+        int column = 0;
+        while (true) {
+            int start;
+            int end;
+            boolean quoted = p < limit && buffer.get(p) == '"';
+            if (quoted) {
+                start = ++p;
+                while (true) {
+                    if (p >= limit) {
+                        if (last) {
+                            recordNum++;
+                            throw error("не закрыты кавычки");
+                        }
+                        return -1;
+                    }
+                    if (buffer.get(p) == '"') {
+                        if (p + 1 >= limit && !last) {
+                            return -1;
+                        }
+                        if (p + 1 < limit && buffer.get(p + 1) == '"') {
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    p++;
+                }
+                end = p++;
+            } else {
+                start = p;
+                while (p < limit) {
+                    byte b = buffer.get(p);
+                    if (b == separator || b == '\n' || b == '\r') {
+                        break;
+                    }
+                    p++;
+                }
+                end = p;
+            }
+            if (column < fieldStart.length) {
+                fieldStart[column] = start;
+                fieldEnd[column] = end;
+                fieldQuoted[column] = quoted;
+            }
+            column++;
+
+            if (p >= limit) {
+                if (!last) {
+                    return -1;
+                }
+                emit(buffer, column);
+                return limit;
+            }
+            byte b = buffer.get(p);
+            if (b == separator) {
+                p++;
+            } else if (b == '\n') {
+                emit(buffer, column);
+                return p + 1;
+            } else if (b == '\r') {
+                if (p + 1 >= limit && !last) {
+                    return -1;
+                }
+                emit(buffer, column);
+                return p + 1 < limit && buffer.get(p + 1) == '\n' ? p + 2 : p + 1;
+            } else {
+                recordNum++;
+                throw error("символ после закрывающей кавычки в колонке " + column);
+            }
+        }
+    }
+
+    /**
+     * Передает получателю значения разобранной записи. Заголовок и строки без значений
+     * пропускаются.
+     * 
+     * @param buffer буфер
+     * @param columns количество колонок записи
+     * @throws IOException в случае неверного значения или записи без идентификатора ремонта
+     */
+    private void emit(ByteBuffer buffer, int columns) throws IOException {
+        if (recordNum++ == 0
+                || columns == 1 && !fieldQuoted[0] && fieldStart[0] == fieldEnd[0]) {
+            return;
+        }
+        Object[] values = new Object[AtmRepairXlsxReader.COLUMN_COUNT];
+        for (int i = 0; i < Math.min(columns, values.length); i++) {
+            values[i] = switch (i) {
+            case 0 -> parseLong(buffer, fieldStart[i], fieldEnd[i], i);
+            case START_TIME_COLUMN, END_TIME_COLUMN ->
+                    parseDateTime(buffer, fieldStart[i], fieldEnd[i], i);
+            default -> toString(buffer, fieldStart[i], fieldEnd[i], fieldQuoted[i]);
+            };
+        }
+        if (AtmRepairXlsxReader.isBlank(values)) {
+            return;
+        }
+        if (values[0] == null) {
+            throw error("не задан идентификатор ремонта");
+        }
+        rowConsumer.accept(values);
+    }
+
+    /**
+     * Возвращает текстовое значение, заменяя удвоенные кавычки значения в кавычках.
+     */
+    private String toString(ByteBuffer buffer, int start, int end, boolean quoted) {
+        int length = end - start;
+        if (length == 0) {
+            return null;
+        }
+        if (bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+        if (!quoted) {
+            buffer.get(start, bytes, 0, length);
+        } else {
+            length = 0;
+            for (int p = start; p < end; p++) {
+                byte b = buffer.get(p);
+                bytes[length++] = b;
+                if (b == '"') {
+                    p++;
+                }
+            }
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Возвращает целое число из цифр значения без учета пробелов по краям.
+     */
+    private Long parseLong(ByteBuffer buffer, int start, int end, int column)
+            throws IOException {
+        while (start < end && buffer.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        if (end - start > 18) {
+            throw error("неверное число в колонке " + (column + 1));
+        }
+        long value = 0;
+        for (int p = start; p < end; p++) {
+            int digit = buffer.get(p) - '0';
+            if (digit < 0 || digit > 9) {
+                throw error("неверное число в колонке " + (column + 1));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Возвращает дату и время в формате {@code yyyy-MM-dd HH:mm[:ss[.SSS]]} или
+     * {@code dd.MM.yyyy HH:mm[:ss[.SSS]]}, вместо пробела допускается {@code T}, время может
+     * отсутствовать.
+     */
+    private LocalDateTime parseDateTime(ByteBuffer buffer, int start, int end, int column)
+            throws IOException {
+        while (start < end && buffer.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && buffer.get(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return null;
+        }
+        int length = end - start;
+        int year;
+        int month;
+        int day;
+        if (length >= 10 && buffer.get(start + 4) == '-' && buffer.get(start + 7) == '-') {
+            year = digits(buffer, start, 4);
+            month = digits(buffer, start + 5, 2);
+            day = digits(buffer, start + 8, 2);
+        } else if (length >= 10 && buffer.get(start + 2) == '.'
+                && buffer.get(start + 5) == '.') {
+            day = digits(buffer, start, 2);
+            month = digits(buffer, start + 3, 2);
+            year = digits(buffer, start + 6, 4);
+        } else {
+            throw error("неверная дата в колонке " + (column + 1));
+        }
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        int nano = 0;
+        int p = start + 10;
+        if (p < end) {
+            byte b = buffer.get(p);
+            if (b != ' ' && b != 'T' || end - p < 6 || buffer.get(p + 3) != ':') {
+                throw error("неверная дата в колонке " + (column + 1));
+            }
+            hour = digits(buffer, p + 1, 2);
+            minute = digits(buffer, p + 4, 2);
+            p += 6;
+            if (p < end) {
+                if (end - p < 3 || buffer.get(p) != ':') {
+                    throw error("неверная дата в колонке " + (column + 1));
+                }
+                second = digits(buffer, p + 1, 2);
+                p += 3;
+            }
+            if (p < end) {
+                if (buffer.get(p) != '.' || end - p < 2 || end - p > 10) {
+                    throw error("неверная дата в колонке " + (column + 1));
+                }
+                int fraction = end - p - 1;
+                nano = digits(buffer, p + 1, fraction);
+                for (int i = fraction; i < 9 && nano >= 0; i++) {
+                    nano *= 10;
+                }
+            }
+        }
+        if ((year | month | day | hour | minute | second | nano) < 0) {
+            throw error("неверная дата в колонке " + (column + 1));
+        }
+        try {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        } catch (DateTimeException e) {
+            throw error("неверная дата в колонке " + (column + 1) + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Возвращает число из заданного количества цифр или -1, если встретился другой символ.
+     */
+    private static int digits(ByteBuffer buffer, int start, int count) {
+        int value = 0;
+        for (int p = start; p < start + count; p++) {
+            int digit = buffer.get(p) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Возвращает исключение с номером текущей записи.
+     * 
+     * @param message текст ошибки
+     * @return исключение
+     */
+    private IOException error(String message) {
+        return new IOException("Ошибка чтения CSV файла: запись " + recordNum + ", " + message);
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.example.atmra.service;
+
+import java.util.List;
+
+import com.example.atmra.dto.AtmRepairDto;
+
+/**
+ * Событие изменения данных в таблице ремонтов.
+ * <p>
+ * Публикуется в транзакции изменения данных.
+ * 
+ * @param changed добавленные или обновленные записи
+ * @param cleared признак удаления всех записей
+ * @param imported признак порции загружаемых записей: по окончании загрузки публикуется
+ *            {@link AtmRepairAnalysisResetEvent}
+ */
+public record AtmRepairDataChangedEvent(List<AtmRepairDto> changed, boolean cleared,
+        boolean imported) {
+
+    /**
+     * Возвращает событие добавления или обновления записей.
+     * 
+     * @param changed добавленные или обновленные записи
+     * @return событие
+     */
+    public static AtmRepairDataChangedEvent ofChanged(List<AtmRepairDto> changed) {
+        return new AtmRepairDataChangedEvent(List.copyOf(changed), false, false);
+    }
+
+    /**
+     * Возвращает событие добавления или обновления порции загружаемых записей.
+     * 
+     * @param changed добавленные или обновленные записи
+     * @return событие
+     */
+    public static AtmRepairDataChangedEvent ofImported(List<AtmRepairDto> changed) {
+        return new AtmRepairDataChangedEvent(List.copyOf(changed), false, true);
+    }
+
+    /**
+     * Возвращает событие удаления всех записей.
+     * 
+     * @return событие
+     */
+    public static AtmRepairDataChangedEvent ofCleared() {
+        return new AtmRepairDataChangedEvent(List.of(), true, false);
+    }
+
+}
@@ -1,58 +1,425 @@
 package com.example.atmra.service;
 
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 
+import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairImportResultDto;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 /**
- * Сервис загрузки данных из XLS файла в таблицу ремонтов.
+ * Сервис загрузки данных из XLS, XLSX и CSV файлов в таблицу ремонтов.
+ * <p>
+ * Загружаются все листы всех файлов, файлы .xls, .xlsx, .csv и .csv.gz из ZIP архивов
+ * извлекаются во временные файлы. Листы XLSX, файлы XLS и CSV разбираются параллельно на пуле из
+ * {@link AtmRepairConfiguration#getUploadParseThreads()} потоков и передают порции записей через
+ * ограниченную очередь писателю - потоку, вызвавшему {@code saveData}. Писатели всех
+ * одновременных загрузок (заданий загрузки и каталога импорта) сохраняют порции под общей
+ * блокировкой в порядке очереди, поэтому SQLite, допускающий одну пишущую транзакцию, не
+ * получает параллельных транзакций записи и не возвращает {@code SQLITE_BUSY}.
+ * <p>
+ * Регистрирует метрики загрузки с меткой {@code format} ({@code xlsx}, {@code xls} или
+ * {@code csv}, у {@value #UPLOAD_TIMER} и {@value #PERSIST_TIMER} - {@code mixed} для загрузки
+ * файлов разных форматов):
+ * {@value #UPLOAD_TIMER} - время загрузки файлов, {@value #PARSE_TIMER} - время разбора листа
+ * без ожидания писателя, {@value #PERSIST_TIMER} - время сохранения порций записей,
+ * {@value #ROWS_COUNTER} - количество загруженных строк.
  */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class AtmRepairFileService {
 
+    /** Время загрузки файла */
+    public static final String UPLOAD_TIMER = "atm.repairs.upload";
+
+    /** Время разбора файла без сохранения записей */
+    public static final String PARSE_TIMER = "atm.repairs.upload.parse";
+
+    /** Время сохранения порций записей */
+    public static final String PERSIST_TIMER = "atm.repairs.upload.persist";
+
+    /** Количество загруженных строк */
+    public static final String ROWS_COUNTER = "atm.repairs.upload.rows";
+
     private final IAtmRepairService service;
 
+    private final AtmRepairConfiguration atmRepairConfiguration;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Исполнитель разбора листов */
+    private final ExecutorService parseExecutor;
+
+    /** Количество потоков разбора листов */
+    private final int parseThreads;
+
+    /** Блокировка сохранения порций записей, общая для всех загрузок, в порядке очереди */
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+
     /**
-     * Сохраняет данные о ремонтах из XLS файла и возвращает количество загруженных записей.
+     * Загружаемый файл.
      * 
-     * @param file XLS файл
-     * @return количество загруженных записей
+     * @param name имя файла для сообщений об ошибках, метрик и определения формата
+     * @param file XLS, XLSX, CSV, CSV.GZ или ZIP файл с данными
+     */
+    public record Source(String name, File file) {
+    }
+
+    /**
+     * Разбираемая часть файла: лист XLSX файла, все листы XLS файла или CSV файл.
+     * 
+     * @param name имя файла и листа для сообщений об ошибках
+     * @param file файл
+     * @param format формат файла, {@code xlsx}, {@code xls} или {@code csv}
+     * @param sheetIndex номер листа XLSX файла
+     */
+    private record SheetTask(String name, File file, String format, int sheetIndex) {
+    }
+
+    public AtmRepairFileService(IAtmRepairService service,
+            AtmRepairConfiguration atmRepairConfiguration, MeterRegistry meterRegistry,
+            ApplicationEventPublisher eventPublisher) {
+        this.service = service;
+        this.atmRepairConfiguration = atmRepairConfiguration;
+        this.meterRegistry = meterRegistry;
+        this.eventPublisher = eventPublisher;
+        int threads = atmRepairConfiguration.getUploadParseThreads();
+        this.parseThreads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.parseExecutor = Executors.newFixedThreadPool(parseThreads,
+                Thread.ofPlatform().name("atm-upload-parse-", 0).daemon().factory());
+    }
+
+    /**
+     * Сохраняет данные о ремонтах из XLS, XLSX или CSV файла и возвращает количество
+     * загруженных записей.
+     * <p>
+     * XLSX файл читается потоково, данные сохраняются порциями по
+     * {@link AtmRepairConfiguration#getUploadChunkSize()} записей.
+     * 
+     * @param file XLS, XLSX или CSV файл, формат CSV определяется по расширению
+     * @return количество добавленных и обновленных записей
+     * @throws IOException в случае ошибки чтения из файла
+     */
+    public AtmRepairImportResultDto saveData(File file) throws IOException {
+        return saveData(file, AtmRepairImportProgress.NONE);
+    }
+
+    /**
+     * Сохраняет данные о ремонтах из XLS, XLSX или CSV файла, сообщая о ходе загрузки, и
+     * возвращает количество загруженных записей.
+     * 
+     * @param file XLS, XLSX или CSV файл, формат CSV определяется по расширению
+     * @param progress получатель сведений о ходе загрузки
+     * @return количество добавленных и обновленных записей
+     * @throws IOException в случае ошибки чтения из файла
+     */
+    public AtmRepairImportResultDto saveData(File file, AtmRepairImportProgress progress)
+            throws IOException {
+        return saveData(List.of(new Source(file.getName(), file)), progress);
+    }
+
+    /**
+     * Сохраняет данные о ремонтах со всех листов XLS и XLSX файлов, CSV файлов и файлов из ZIP
+     * архивов, сообщая о ходе загрузки, и возвращает количество загруженных записей.
+     * <p>
+     * Ошибка разбора листа не прерывает разбор остальных листов: она передается в
+     * {@link AtmRepairImportProgress#sheetFailed(String, String)} и в журнал, а после сохранения
+     * данных остальных листов выбрасывается {@link IOException} с количеством таких листов.
+     * <p>
+     * По окончании загрузки, в том числе с ошибкой, публикуется
+     * {@link AtmRepairAnalysisResetEvent}: порции загружаемых записей кэш результатов анализа не
+     * очищают.
+     * 
+     * @param sources загружаемые файлы
+     * @param progress получатель сведений о ходе загрузки
+     * @return количество добавленных и обновленных записей
+     * @throws IOException в случае ошибки чтения из файлов
+     */
+    public AtmRepairImportResultDto saveData(List<Source> sources,
+            AtmRepairImportProgress progress) throws IOException {
+        List<File> extracted = new ArrayList<>();
+        try {
+            List<SheetTask> sheets = new ArrayList<>();
+            for (Source source : sources) {
+                addSheets(source, sheets, extracted);
+            }
+            return saveSheets(sheets, progress);
+        } finally {
+            eventPublisher.publishEvent(new AtmRepairAnalysisResetEvent());
+            for (File file : extracted) {
+                try {
+                    Files.deleteIfExists(file.toPath());
+                } catch (IOException e) {
+                    log.warn("Не удалось удалить временный файл {}", file, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Добавляет разбираемые части файла, файлы ZIP архива извлекаются во временные файлы.
+     * 
+     * @param source загружаемый файл
+     * @param sheets разбираемые части файлов
+     * @param extracted временные файлы, извлеченные из ZIP архивов
      * @throws IOException в случае ошибки чтения из файла
      */
-    public int saveData(MultipartFile file) throws IOException {
-        List<AtmRepairDto> data = new ArrayList<>();
+    private void addSheets(Source source, List<SheetTask> sheets, List<File> extracted)
+            throws IOException {
+        if (hasExtension(source.name(), ".zip")) {
+            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(
+                    source.file().toPath()))) {
+                for (ZipEntry entry; (entry = zip.getNextEntry()) != null;) {
+                    String name = entry.getName();
+                    if (entry.isDirectory() || !isDataFile(name)) {
+                        continue;
+                    }
+                    File file = Files.createTempFile("atm-repairs-", ".zip-entry").toFile();
+                    extracted.add(file);
+                    Files.copy(zip, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    addSheets(new Source(source.name() + "/" + name, file), sheets, extracted);
+                }
+            }
+        } else if (isCsv(source.name())) {
+            sheets.add(new SheetTask(source.name(), source.file(), "csv", -1));
+        } else if (FileMagic.valueOf(source.file()) == FileMagic.OOXML) {
+            List<String> names = AtmRepairXlsxReader.sheetNames(source.file());
+            for (int i = 0; i < names.size(); i++) {
+                sheets.add(new SheetTask(source.name() + ":" + names.get(i), source.file(),
+                        "xlsx", i));
+            }
+        } else {
+            sheets.add(new SheetTask(source.name(), source.file(), "xls", -1));
+        }
+    }
+
+    /**
+     * Возвращает признак окончания имени файла расширением без учета регистра.
+     * 
+     * @param name имя файла
+     * @param extension расширение с точкой
+     * @return признак окончания имени файла расширением
+     */
+    private static boolean hasExtension(String name, String extension) {
+        return name.toLowerCase(Locale.ROOT).endsWith(extension);
+    }
+
+    /**
+     * Возвращает признак CSV файла или CSV файла, сжатого gzip, по имени файла.
+     * 
+     * @param name имя файла
+     * @return признак CSV файла
+     */
+    private static boolean isCsv(String name) {
+        return hasExtension(name, ".csv") || hasExtension(name, ".csv.gz");
+    }
 
-        try (Workbook workbook = WorkbookFactory.create(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            for (Row row : sheet) {
-                System.out.println(row.getRowNum() + " > " + getCellValue(row.getCell(0)));
+    /**
+     * Возвращает признак загружаемого файла с данными по имени файла.
+     * 
+     * @param name имя файла
+     * @return признак файла .xls, .xlsx, .csv или .csv.gz
+     */
+    public static boolean isDataFile(String name) {
+        return hasExtension(name, ".xls") || hasExtension(name, ".xlsx") || isCsv(name);
+    }
 
-                if (row.getRowNum() == 0)
+    /**
+     * Разбирает листы на пуле потоков разбора и сохраняет порции записей в текущем потоке под
+     * общей блокировкой записи.
+     * 
+     * @param sheets разбираемые части файлов
+     * @param progress получатель сведений о ходе загрузки
+     * @return количество добавленных и обновленных записей
+     * @throws IOException если при разборе листов возникли ошибки
+     */
+    private AtmRepairImportResultDto saveSheets(List<SheetTask> sheets,
+            AtmRepairImportProgress progress) throws IOException {
+        if (sheets.isEmpty()) {
+            throw new IOException("Не найдены файлы .xls, .xlsx, .csv или .csv.gz");
+        }
+        long start = System.nanoTime();
+        String format = formatOf(sheets);
+        Timer persistTimer = meterRegistry.timer(PERSIST_TIMER, "format", format);
+        progress.sheetsFound(sheets.size());
+        BlockingQueue<List<AtmRepairDto>> queue = new ArrayBlockingQueue<>(parseThreads * 2);
+        List<Future<?>> futures = new ArrayList<>(sheets.size());
+        int failed = 0;
+        AtmRepairImportResultDto result = new AtmRepairImportResultDto();
+        try {
+            for (SheetTask sheet : sheets) {
+                futures.add(parseExecutor.submit(() -> parseSheet(sheet, queue, progress)));
+            }
+            for (int finished = 0; finished < sheets.size();) {
+                List<AtmRepairDto> chunk = queue.take();
+                if (chunk.isEmpty()) {
+                    finished++;
                     continue;
-                data.add(AtmRepairDto.builder()
-                        .caseId((Long) getCellValue(row.getCell(0)))
-                        .atmId(String.valueOf(getCellValue(row.getCell(1))))
-                        .reason((String) getCellValue(row.getCell(2)))
-                        .startTime((LocalDateTime) getCellValue(row.getCell(3)))
-                        .endTime((LocalDateTime) getCellValue(row.getCell(4)))
-                        .serialNumber(String.valueOf(getCellValue(row.getCell(5))))
-                        .bankName((String) getCellValue(row.getCell(6)))
-                        .channel((String) getCellValue(row.getCell(7)))
-                        .build());
+                }
+                AtmRepairImportResultDto chunkResult = persist(chunk, persistTimer);
+                progress.rowsPersisted(chunkResult);
+                result.add(chunkResult);
+            }
+            for (int i = 0; i < sheets.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    log.error("Ошибка при разборе листа {}", sheets.get(i).name(), cause);
+                    progress.sheetFailed(sheets.get(i).name(), cause.getMessage());
+                    failed++;
+                }
+            }
+            meterRegistry.timer(UPLOAD_TIMER, "format", format)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Загрузка прервана", e);
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+        if (failed > 0) {
+            throw new IOException(
+                    "Не удалось разобрать листов: " + failed + " из " + sheets.size());
+        }
+        return result;
+    }
+
+    /**
+     * Сохраняет порцию записей под общей блокировкой записи. Время ожидания блокировки в
+     * {@value #PERSIST_TIMER} не входит.
+     * 
+     * @param chunk порция записей
+     * @param persistTimer метрика времени сохранения
+     * @return количество добавленных, обновленных и неизмененных записей
+     * @throws InterruptedException если ожидание блокировки прервано
+     */
+    private AtmRepairImportResultDto persist(List<AtmRepairDto> chunk, Timer persistTimer)
+            throws InterruptedException {
+        writeLock.lockInterruptibly();
+        try {
+            long start = System.nanoTime();
+            AtmRepairImportResultDto result = service.createOrUpdate(chunk);
+            persistTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает формат разбираемых частей файлов для метрики времени загрузки.
+     * 
+     * @param sheets разбираемые части файлов
+     * @return {@code xlsx}, {@code xls} или {@code mixed}
+     */
+    private static String formatOf(List<SheetTask> sheets) {
+        return sheets.stream().map(SheetTask::format).distinct().reduce((a, b) -> "mixed")
+                .orElseThrow();
+    }
+
+    /**
+     * Разбирает лист и передает порции записей в очередь писателя. По окончании разбора, в том
+     * числе с ошибкой, в очередь передается пустая порция.
+     * 
+     * @param sheet разбираемая часть файла
+     * @param queue очередь порций записей
+     * @param progress получатель сведений о ходе загрузки
+     * @return {@code null}
+     * @throws Exception в случае ошибки разбора листа
+     */
+    private Void parseSheet(SheetTask sheet, BlockingQueue<List<AtmRepairDto>> queue,
+            AtmRepairImportProgress progress) throws Exception {
+        ChunkWriter writer = new ChunkWriter(atmRepairConfiguration.getUploadChunkSize(),
+                queue, progress);
+        try {
+            long start = System.nanoTime();
+            switch (sheet.format()) {
+            case "xlsx" -> AtmRepairXlsxReader.read(sheet.file(), sheet.sheetIndex(), writer);
+            case "csv" -> AtmRepairCsvReader.read(sheet.file(), writer);
+            default -> readWorkbook(sheet.file(), writer);
             }
+            writer.flush();
+            meterRegistry.timer(PARSE_TIMER, "format", sheet.format())
+                    .record(System.nanoTime() - start - writer.waitNanos, TimeUnit.NANOSECONDS);
+            meterRegistry.counter(ROWS_COUNTER, "format", sheet.format()).increment(writer.rows);
+            progress.sheetParsed();
+            return null;
+        } finally {
+            queue.put(List.of());
         }
-        service.createOrUpdate(data);
-        return data.size();
+    }
+
+    /**
+     * Читает все листы книги посредством {@link WorkbookFactory}, пропуская заголовок каждого
+     * листа и строки без значений.
+     * 
+     * @param file XLS файл
+     * @param rowConsumer получатель значений ячеек строки
+     * @throws IOException в случае ошибки чтения из файла или строки без идентификатора ремонта
+     */
+    private void readWorkbook(File file, Consumer<Object[]> rowConsumer) throws IOException {
+        try (Workbook workbook = WorkbookFactory.create(file, null, true)) {
+            for (Sheet sheet : workbook) {
+                for (Row row : sheet) {
+                    if (row.getRowNum() == 0)
+                        continue;
+                    Object[] values = new Object[AtmRepairXlsxReader.COLUMN_COUNT];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = getCellValue(row.getCell(i));
+                    }
+                    if (AtmRepairXlsxReader.isBlank(values)) {
+                        continue;
+                    }
+                    if (values[0] == null) {
+                        throw new IOException("Ошибка чтения XLS файла: лист "
+                                + sheet.getSheetName() + ", строка " + (row.getRowNum() + 1)
+                                + ", не задан идентификатор ремонта");
+                    }
+                    rowConsumer.accept(values);
+                }
+            }
+        }
+    }
+
+    /**
+     * Останавливает исполнитель разбора листов.
+     */
+    @PreDestroy
+    void shutdown() {
+        parseExecutor.shutdownNow();
     }
 
     /**
@@ -62,6 +429,9 @@ public class AtmRepairFileService {
      * @return значение ячейки
      */
     private Object getCellValue(Cell cell) {
+        if (cell == null) {
+            return null;
+        }
         switch (cell.getCellType()) {
         case STRING:
             return cell.getStringCellValue();
@@ -76,4 +446,79 @@ public class AtmRepairFileService {
         }
     }
 
+    /**
+     * Возвращает DTO ремонта из значений ячеек строки.
+     * 
+     * @param values значения ячеек строки
+     * @return DTO ремонта
+     */
+    private static AtmRepairDto toDto(Object[] values) {
+        return AtmRepairDto.builder()
+                .caseId((Long) values[0])
+                .atmId(String.valueOf(values[1]))
+                .reason((String) values[2])
+                .startTime((LocalDateTime) values[3])
+                .endTime((LocalDateTime) values[4])
+                .serialNumber(String.valueOf(values[5]))
+                .bankName((String) values[6])
+                .channel((String) values[7])
+                .build();
+    }
+
+    /**
+     * Накопитель строк листа, передающий порции записей в очередь писателя.
+     */
+    private static class ChunkWriter implements Consumer<Object[]> {
+
+        private final int chunkSize;
+
+        private final BlockingQueue<List<AtmRepairDto>> queue;
+
+        private final AtmRepairImportProgress progress;
+
+        private List<AtmRepairDto> chunk;
+
+        /** Количество разобранных строк */
+        private long rows;
+
+        /** Суммарное время ожидания места в очереди писателя, нс */
+        private long waitNanos;
+
+        ChunkWriter(int chunkSize, BlockingQueue<List<AtmRepairDto>> queue,
+                AtmRepairImportProgress progress) {
+            this.chunkSize = Math.max(1, chunkSize);
+            this.queue = queue;
+            this.progress = progress;
+            this.chunk = new ArrayList<>(this.chunkSize);
+        }
+
+        @Override
+        public void accept(Object[] values) {
+            chunk.add(toDto(values));
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Передает накопленные записи в очередь писателя.
+         */
+        void flush() {
+            if (!chunk.isEmpty()) {
+                progress.rowsParsed(chunk.size());
+                rows += chunk.size();
+                long start = System.nanoTime();
+                try {
+                    queue.put(chunk);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Разбор листа прерван");
+                }
+                waitNanos += System.nanoTime() - start;
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+
+    }
+
 }
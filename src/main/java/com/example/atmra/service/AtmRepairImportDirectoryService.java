@@ -0,0 +1,286 @@
+package com.example.atmra.service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.atmra.dto.AtmRepairImportResultDto;
+import com.example.atmra.repository.AtmRepairImportFileRepository;
+import com.example.atmra.service.AtmRepairFileService.Source;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сервис загрузки файлов из каталога импорта {@link AtmRepairConfiguration#getImportDir()}.
+ * <p>
+ * Каталог просматривается с периодом {@link AtmRepairConfiguration#getImportPollInterval()}.
+ * Файл загружается, когда его размер и время изменения не изменились с предыдущего просмотра,
+ * то есть запись файла завершена. Файлы читаются на месте, без копирования во временные файлы и
+ * без ограничений размера загрузки через HTTP.
+ * <p>
+ * Загруженный файл перемещается в подкаталог {@value #PROCESSED_DIR}, файл с ошибкой - в
+ * подкаталог {@value #FAILED_DIR}. Файл, контрольная сумма SHA-256 которого уже есть в
+ * {@link AtmRepairImportFileRepository}, не загружается повторно. Регистрирует метрику
+ * {@value #FILES_COUNTER} - количество файлов с меткой {@code result} ({@code processed},
+ * {@code duplicate} или {@code failed}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AtmRepairImportDirectoryService {
+
+    /** Количество файлов каталога импорта */
+    public static final String FILES_COUNTER = "atm.repairs.import.files";
+
+    /** Подкаталог загруженных файлов */
+    static final String PROCESSED_DIR = "processed";
+
+    /** Подкаталог файлов с ошибкой загрузки */
+    static final String FAILED_DIR = "failed";
+
+    /** Формат префикса имени перемещаемого файла, если файл с таким именем уже есть */
+    private static final DateTimeFormatter MOVED_PREFIX_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-");
+
+    private final AtmRepairFileService atmRepairFileService;
+
+    private final AtmRepairImportFileRepository atmRepairImportFileRepository;
+
+    private final AtmRepairConfiguration atmRepairConfiguration;
+
+    private final MeterRegistry meterRegistry;
+
+    /** Размер и время изменения файлов при предыдущем просмотре каталога */
+    private final Map<Path, FileState> previousStates = new HashMap<>();
+
+    /** Исполнитель просмотра каталога, {@code null} если каталог импорта не задан */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Размер и время изменения файла.
+     * 
+     * @param size размер файла
+     * @param lastModified время изменения файла
+     */
+    private record FileState(long size, FileTime lastModified) {
+    }
+
+    /**
+     * Запускает просмотр каталога импорта после запуска приложения.
+     * 
+     * @throws IOException в случае ошибки создания подкаталогов
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void start() throws IOException {
+        Path dir = atmRepairConfiguration.getImportDir();
+        if (dir == null) {
+            return;
+        }
+        Files.createDirectories(dir.resolve(PROCESSED_DIR));
+        Files.createDirectories(dir.resolve(FAILED_DIR));
+        long interval = Math.max(1, atmRepairConfiguration.getImportPollInterval().toMillis());
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("atm-import-dir").daemon().factory());
+        scheduler.scheduleWithFixedDelay(() -> poll(dir), 0, interval, TimeUnit.MILLISECONDS);
+        log.info("Каталог импорта {} просматривается каждые {} мс", dir.toAbsolutePath(),
+                interval);
+    }
+
+    /**
+     * Останавливает просмотр каталога импорта.
+     */
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Загружает файлы каталога импорта, запись которых завершена. Ошибки не прерывают
+     * последующие просмотры каталога.
+     * 
+     * @param dir каталог импорта
+     */
+    void poll(Path dir) {
+        try {
+            for (Path file : findReadyFiles(dir)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                importFile(dir, file);
+            }
+        } catch (Exception e) {
+            log.error("Ошибка просмотра каталога импорта {}", dir, e);
+        }
+    }
+
+    /**
+     * Возвращает файлы каталога, размер и время изменения которых не изменились с предыдущего
+     * просмотра, и запоминает состояние остальных файлов.
+     * 
+     * @param dir каталог импорта
+     * @return файлы, готовые к загрузке, по имени
+     * @throws IOException в случае ошибки чтения каталога
+     */
+    private List<Path> findReadyFiles(Path dir) throws IOException {
+        Map<Path, FileState> states = new HashMap<>();
+        List<Path> ready = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.sorted().toList()) {
+                if (!isImportFile(file)) {
+                    continue;
+                }
+                BasicFileAttributes attributes =
+                        Files.readAttributes(file, BasicFileAttributes.class);
+                FileState state = new FileState(attributes.size(), attributes.lastModifiedTime());
+                if (state.equals(previousStates.get(file))) {
+                    ready.add(file);
+                } else {
+                    states.put(file, state);
+                }
+            }
+        }
+        previousStates.clear();
+        previousStates.putAll(states);
+        return ready;
+    }
+
+    /**
+     * Возвращает признак загружаемого файла: обычный не скрытый файл с данными или ZIP архив.
+     * 
+     * @param file файл
+     * @return признак загружаемого файла
+     */
+    private static boolean isImportFile(Path file) {
+        String name = file.getFileName().toString();
+        return !name.startsWith(".") && Files.isRegularFile(file)
+                && (AtmRepairFileService.isDataFile(name)
+                        || name.toLowerCase(Locale.ROOT).endsWith(".zip"));
+    }
+
+    /**
+     * Загружает файл и перемещает его в подкаталог загруженных файлов или файлов с ошибкой.
+     * При остановке приложения во время загрузки файл остается в каталоге импорта.
+     * 
+     * @param dir каталог импорта
+     * @param file файл
+     */
+    private void importFile(Path dir, Path file) {
+        String name = file.getFileName().toString();
+        try {
+            long size = Files.size(file);
+            String checksum = checksum(file);
+            if (atmRepairImportFileRepository.exists(checksum)) {
+                log.info("Файл {} уже загружен ранее и пропущен", name);
+                move(file, dir.resolve(PROCESSED_DIR));
+                count("duplicate");
+                return;
+            }
+            AtmRepairImportResultDto result = atmRepairFileService.saveData(
+                    List.of(new Source(name, file.toFile())), AtmRepairImportProgress.NONE);
+            atmRepairImportFileRepository.save(checksum, name, size, result);
+            move(file, dir.resolve(PROCESSED_DIR));
+            count("processed");
+            log.info("Файл {} загружен из каталога импорта: добавлено {}, обновлено {}, "
+                    + "без изменений {}", name, result.getInserted(), result.getUpdated(),
+                    result.getUnchanged());
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.warn("Загрузка файла {} прервана", name);
+                return;
+            }
+            log.error("Ошибка при загрузке файла {} из каталога импорта", name, e);
+            count("failed");
+            try {
+                move(file, dir.resolve(FAILED_DIR));
+            } catch (IOException moveError) {
+                log.error("Не удалось переместить файл {}", name, moveError);
+            }
+        }
+    }
+
+    /**
+     * Перемещает файл в подкаталог. Если файл с таким именем уже есть, к имени добавляется
+     * префикс с датой и временем, а если есть и файл с префиксом - номер после префикса.
+     * Существующие файлы не заменяются.
+     * 
+     * @param file файл
+     * @param targetDir подкаталог
+     * @throws IOException в случае ошибки перемещения
+     */
+    private static void move(Path file, Path targetDir) throws IOException {
+        String name = file.getFileName().toString();
+        String prefix = LocalDateTime.now().format(MOVED_PREFIX_FORMAT);
+        Path target = targetDir.resolve(name);
+        for (int attempt = 1;; attempt++) {
+            try {
+                Files.move(file, target);
+                return;
+            } catch (FileAlreadyExistsException e) {
+                target = targetDir.resolve(prefix + (attempt > 1 ? attempt + "-" : "") + name);
+            }
+        }
+    }
+
+    /**
+     * Увеличивает счетчик файлов каталога импорта.
+     * 
+     * @param result результат обработки файла
+     */
+    private void count(String result) {
+        meterRegistry.counter(FILES_COUNTER, "result", result).increment();
+    }
+
+    /**
+     * Возвращает контрольную сумму SHA-256 файла, читая его отображением в память окнами по
+     * {@link AtmRepairCsvReader#WINDOW_SIZE} байт.
+     * 
+     * @param file файл
+     * @return контрольная сумма в шестнадцатеричном виде
+     * @throws IOException в случае ошибки чтения из файла
+     */
+    static String checksum(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset = 0; offset < size; offset += AtmRepairCsvReader.WINDOW_SIZE) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(AtmRepairCsvReader.WINDOW_SIZE, size - offset)));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+}
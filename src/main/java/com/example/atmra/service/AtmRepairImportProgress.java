@@ -0,0 +1,53 @@
+package com.example.atmra.service;
+
+import com.example.atmra.dto.AtmRepairImportResultDto;
+
+/**
+ * Получатель сведений о ходе загрузки данных ремонтов из файла.
+ */
+public interface AtmRepairImportProgress {
+
+    /** Получатель, игнорирующий сведения о ходе загрузки */
+    AtmRepairImportProgress NONE = new AtmRepairImportProgress() {
+    };
+
+    /**
+     * Вызывается перед разбором листов файлов.
+     * 
+     * @param count количество листов XLSX файлов и XLS файлов
+     */
+    default void sheetsFound(int count) {
+    }
+
+    /**
+     * Вызывается после разбора листа.
+     */
+    default void sheetParsed() {
+    }
+
+    /**
+     * Вызывается после ошибки разбора листа, разбор остальных листов продолжается.
+     * 
+     * @param sheetName имя файла и листа
+     * @param message текст ошибки
+     */
+    default void sheetFailed(String sheetName, String message) {
+    }
+
+    /**
+     * Вызывается после разбора строк файла.
+     * 
+     * @param count количество разобранных строк
+     */
+    default void rowsParsed(int count) {
+    }
+
+    /**
+     * Вызывается после сохранения порции записей в таблицу ремонтов.
+     * 
+     * @param result количество добавленных и обновленных записей порции
+     */
+    default void rowsPersisted(AtmRepairImportResultDto result) {
+    }
+
+}
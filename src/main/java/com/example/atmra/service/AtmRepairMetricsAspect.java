@@ -0,0 +1,192 @@
+package com.example.atmra.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+import com.example.atmra.dto.AtmRepairGroupDto;
+import com.example.atmra.dto.AtmRepairPageDto;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Метрики методов сервиса работы с таблицей ремонтов и преобразователя данных.
+ * <p>
+ * Для методов {@link IAtmRepairService} регистрируются:
+ * <ul>
+ * <li>{@value #SERVICE_TIMER} - время выполнения с гистограммой;</li>
+ * <li>{@value #SERVICE_ROWS} и {@value #SERVICE_GROUPS} - количество данных ремонтов и
+ * заголовков групп в результате или переданных получателю.</li>
+ * </ul>
+ * Метки: {@code method} - имя метода, {@code service} - класс сервиса, для времени
+ * выполнения также {@code exception} - класс исключения или {@code none}.
+ * <p>
+ * Для методов {@link com.example.atmra.mapper.AtmRepairMapper}, преобразующих списки,
+ * регистрируется время выполнения {@value #MAPPER_TIMER} без гистограммы. Преобразование
+ * отдельных записей не измеряется: оно вызывается для каждой записи, и измерение заметно
+ * замедлило бы потоковую выдачу.
+ * <p>
+ * Метрики регистрируются при первом вызове с данными метками и далее берутся из кэша аспекта.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class AtmRepairMetricsAspect {
+
+    /** Время выполнения методов сервиса */
+    public static final String SERVICE_TIMER = "atm.repairs.service";
+
+    /** Количество данных ремонтов, возвращенных методом сервиса */
+    public static final String SERVICE_ROWS = "atm.repairs.service.rows";
+
+    /** Количество заголовков групп, возвращенных методом сервиса */
+    public static final String SERVICE_GROUPS = "atm.repairs.service.groups";
+
+    /** Время выполнения методов преобразователя данных */
+    public static final String MAPPER_TIMER = "atm.repairs.mapper";
+
+    private final MeterRegistry meterRegistry;
+
+    /** Время выполнения методов сервиса по значениям меток method, service и exception */
+    private final Map<List<String>, Timer> serviceTimers = new ConcurrentHashMap<>();
+
+    /** Количество данных ремонтов и заголовков групп по значениям меток method и service */
+    private final Map<List<String>, DistributionSummary[]> serviceSummaries =
+            new ConcurrentHashMap<>();
+
+    /** Время выполнения методов преобразователя данных по имени метода */
+    private final Map<String, Timer> mapperTimers = new ConcurrentHashMap<>();
+
+    /**
+     * Измеряет время выполнения метода сервиса и количество возвращенных данных.
+     * 
+     * @param joinPoint вызов метода
+     * @return результат метода
+     * @throws Throwable исключение метода
+     */
+    @Around("execution(* com.example.atmra.service.IAtmRepairService.*(..))")
+    public Object measureService(ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        String service = AopUtils.getTargetClass(joinPoint.getTarget()).getSimpleName();
+        ResultCounter counter = new ResultCounter();
+        Object[] args = joinPoint.getArgs();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Consumer<?> sink) {
+                args[i] = counter.wrap(sink);
+            }
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed(args);
+            counter.countResult(result);
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(serviceTimers.computeIfAbsent(List.of(method, service, exception),
+                    key -> Timer.builder(SERVICE_TIMER)
+                            .tags("method", method, "service", service, "exception", key.get(2))
+                            .publishPercentileHistogram()
+                            .register(meterRegistry)));
+            if (counter.counted) {
+                DistributionSummary[] summaries = serviceSummaries.computeIfAbsent(
+                        List.of(method, service), key -> new DistributionSummary[] {
+                                DistributionSummary.builder(SERVICE_ROWS)
+                                        .tags("method", method, "service", service)
+                                        .register(meterRegistry),
+                                DistributionSummary.builder(SERVICE_GROUPS)
+                                        .tags("method", method, "service", service)
+                                        .register(meterRegistry) });
+                summaries[0].record(counter.rows.sum());
+                summaries[1].record(counter.groups.sum());
+            }
+        }
+    }
+
+    /**
+     * Измеряет время выполнения метода преобразователя данных, преобразующего список.
+     * 
+     * @param joinPoint вызов метода
+     * @return результат метода
+     * @throws Throwable исключение метода
+     */
+    @Around("execution(java.util.List com.example.atmra.mapper.AtmRepairMapper.*(java.util.List))")
+    public Object measureMapper(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            sample.stop(mapperTimers.computeIfAbsent(joinPoint.getSignature().getName(),
+                    method -> meterRegistry.timer(MAPPER_TIMER, "method", method)));
+        }
+    }
+
+    /**
+     * Счетчик данных ремонтов и заголовков групп в результате метода сервиса. Получатель данных
+     * может вызываться из нескольких потоков.
+     */
+    private static class ResultCounter {
+
+        /** Признак того, что метод возвращает данные */
+        private volatile boolean counted;
+
+        private final LongAdder rows = new LongAdder();
+
+        private final LongAdder groups = new LongAdder();
+
+        /**
+         * Возвращает получателя данных, подсчитывающего переданные данные.
+         * 
+         * @param sink получатель данных
+         * @return получатель данных с подсчетом
+         */
+        @SuppressWarnings("unchecked")
+        Consumer<Object> wrap(Consumer<?> sink) {
+            counted = true;
+            Consumer<Object> target = (Consumer<Object>) sink;
+            return value -> {
+                count(value);
+                target.accept(value);
+            };
+        }
+
+        /**
+         * Подсчитывает данные в результате метода.
+         * 
+         * @param result результат метода
+         */
+        void countResult(Object result) {
+            Collection<?> values = result instanceof AtmRepairPageDto page ? page.getContent()
+                    : result instanceof Collection<?> collection ? collection : null;
+            if (values != null) {
+                counted = true;
+                values.forEach(this::count);
+            }
+        }
+
+        private void count(Object value) {
+            if (value instanceof AtmRepairGroupDto) {
+                groups.increment();
+            } else {
+                rows.increment();
+            }
+        }
+
+    }
+
+}
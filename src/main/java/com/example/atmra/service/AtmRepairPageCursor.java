@@ -0,0 +1,98 @@
+package com.example.atmra.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import com.example.atmra.dto.AtmRepairPageRequestDto;
+
+/**
+ * Позиция страницы данных ремонтов при постраничном чтении по ключу сортировки.
+ * <p>
+ * Позиция передается клиенту непрозрачной строкой со значениями ключа сортировки последней
+ * записи страницы: {@code caseId} или {@code startTime,caseId}.
+ */
+final class AtmRepairPageCursor {
+
+    private AtmRepairPageCursor() {
+    }
+
+    /**
+     * Возвращает сортировку страницы. Последним ключом всегда идет уникальный
+     * {@code caseId}. Не заданные поле и направление сортировки - {@code caseId} по возрастанию.
+     * 
+     * @param request запрос страницы
+     * @return сортировка
+     * @throws IllegalArgumentException если поле или направление сортировки неизвестны
+     */
+    static Sort sort(AtmRepairPageRequestDto request) {
+        Sort.Direction direction = isBlank(request.getDirection()) ? Sort.Direction.ASC
+                : Sort.Direction.fromString(request.getDirection());
+        return switch (isBlank(request.getSort()) ? AtmRepairPageRequestDto.SORT_CASE_ID
+                : request.getSort()) {
+        case AtmRepairPageRequestDto.SORT_CASE_ID -> Sort.by(direction, "caseId");
+        case AtmRepairPageRequestDto.SORT_START_TIME -> Sort.by(direction, "startTime", "caseId");
+        default -> throw new IllegalArgumentException(
+                "Не известное поле сортировки: " + request.getSort());
+        };
+    }
+
+    /**
+     * Возвращает позицию начала страницы.
+     * 
+     * @param request запрос страницы
+     * @return позиция
+     * @throws IllegalArgumentException если позиция не корректна или не соответствует сортировке:
+     *             для сортировки {@code startTime} позиция содержит два значения, для
+     *             {@code caseId} - одно
+     */
+    static KeysetScrollPosition decode(AtmRepairPageRequestDto request) {
+        String cursor = request.getCursor();
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        try {
+            String[] values = new String(Base64.getUrlDecoder().decode(cursor),
+                    StandardCharsets.UTF_8).split(",");
+            boolean startTime = AtmRepairPageRequestDto.SORT_START_TIME.equals(request.getSort());
+            if (values.length != (startTime ? 2 : 1)) {
+                throw new IllegalArgumentException("Позиция не соответствует сортировке");
+            }
+            Map<String, Object> keys = new LinkedHashMap<>();
+            if (startTime) {
+                keys.put("startTime", LocalDateTime.parse(values[0]));
+            }
+            keys.put("caseId", Long.valueOf(values[values.length - 1]));
+            return ScrollPosition.forward(keys);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Не корректная позиция страницы: " + cursor, e);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Возвращает позицию в виде строки для клиента.
+     * 
+     * @param position позиция последней записи страницы
+     * @return позиция
+     */
+    static String encode(ScrollPosition position) {
+        Map<String, ?> keys = ((KeysetScrollPosition) position).getKeys();
+        String value = keys.containsKey("startTime")
+                ? keys.get("startTime") + "," + keys.get("caseId")
+                : String.valueOf(keys.get("caseId"));
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,726 @@
+package com.example.atmra.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairFilterDto;
+import com.example.atmra.entity.AtmRepairDictionary;
+import com.example.atmra.repository.AtmRepairDictionaryRepository;
+
+/**
+ * Снимок таблицы ремонтов в памяти, оптимизированный для аналитики.
+ * <p>
+ * Данные хранятся по колонкам в массивах примитивов: идентификатор АТМ, причина, банк и канал
+ * хранятся идентификаторами справочников {@link AtmRepairDictionary}, как в таблице ремонтов,
+ * дата и время начала и окончания ремонта хранятся в секундах от начала эпохи. Значения по
+ * идентификаторам берутся из {@link AtmRepairDictionaryRepository}, поэтому значения
+ * справочников должны быть добавлены до записи ремонтов в снимок. Для анализа строится
+ * перестановка строк, упорядоченная по АТМ, причине и времени начала ремонта. Она
+ * перестраивается при первом чтении после изменения данных.
+ * <p>
+ * Условия отбора {@link AtmRepairFilterDto} проверяются по идентификаторам и времени в секундах
+ * при просмотре строк, без создания промежуточных наборов строк.
+ * <p>
+ * Снимок потокобезопасен.
+ */
+public class AtmRepairSnapshot {
+
+    /** Значение времени, обозначающее его отсутствие */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    /** Количество секунд в сутках */
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    /** Начальный размер массивов колонок */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Минимальное количество строк для параллельного поиска повторных поломок */
+    private static final int MIN_PARALLEL_ROWS = 1 << 16;
+
+    /** Количество частей строк на поток при параллельном поиске повторных поломок */
+    private static final int PARTS_PER_THREAD = 4;
+
+    /** Код значения условия отбора, при котором условие не применяется */
+    private static final int ANY_CODE = -1;
+
+    /** Код значения условия отбора, отсутствующего в словаре */
+    private static final int UNKNOWN_CODE = -2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtmRepairDictionaryRepository atmRepairDictionaryRepository;
+
+    /** Номер строки по идентификатору ремонта */
+    private final Map<Long, Integer> rowByCaseId = new HashMap<>();
+
+    private long[] caseIds = new long[INITIAL_CAPACITY];
+
+    private int[] atmCodes = new int[INITIAL_CAPACITY];
+
+    private int[] reasonCodes = new int[INITIAL_CAPACITY];
+
+    private int[] bankCodes = new int[INITIAL_CAPACITY];
+
+    private int[] channelCodes = new int[INITIAL_CAPACITY];
+
+    private long[] startTimes = new long[INITIAL_CAPACITY];
+
+    private long[] endTimes = new long[INITIAL_CAPACITY];
+
+    private String[] serialNumbers = new String[INITIAL_CAPACITY];
+
+    /** Количество строк */
+    private int size;
+
+    /** Наибольший идентификатор АТМ в строках, увеличенный на 1 */
+    private int atmCodeLimit;
+
+    /** Наибольший идентификатор причины в строках, увеличенный на 1 */
+    private int reasonCodeLimit;
+
+    /**
+     * Номера строк, упорядоченные по АТМ, причине и времени начала ремонта, или {@code null}
+     * если порядок нужно перестроить
+     */
+    private int[] order;
+
+    /** Время начала ремонта в порядке {@link #order} */
+    private long[] orderedStartTimes;
+
+    /**
+     * Создает пустой снимок.
+     * 
+     * @param atmRepairDictionaryRepository справочники значений колонок
+     */
+    public AtmRepairSnapshot(AtmRepairDictionaryRepository atmRepairDictionaryRepository) {
+        this.atmRepairDictionaryRepository = atmRepairDictionaryRepository;
+    }
+
+    /**
+     * Добавляет или обновляет записи ремонтов. Значения ремонтов должны быть в справочниках.
+     * 
+     * @param dtoList данные ремонтов
+     */
+    public void apply(Collection<AtmRepairDto> dtoList) {
+        lock.writeLock().lock();
+        try {
+            for (AtmRepairDto dto : dtoList) {
+                put(dto.getCaseId(),
+                        code(AtmRepairDictionary.ATM, dto.getAtmId()),
+                        code(AtmRepairDictionary.REASON, dto.getReason()),
+                        toEpochSecond(dto.getStartTime()), toEpochSecond(dto.getEndTime()),
+                        dto.getSerialNumber(),
+                        code(AtmRepairDictionary.BANK, dto.getBankName()),
+                        code(AtmRepairDictionary.CHANNEL, dto.getChannel()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет или обновляет запись ремонта.
+     * 
+     * @param caseId идентификатор записи ремонта
+     * @param atmRef идентификатор справочника АТМ
+     * @param reasonRef идентификатор справочника причин ремонта
+     * @param startTime время начала ремонта в секундах от начала эпохи
+     * @param endTime время окончания ремонта в секундах от начала эпохи или {@link #NO_TIME}
+     * @param serialNumber серийный номер АТМ
+     * @param bankRef идентификатор справочника банков
+     * @param channelRef идентификатор справочника каналов
+     */
+    public void put(long caseId, int atmRef, int reasonRef, long startTime, long endTime,
+            String serialNumber, int bankRef, int channelRef) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = rowByCaseId.get(caseId);
+            int row;
+            if (existing == null) {
+                ensureCapacity(size + 1);
+                row = size++;
+                rowByCaseId.put(caseId, row);
+            } else {
+                row = existing;
+            }
+            caseIds[row] = caseId;
+            atmCodes[row] = atmRef;
+            reasonCodes[row] = reasonRef;
+            bankCodes[row] = bankRef;
+            channelCodes[row] = channelRef;
+            atmCodeLimit = Math.max(atmCodeLimit, atmRef + 1);
+            reasonCodeLimit = Math.max(reasonCodeLimit, reasonRef + 1);
+            startTimes[row] = startTime;
+            endTimes[row] = endTime;
+            serialNumbers[row] = serialNumber;
+            order = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет все записи.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rowByCaseId.clear();
+            Arrays.fill(serialNumbers, 0, size, null);
+            size = 0;
+            atmCodeLimit = 0;
+            reasonCodeLimit = 0;
+            order = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество записей.
+     * 
+     * @return количество записей
+     */
+    public int size() {
+        return read(() -> size);
+    }
+
+    /**
+     * Возвращает DTO записи ремонта.
+     * 
+     * @param row номер строки
+     * @return DTO записи ремонта
+     */
+    public AtmRepairDto toDto(int row) {
+        return read(() -> createDto(row));
+    }
+
+    /**
+     * Возвращает DTO записей ремонтов.
+     * 
+     * @param rows номера строк
+     * @return список DTO записей ремонтов
+     */
+    public List<AtmRepairDto> toDtoList(int[] rows) {
+        return read(() -> {
+            List<AtmRepairDto> result = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                result.add(createDto(row));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Возвращает наиболее часто встречающиеся причины неисправности.
+     * 
+     * @param count количество причин
+     * @param maxRowsPerGroup максимальное количество ремонтов по одной причине, если больше 0
+     * @param filter условия отбора ремонтов
+     * @return группы ремонтов по причинам в порядке убывания количества ремонтов
+     */
+    public List<Group> findMostCommonCauses(int count, int maxRowsPerGroup,
+            AtmRepairFilterDto filter) {
+        return read(() -> {
+            RowFilter rowFilter = rowFilter(filter);
+            int[] counts = new int[reasonCodeLimit];
+            for (int row = 0; row < size; row++) {
+                if (matches(rowFilter, row)) {
+                    counts[reasonCodes[row]]++;
+                }
+            }
+            int[] topReasons = IntStream.range(0, counts.length)
+                    .filter(code -> counts[code] > 0)
+                    .boxed()
+                    .sorted((a, b) -> counts[a] != counts[b]
+                            ? Integer.compare(counts[b], counts[a])
+                            : compare(name(AtmRepairDictionary.REASON, a),
+                                    name(AtmRepairDictionary.REASON, b)))
+                    .limit(count)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            int[] groupByReason = new int[counts.length];
+            Arrays.fill(groupByReason, -1);
+            int[][] groupRows = new int[topReasons.length][];
+            int[] groupSizes = new int[topReasons.length];
+            for (int group = 0; group < topReasons.length; group++) {
+                groupByReason[topReasons[group]] = group;
+                int rows = counts[topReasons[group]];
+                groupRows[group] = new int[maxRowsPerGroup > 0 ? Math.min(rows, maxRowsPerGroup)
+                        : rows];
+            }
+            for (int row : order) {
+                int group = groupByReason[reasonCodes[row]];
+                if (group >= 0 && groupSizes[group] < groupRows[group].length
+                        && matches(rowFilter, row)) {
+                    groupRows[group][groupSizes[group]++] = row;
+                }
+            }
+
+            List<Group> result = new ArrayList<>(topReasons.length);
+            for (int group = 0; group < topReasons.length; group++) {
+                int reason = topReasons[group];
+                result.add(new Group(null, name(AtmRepairDictionary.REASON, reason),
+                        counts[reason], groupRows[group]));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Возвращает наиболее долгие завершенные ремонты.
+     * <p>
+     * Строки просматриваются за один проход с выборкой K наибольших через кучу размера K, без
+     * сортировки всех строк. Ремонты без времени окончания пропускаются.
+     * 
+     * @param count количество ремонтов
+     * @param filter условия отбора ремонтов
+     * @return номера строк в порядке убывания времени ремонта
+     */
+    public int[] findLongestRepairTimes(int count, AtmRepairFilterDto filter) {
+        return read(() -> {
+            RowFilter rowFilter = rowFilter(filter);
+            // Ключ выборки: время ремонта (до 2^32 секунд) и номер строки
+            LongTopK topK = new LongTopK(count);
+            for (int row = 0; row < size; row++) {
+                if (endTimes[row] != NO_TIME && matches(rowFilter, row)) {
+                    long duration = Math.max(0, endTimes[row] - startTimes[row]);
+                    topK.offer((duration << 31) | row);
+                }
+            }
+            return Arrays.stream(topK.toDescendingArray())
+                    .mapToInt(key -> (int) (key & Integer.MAX_VALUE))
+                    .toArray();
+        });
+    }
+
+    /**
+     * Возвращает время ремонта в секундах.
+     * 
+     * @param row номер строки
+     * @return время ремонта в секундах
+     */
+    public long getDurationSeconds(int row) {
+        return read(() -> endTimes[row] - startTimes[row]);
+    }
+
+    /**
+     * Возвращает ремонты, причина которых повторилась на том же АТМ в течение заданного
+     * количества дней. Повторы ищутся только среди отобранных ремонтов.
+     * <p>
+     * Если задан пул потоков, упорядоченные строки делятся на части по границам групп АТМ и
+     * причины, части просматриваются в пуле параллельно, а результаты объединяются в порядке
+     * частей. Поэтому результат не зависит от количества потоков.
+     * 
+     * @param days количество дней
+     * @param pool пул потоков или {@code null} для просмотра в текущем потоке
+     * @param filter условия отбора ремонтов
+     * @return группы ремонтов по АТМ и причине в порядке АТМ и причины
+     */
+    public List<Group> findCauseFailureRecurred(int days, ForkJoinPool pool,
+            AtmRepairFilterDto filter) {
+        return read(() -> {
+            RowFilter rowFilter = rowFilter(filter);
+            if (pool == null || pool.getParallelism() < 2 || size < MIN_PARALLEL_ROWS) {
+                return findCauseFailureRecurred(0, size, days, rowFilter);
+            }
+            int[] bounds = partitionBounds(pool.getParallelism() * PARTS_PER_THREAD);
+            List<ForkJoinTask<List<Group>>> tasks = new ArrayList<>(bounds.length - 1);
+            for (int part = 0; part < bounds.length - 1; part++) {
+                int from = bounds[part];
+                int to = bounds[part + 1];
+                tasks.add(pool.submit(
+                        () -> findCauseFailureRecurred(from, to, days, rowFilter)));
+            }
+            List<Group> result = new ArrayList<>();
+            for (ForkJoinTask<List<Group>> task : tasks) {
+                result.addAll(task.join());
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Возвращает повторные поломки в группах АТМ и причины, целиком входящих в заданный
+     * диапазон упорядоченных строк. Вызывается под блокировкой.
+     * 
+     * @param from начало диапазона в порядке {@link #order}, первая строка группы
+     * @param to конец диапазона (не включая) в порядке {@link #order}, первая строка группы
+     *            или количество строк
+     * @param days количество дней
+     * @param rowFilter условия отбора строк
+     * @return группы ремонтов по АТМ и причине в порядке АТМ и причины
+     */
+    private List<Group> findCauseFailureRecurred(int from, int to, int days,
+            RowFilter rowFilter) {
+        List<Group> result = new ArrayList<>();
+        int[] recurring = new int[to - from];
+        int groupStart = from;
+        while (groupStart < to) {
+            int groupEnd = nextGroupStart(groupStart);
+            int n = 0;
+            // Предыдущий отобранный ремонт группы в порядке order
+            int previous = -1;
+            for (int i = groupStart; i < groupEnd; i++) {
+                if (!matches(rowFilter, order[i])) {
+                    continue;
+                }
+                if (previous >= 0 && (orderedStartTimes[i] - orderedStartTimes[previous])
+                        / SECONDS_PER_DAY <= days) {
+                    if (n == 0 || recurring[n - 1] != order[previous]) {
+                        recurring[n++] = order[previous];
+                    }
+                    recurring[n++] = order[i];
+                }
+                previous = i;
+            }
+            if (n > 0) {
+                int first = order[groupStart];
+                result.add(new Group(name(AtmRepairDictionary.ATM, atmCodes[first]),
+                        name(AtmRepairDictionary.REASON, reasonCodes[first]), n,
+                        Arrays.copyOf(recurring, n)));
+            }
+            groupStart = groupEnd;
+        }
+        return result;
+    }
+
+    /**
+     * Делит упорядоченные строки на части примерно равного размера по границам групп АТМ и
+     * причины. Вызывается под блокировкой.
+     * 
+     * @param parts желаемое количество частей
+     * @return границы частей в порядке {@link #order}, первая - 0, последняя - количество строк
+     */
+    private int[] partitionBounds(int parts) {
+        int partSize = Math.ceilDiv(size, parts);
+        int[] bounds = new int[parts + 1];
+        int count = 1;
+        int bound = 0;
+        while (bound < size) {
+            bound = Math.min(size, bound + partSize);
+            while (bound < size && isSameGroup(bound - 1, bound)) {
+                bound++;
+            }
+            bounds[count++] = bound;
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Возвращает начало следующей группы АТМ и причины. Вызывается под блокировкой.
+     * 
+     * @param groupStart начало группы в порядке {@link #order}
+     * @return начало следующей группы или количество строк
+     */
+    private int nextGroupStart(int groupStart) {
+        int groupEnd = groupStart + 1;
+        while (groupEnd < size && isSameGroup(groupStart, groupEnd)) {
+            groupEnd++;
+        }
+        return groupEnd;
+    }
+
+    /**
+     * Проверяет, что строки относятся к одной группе АТМ и причины. Вызывается под блокировкой.
+     * 
+     * @param i позиция строки в порядке {@link #order}
+     * @param j позиция строки в порядке {@link #order}
+     * @return {@code true}, если АТМ и причина строк совпадают
+     */
+    private boolean isSameGroup(int i, int j) {
+        return atmCodes[order[i]] == atmCodes[order[j]]
+                && reasonCodes[order[i]] == reasonCodes[order[j]];
+    }
+
+    /**
+     * Возвращает условия отбора строк по условиям отбора ремонтов. Вызывается под блокировкой.
+     * 
+     * @param filter условия отбора ремонтов
+     * @return условия отбора строк
+     */
+    private RowFilter rowFilter(AtmRepairFilterDto filter) {
+        return new RowFilter(
+                filterCode(AtmRepairDictionary.ATM, filter.getAtmId()),
+                filterCode(AtmRepairDictionary.REASON, filter.getReason()),
+                filterCode(AtmRepairDictionary.BANK, filter.getBankName()),
+                filterCode(AtmRepairDictionary.CHANNEL, filter.getChannel()),
+                filter.getFrom() == null ? Long.MIN_VALUE : toEpochSecond(filter.getFrom()),
+                filter.getTo() == null ? Long.MAX_VALUE : toEpochSecond(filter.getTo()));
+    }
+
+    /**
+     * Возвращает код значения условия отбора.
+     * 
+     * @param dictionary справочник значений колонки
+     * @param value значение условия, {@code null} или пустая строка - без условия
+     * @return идентификатор значения, {@link #ANY_CODE} или {@link #UNKNOWN_CODE}
+     */
+    private int filterCode(AtmRepairDictionary dictionary, String value) {
+        if (value == null || value.isBlank()) {
+            return ANY_CODE;
+        }
+        int code = atmRepairDictionaryRepository.id(dictionary, value);
+        return code == AtmRepairDictionary.UNKNOWN_ID ? UNKNOWN_CODE : code;
+    }
+
+    /**
+     * Возвращает идентификатор значения колонки.
+     * 
+     * @param dictionary справочник значений колонки
+     * @param value значение
+     * @return идентификатор значения, {@link AtmRepairDictionary#UNKNOWN_ID} для пустого
+     *         значения
+     */
+    private int code(AtmRepairDictionary dictionary, String value) {
+        return atmRepairDictionaryRepository.id(dictionary, value);
+    }
+
+    /**
+     * Возвращает значение колонки по идентификатору.
+     * 
+     * @param dictionary справочник значений колонки
+     * @param code идентификатор значения
+     * @return значение или {@code null}
+     */
+    private String name(AtmRepairDictionary dictionary, int code) {
+        return atmRepairDictionaryRepository.name(dictionary, code);
+    }
+
+    /**
+     * Проверяет, что строка удовлетворяет условиям отбора. Вызывается под блокировкой.
+     * 
+     * @param rowFilter условия отбора строк
+     * @param row номер строки
+     * @return {@code true}, если строка отобрана
+     */
+    private boolean matches(RowFilter rowFilter, int row) {
+        return (rowFilter.atm() == ANY_CODE || atmCodes[row] == rowFilter.atm())
+                && (rowFilter.reason() == ANY_CODE || reasonCodes[row] == rowFilter.reason())
+                && (rowFilter.bank() == ANY_CODE || bankCodes[row] == rowFilter.bank())
+                && (rowFilter.channel() == ANY_CODE || channelCodes[row] == rowFilter.channel())
+                && startTimes[row] >= rowFilter.from() && startTimes[row] < rowFilter.to();
+    }
+
+    /**
+     * Создает DTO записи ремонта. Вызывается под блокировкой.
+     * 
+     * @param row номер строки
+     * @return DTO записи ремонта
+     */
+    private AtmRepairDto createDto(int row) {
+        return AtmRepairDto.builder()
+                .caseId(caseIds[row])
+                .atmId(name(AtmRepairDictionary.ATM, atmCodes[row]))
+                .reason(name(AtmRepairDictionary.REASON, reasonCodes[row]))
+                .startTime(toLocalDateTime(startTimes[row]))
+                .endTime(toLocalDateTime(endTimes[row]))
+                .serialNumber(serialNumbers[row])
+                .bankName(name(AtmRepairDictionary.BANK, bankCodes[row]))
+                .channel(name(AtmRepairDictionary.CHANNEL, channelCodes[row]))
+                .build();
+    }
+
+    /**
+     * Выполняет действие под блокировкой чтения, предварительно перестроив порядок строк, если
+     * данные изменились.
+     * 
+     * @param <T> тип результата
+     * @param action действие
+     * @return результат действия
+     */
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            if (order == null) {
+                lock.readLock().unlock();
+                lock.writeLock().lock();
+                try {
+                    if (order == null) {
+                        buildOrder();
+                    }
+                    lock.readLock().lock();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Строит перестановку строк, упорядоченную по АТМ, причине и времени начала ремонта.
+     * <p>
+     * Строки сортируются по времени начала, затем устойчивой сортировкой подсчетом по причине и
+     * по АТМ в лексикографическом порядке значений.
+     */
+    private void buildOrder() {
+        long minStart = Long.MAX_VALUE;
+        for (int row = 0; row < size; row++) {
+            minStart = Math.min(minStart, startTimes[row]);
+        }
+        // Ключ сортировки: смещение времени начала (до 2^32 секунд) и номер строки
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            keys[row] = ((startTimes[row] - minStart) << 31) | row;
+        }
+        Arrays.sort(keys);
+        int[] byStart = new int[size];
+        for (int i = 0; i < size; i++) {
+            byStart[i] = (int) (keys[i] & Integer.MAX_VALUE);
+        }
+
+        int[] byReason = countingSort(byStart, reasonCodes,
+                ranks(AtmRepairDictionary.REASON, reasonCodeLimit));
+        int[] sorted = countingSort(byReason, atmCodes,
+                ranks(AtmRepairDictionary.ATM, atmCodeLimit));
+
+        long[] sortedStartTimes = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedStartTimes[i] = startTimes[sorted[i]];
+        }
+        orderedStartTimes = sortedStartTimes;
+        order = sorted;
+    }
+
+    /**
+     * Возвращает ранги значений справочника в лексикографическом порядке.
+     * 
+     * @param dictionary справочник значений колонки
+     * @param limit наибольший идентификатор в строках, увеличенный на 1
+     * @return ранги значений по идентификатору
+     */
+    private int[] ranks(AtmRepairDictionary dictionary, int limit) {
+        String[] names = new String[limit];
+        Integer[] sorted = new Integer[limit];
+        for (int code = 0; code < limit; code++) {
+            names[code] = name(dictionary, code);
+            sorted[code] = code;
+        }
+        Arrays.sort(sorted, (a, b) -> compare(names[a], names[b]));
+        int[] result = new int[limit];
+        for (int rank = 0; rank < limit; rank++) {
+            result[sorted[rank]] = rank;
+        }
+        return result;
+    }
+
+    /**
+     * Сравнивает значения колонки, пустое значение меньше остальных.
+     * 
+     * @param a значение
+     * @param b значение
+     * @return результат сравнения
+     */
+    private static int compare(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * Устойчиво сортирует строки подсчетом по рангу значения колонки.
+     * 
+     * @param rows номера строк
+     * @param codes коды значений колонки
+     * @param ranks ранги значений по коду
+     * @return отсортированные номера строк
+     */
+    private static int[] countingSort(int[] rows, int[] codes, int[] ranks) {
+        int[] offsets = new int[ranks.length + 1];
+        for (int row : rows) {
+            offsets[ranks[codes[row]] + 1]++;
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+        int[] result = new int[rows.length];
+        for (int row : rows) {
+            result[offsets[ranks[codes[row]]]++] = row;
+        }
+        return result;
+    }
+
+    /**
+     * Увеличивает размер массивов колонок.
+     * 
+     * @param capacity необходимый размер
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= caseIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, caseIds.length * 2);
+        caseIds = Arrays.copyOf(caseIds, newCapacity);
+        atmCodes = Arrays.copyOf(atmCodes, newCapacity);
+        reasonCodes = Arrays.copyOf(reasonCodes, newCapacity);
+        bankCodes = Arrays.copyOf(bankCodes, newCapacity);
+        channelCodes = Arrays.copyOf(channelCodes, newCapacity);
+        startTimes = Arrays.copyOf(startTimes, newCapacity);
+        endTimes = Arrays.copyOf(endTimes, newCapacity);
+        serialNumbers = Arrays.copyOf(serialNumbers, newCapacity);
+    }
+
+    /**
+     * Возвращает время в секундах от начала эпохи.
+     * 
+     * @param time дата и время
+     * @return время в секундах от начала эпохи или {@link #NO_TIME}
+     */
+    public static long toEpochSecond(LocalDateTime time) {
+        return time == null ? NO_TIME : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Возвращает дату и время по количеству секунд от начала эпохи.
+     * 
+     * @param epochSecond время в секундах от начала эпохи или {@link #NO_TIME}
+     * @return дата и время
+     */
+    public static LocalDateTime toLocalDateTime(long epochSecond) {
+        return epochSecond == NO_TIME ? null
+                : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Группа ремонтов.
+     * 
+     * @param atmId идентификатор АТМ, если группа по АТМ
+     * @param reason причина ремонта
+     * @param count количество ремонтов в группе
+     * @param rows номера строк ремонтов группы
+     */
+    public record Group(String atmId, String reason, int count, int[] rows) {
+    }
+
+    /**
+     * Условия отбора строк.
+     * 
+     * @param atm код АТМ, {@link #ANY_CODE} - без условия
+     * @param reason код причины, {@link #ANY_CODE} - без условия
+     * @param bank код банка, {@link #ANY_CODE} - без условия
+     * @param channel код канала, {@link #ANY_CODE} - без условия
+     * @param from начало периода по времени начала ремонта в секундах, включительно
+     * @param to окончание периода по времени начала ремонта в секундах, не включительно
+     */
+    private record RowFilter(int atm, int reason, int bank, int channel, long from, long to) {
+    }
+
+}
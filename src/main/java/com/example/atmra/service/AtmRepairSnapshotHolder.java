@@ -0,0 +1,163 @@
+package com.example.atmra.service;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.atmra.entity.AtmRepairDictionary;
+import com.example.atmra.entity.LocalDateTimeAsIsoTextConverter;
+import com.example.atmra.repository.AtmRepairDictionaryRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Хранитель снимка таблицы ремонтов в памяти.
+ * <p>
+ * Снимок загружается из БД посредством JDBC при первом обращении и далее поддерживается в
+ * актуальном состоянии по событиям {@link AtmRepairDataChangedEvent} после фиксации транзакции.
+ */
+@Component
+@ConditionalOnProperty(name = "atm-service.type", havingValue = "code")
+@RequiredArgsConstructor
+@Slf4j
+public class AtmRepairSnapshotHolder {
+
+    /** Запрос всех записей таблицы ремонтов с идентификаторами справочников */
+    private static final String SELECT_ALL_SQL = """
+            SELECT case_id, atm_ref, reason_ref, start_time, end_time, serial_number_ref,
+                   bank_ref, channel_ref
+            FROM repairs
+            ORDER BY case_id
+            """;
+
+    /** Количество строк, получаемых из БД за одно обращение */
+    private static final int FETCH_SIZE = 1000;
+
+    /** Конвертер даты для полей даты в БД */
+    private static final LocalDateTimeAsIsoTextConverter DATE_CONVERTER =
+            new LocalDateTimeAsIsoTextConverter();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final AtmRepairConfiguration atmRepairConfiguration;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtmRepairDictionaryRepository atmRepairDictionaryRepository;
+
+    /** Транзакция только для чтения, в которой загружается снимок */
+    private TransactionTemplate readOnlyTransaction;
+
+    /** Снимок или {@code null}, если еще не загружен */
+    private AtmRepairSnapshot snapshot;
+
+    /** Пул потоков поиска повторных поломок или {@code null}, если поиск в потоке запроса */
+    private ForkJoinPool recurrencePool;
+
+    /**
+     * Создает транзакцию загрузки снимка и пул потоков поиска повторных поломок.
+     */
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        int parallelism = atmRepairConfiguration.getRecurrenceParallelism();
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        if (parallelism > 1) {
+            recurrencePool = new ForkJoinPool(parallelism);
+        }
+    }
+
+    /**
+     * Останавливает пул потоков поиска повторных поломок.
+     */
+    @PreDestroy
+    void destroy() {
+        if (recurrencePool != null) {
+            recurrencePool.shutdownNow();
+        }
+    }
+
+    /**
+     * Возвращает снимок таблицы ремонтов, загружая его при первом обращении.
+     * 
+     * @return снимок таблицы ремонтов
+     */
+    public synchronized AtmRepairSnapshot get() {
+        if (snapshot == null) {
+            snapshot = load();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Возвращает пул потоков поиска повторных поломок.
+     * 
+     * @return пул потоков или {@code null}, если поиск выполняется в потоке запроса
+     */
+    public ForkJoinPool getRecurrencePool() {
+        return recurrencePool;
+    }
+
+    /**
+     * Применяет изменения данных к загруженному снимку. Выполняется раньше сброса
+     * {@link AtmRepairAnalysisCache}, чтобы новые результаты анализа строились по измененному
+     * снимку.
+     * 
+     * @param event событие изменения данных
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public synchronized void onDataChanged(AtmRepairDataChangedEvent event) {
+        if (snapshot == null) {
+            return;
+        }
+        if (event.cleared()) {
+            snapshot.clear();
+        }
+        snapshot.apply(event.changed());
+    }
+
+    /**
+     * Загружает снимок таблицы ремонтов из БД. Колонки справочников {@link AtmRepairDictionary}
+     * записываются в снимок идентификаторами, серийный номер берется из справочника в памяти.
+     * 
+     * @return снимок таблицы ремонтов
+     */
+    private AtmRepairSnapshot load() {
+        long start = System.currentTimeMillis();
+        AtmRepairSnapshot result = new AtmRepairSnapshot(atmRepairDictionaryRepository);
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_ALL_SQL);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            result.put(rs.getLong(1),
+                    rs.getInt(2),
+                    rs.getInt(3),
+                    AtmRepairSnapshot.toEpochSecond(
+                            DATE_CONVERTER.convertToEntityAttribute(rs.getString(4))),
+                    AtmRepairSnapshot.toEpochSecond(
+                            DATE_CONVERTER.convertToEntityAttribute(rs.getString(5))),
+                    atmRepairDictionaryRepository.name(AtmRepairDictionary.SERIAL_NUMBER,
+                            rs.getInt(6)),
+                    rs.getInt(7),
+                    rs.getInt(8));
+        }));
+        log.info("Загружен снимок таблицы ремонтов: {} записей за {} мс", result.size(),
+                System.currentTimeMillis() - start);
+        return result;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.example.atmra.service;
+
+import java.util.function.Consumer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.atmra.dto.AtmRepairFilterDto;
+
+/**
+ * Сервис работы с таблицей ремонтов посредством Сriteria API и оконных функций SQL.
+ * <p>
+ * Повторные поломки всегда определяются одним запросом с {@code LAG}/{@code LEAD}, остальные
+ * данные возвращаются так же, как в {@link AtmRepairCBService}.
+ */
+@Service
+@ConditionalOnProperty(name = "atm-service.type", havingValue = "sql")
+public class AtmRepairSqlService extends AtmRepairCBService {
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamCauseFailureRecurred(AtmRepairFilterDto filter, Consumer<Object> sink) {
+        writeGroupedByAtmAndReason(streamCauseFailureRecurredByWindow(filter), sink);
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.example.atmra.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.atmra.dto.AtmRepairImportResultDto;
+import com.example.atmra.dto.AtmRepairUploadJobDto;
+import com.example.atmra.dto.AtmRepairUploadJobDto.Status;
+
+import lombok.Getter;
+
+/**
+ * Задача загрузки файлов в таблицу ремонтов.
+ */
+class AtmRepairUploadJob implements AtmRepairImportProgress {
+
+    @Getter
+    private final String jobId;
+
+    private final String fileName;
+
+    private volatile Status status = Status.QUEUED;
+
+    private volatile int sheetCount;
+
+    private final AtomicInteger sheetsParsed = new AtomicInteger();
+
+    private final AtomicLong rowsParsed = new AtomicLong();
+
+    private final AtomicLong inserted = new AtomicLong();
+
+    private final AtomicLong updated = new AtomicLong();
+
+    private final AtomicLong unchanged = new AtomicLong();
+
+    private volatile LocalDateTime startTime;
+
+    @Getter
+    private volatile LocalDateTime endTime;
+
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    AtmRepairUploadJob(String jobId, String fileName) {
+        this.jobId = jobId;
+        this.fileName = fileName;
+    }
+
+    /**
+     * Отмечает начало выполнения задачи.
+     */
+    void start() {
+        startTime = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    /**
+     * Отмечает успешное завершение задачи.
+     */
+    void done() {
+        endTime = LocalDateTime.now();
+        status = Status.DONE;
+    }
+
+    /**
+     * Отмечает завершение задачи с ошибкой.
+     * 
+     * @param message текст ошибки
+     */
+    void failed(String message) {
+        errors.add(message);
+        endTime = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+
+    @Override
+    public void sheetsFound(int count) {
+        sheetCount = count;
+    }
+
+    @Override
+    public void sheetParsed() {
+        sheetsParsed.incrementAndGet();
+    }
+
+    @Override
+    public void sheetFailed(String sheetName, String message) {
+        errors.add(sheetName + ": " + message);
+    }
+
+    @Override
+    public void rowsParsed(int count) {
+        rowsParsed.addAndGet(count);
+    }
+
+    @Override
+    public void rowsPersisted(AtmRepairImportResultDto result) {
+        inserted.addAndGet(result.getInserted());
+        updated.addAndGet(result.getUpdated());
+        unchanged.addAndGet(result.getUnchanged());
+    }
+
+    /**
+     * Возвращает DTO состояния задачи.
+     * 
+     * @return DTO состояния задачи
+     */
+    AtmRepairUploadJobDto toDto() {
+        long persisted = inserted.get() + updated.get() + unchanged.get();
+        LocalDateTime started = startTime;
+        double rowsPerSecond = 0;
+        if (started != null) {
+            LocalDateTime finished = endTime != null ? endTime : LocalDateTime.now();
+            long millis = Duration.between(started, finished).toMillis();
+            rowsPerSecond = millis > 0 ? persisted * 1000.0 / millis : 0;
+        }
+        return AtmRepairUploadJobDto.builder()
+                .jobId(jobId)
+                .fileName(fileName)
+                .status(status)
+                .sheetCount(sheetCount)
+                .sheetsParsed(sheetsParsed.get())
+                .rowsParsed(rowsParsed.get())
+                .rowsPersisted(persisted)
+                .insertedCount(inserted.get())
+                .updatedCount(updated.get())
+                .unchangedCount(unchanged.get())
+                .rowsPerSecond(rowsPerSecond)
+                .startTime(started)
+                .endTime(endTime)
+                .errors(List.copyOf(errors))
+                .build();
+    }
+
+}
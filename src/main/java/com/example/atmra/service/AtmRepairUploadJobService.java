@@ -0,0 +1,168 @@
+package com.example.atmra.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.atmra.dto.AtmRepairUploadJobDto;
+import com.example.atmra.service.AtmRepairFileService.Source;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Сервис асинхронной загрузки файлов в таблицу ремонтов.
+ * <p>
+ * Файлы обрабатываются на ограниченном пуле виртуальных потоков, состояние задач хранится в
+ * памяти и доступно по идентификатору задачи. Состояние завершенной задачи удаляется через
+ * {@link AtmRepairConfiguration#getUploadJobTtl()} после ее завершения.
+ */
+@Service
+@Slf4j
+public class AtmRepairUploadJobService {
+
+    private final AtmRepairFileService atmRepairFileService;
+
+    private final AtmRepairConfiguration atmRepairConfiguration;
+
+    /** Задачи загрузки по идентификатору */
+    private final Map<String, AtmRepairUploadJob> jobs = new ConcurrentHashMap<>();
+
+    /** Исполнитель задач загрузки */
+    private final ExecutorService executor;
+
+    /** Планировщик удаления завершенных задач */
+    private final ScheduledExecutorService cleaner;
+
+    public AtmRepairUploadJobService(AtmRepairFileService atmRepairFileService,
+            AtmRepairConfiguration atmRepairConfiguration) {
+        this.atmRepairFileService = atmRepairFileService;
+        this.atmRepairConfiguration = atmRepairConfiguration;
+        int threads = Math.max(1, atmRepairConfiguration.getUploadThreads());
+        int queueCapacity = Math.max(1, atmRepairConfiguration.getUploadQueueCapacity());
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofVirtual().name("atm-upload-", 0).factory());
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("atm-upload-cleaner").daemon().factory());
+    }
+
+    /**
+     * Ставит файлы в очередь на загрузку в таблицу ремонтов одной задачей.
+     * <p>
+     * Содержимое файлов копируется во временные файлы до возврата из метода, поэтому запрос
+     * может быть завершен сразу.
+     * 
+     * @param files XLS, XLSX или ZIP файлы
+     * @return состояние созданной задачи
+     * @throws IOException в случае ошибки сохранения временного файла
+     * @throws RejectedExecutionException если очередь задач заполнена
+     */
+    public AtmRepairUploadJobDto submit(List<MultipartFile> files) throws IOException {
+        List<Source> sources = new ArrayList<>(files.size());
+        AtmRepairUploadJob job = new AtmRepairUploadJob(UUID.randomUUID().toString(),
+                String.join(", ", files.stream().map(MultipartFile::getOriginalFilename)
+                        .toList()));
+        try {
+            for (MultipartFile file : files) {
+                File tempFile = Files.createTempFile("atm-repairs-", ".upload").toFile();
+                sources.add(new Source(file.getOriginalFilename(), tempFile));
+                file.transferTo(tempFile);
+            }
+            jobs.put(job.getJobId(), job);
+            executor.execute(() -> run(job, sources));
+        } catch (IOException | RuntimeException e) {
+            jobs.remove(job.getJobId());
+            deleteFiles(sources);
+            throw e;
+        }
+        return job.toDto();
+    }
+
+    /**
+     * Возвращает состояние задачи загрузки.
+     * 
+     * @param jobId идентификатор задачи
+     * @return состояние задачи
+     */
+    public Optional<AtmRepairUploadJobDto> findJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(AtmRepairUploadJob::toDto);
+    }
+
+    /**
+     * Выполняет задачу загрузки файлов.
+     * 
+     * @param job задача
+     * @param sources временные файлы с данными
+     */
+    private void run(AtmRepairUploadJob job, List<Source> sources) {
+        job.start();
+        try {
+            atmRepairFileService.saveData(sources, job);
+            job.done();
+        } catch (Exception e) {
+            log.error("Ошибка при обработке файла", e);
+            job.failed("Ошибка при обработке файла: " + e.getMessage());
+        } finally {
+            deleteFiles(sources);
+            scheduleRemoval(job);
+        }
+    }
+
+    /**
+     * Удаляет временные файлы.
+     * 
+     * @param sources временные файлы с данными
+     */
+    private void deleteFiles(List<Source> sources) {
+        for (Source source : sources) {
+            try {
+                Files.deleteIfExists(source.file().toPath());
+            } catch (IOException e) {
+                log.warn("Не удалось удалить временный файл {}", source.file(), e);
+            }
+        }
+    }
+
+    /**
+     * Планирует удаление завершенной задачи через
+     * {@link AtmRepairConfiguration#getUploadJobTtl()}.
+     * 
+     * @param job завершенная задача
+     */
+    private void scheduleRemoval(AtmRepairUploadJob job) {
+        long ttl = Math.max(0, atmRepairConfiguration.getUploadJobTtl().toMillis());
+        try {
+            cleaner.schedule(() -> jobs.remove(job.getJobId(), job), ttl, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Приложение останавливается
+            jobs.remove(job.getJobId(), job);
+        }
+    }
+
+    /**
+     * Останавливает исполнитель и планировщик удаления задач.
+     */
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        cleaner.shutdownNow();
+    }
+
+}
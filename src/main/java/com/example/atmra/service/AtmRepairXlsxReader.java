@@ -0,0 +1,289 @@
+package com.example.atmra.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.xmlbeans.XmlException;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbookPr;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorkbookDocument;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Потоковый читатель XLSX файла с данными ремонтов.
+ * <p>
+ * Лист разбирается SAX парсером через {@link XSSFReader}, поэтому в памяти одновременно находится
+ * только одна строка листа, а не вся книга. Каждое чтение листа открывает книгу заново, поэтому
+ * листы одной книги можно читать параллельно.
+ */
+class AtmRepairXlsxReader {
+
+    /** Количество колонок с данными ремонта */
+    static final int COLUMN_COUNT = 8;
+
+    private AtmRepairXlsxReader() {
+    }
+
+    /**
+     * Возвращает имена листов XLSX файла в порядке следования в книге.
+     * 
+     * @param file XLSX файл
+     * @return имена листов
+     * @throws IOException в случае ошибки чтения из файла
+     */
+    static List<String> sheetNames(File file) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            List<String> result = new ArrayList<>();
+            XSSFReader.SheetIterator sheets =
+                    (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                result.add(sheets.getSheetName());
+            }
+            return result;
+        } catch (OpenXML4JException e) {
+            throw new IOException("Ошибка чтения XLSX файла: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает признак строки без значений.
+     * 
+     * @param values значения ячеек строки
+     * @return признак строки без значений
+     */
+    static boolean isBlank(Object[] values) {
+        for (Object value : values) {
+            if (value != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Читает лист XLSX файла и передает значения ячеек каждой строки, кроме заголовка и строк
+     * без значений.
+     * <p>
+     * Значения ячеек соответствуют {@link org.apache.poi.ss.usermodel.Cell}: строка для
+     * текстовых ячеек, {@link java.time.LocalDateTime} для дат, {@link Long} для чисел, иначе
+     * {@code null}.
+     * 
+     * @param file XLSX файл
+     * @param sheetIndex номер листа, начиная с 0
+     * @param rowConsumer получатель значений ячеек строки
+     * @throws IOException в случае ошибки чтения из файла или строки без идентификатора ремонта
+     */
+    static void read(File file, int sheetIndex, Consumer<Object[]> rowConsumer)
+            throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            SheetHandler handler = new SheetHandler(
+                    new ReadOnlySharedStringsTable(pkg),
+                    reader.getStylesTable(),
+                    isDate1904(reader),
+                    rowConsumer);
+
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            for (int i = 0; i < sheetIndex && sheets.hasNext(); i++) {
+                sheets.next().close();
+            }
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader xmlReader = XMLHelper.newXMLReader();
+                xmlReader.setContentHandler(handler);
+                xmlReader.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Ошибка чтения XLSX файла: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Возвращает признак использования в книге системы дат 1904 года.
+     * 
+     * @param reader читатель книги
+     * @return признак использования системы дат 1904 года
+     */
+    private static boolean isDate1904(XSSFReader reader)
+            throws IOException, OpenXML4JException {
+        try (InputStream workbook = reader.getWorkbookData()) {
+            CTWorkbookPr workbookPr = WorkbookDocument.Factory.parse(workbook)
+                    .getWorkbook()
+                    .getWorkbookPr();
+            return workbookPr != null && workbookPr.getDate1904();
+        } catch (XmlException e) {
+            throw new IOException("Ошибка чтения XLSX файла: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * SAX обработчик листа книги.
+     */
+    private static class SheetHandler extends DefaultHandler {
+
+        private final SharedStrings sharedStrings;
+
+        private final StylesTable stylesTable;
+
+        private final boolean date1904;
+
+        private final Consumer<Object[]> rowConsumer;
+
+        /** Признаки форматирования даты по индексу стиля */
+        private final Map<Integer, Boolean> dateStyles = new HashMap<>();
+
+        /** Текст значения текущей ячейки */
+        private final StringBuilder text = new StringBuilder();
+
+        /** Значения ячеек текущей строки */
+        private Object[] values;
+
+        /** Номер текущей строки (с 0) */
+        private int rowNum;
+
+        /** Номер текущей колонки (с 0) */
+        private int column;
+
+        /** Тип текущей ячейки */
+        private String cellType;
+
+        /** Индекс стиля текущей ячейки */
+        private int styleIndex;
+
+        /** Признак ячейки с формулой */
+        private boolean formula;
+
+        /** Признак чтения значения ячейки */
+        private boolean inValue;
+
+        SheetHandler(SharedStrings sharedStrings, StylesTable stylesTable, boolean date1904,
+                Consumer<Object[]> rowConsumer) {
+            this.sharedStrings = sharedStrings;
+            this.stylesTable = stylesTable;
+            this.date1904 = date1904;
+            this.rowConsumer = rowConsumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName,
+                Attributes attributes) {
+            switch (localName) {
+            case "row" -> {
+                String r = attributes.getValue("r");
+                rowNum = r == null ? rowNum + 1 : Integer.parseInt(r) - 1;
+                values = new Object[COLUMN_COUNT];
+                column = -1;
+            }
+            case "c" -> {
+                String r = attributes.getValue("r");
+                column = r == null ? column + 1 : new CellReference(r).getCol();
+                cellType = attributes.getValue("t");
+                String s = attributes.getValue("s");
+                styleIndex = s == null ? 0 : Integer.parseInt(s);
+                formula = false;
+                text.setLength(0);
+            }
+            case "f" -> formula = true;
+            case "v", "t" -> inValue = true;
+            default -> {
+            }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName)
+                throws SAXException {
+            switch (localName) {
+            case "v", "t" -> inValue = false;
+            case "c" -> {
+                if (column < COLUMN_COUNT) {
+                    values[column] = getCellValue();
+                }
+            }
+            case "row" -> {
+                if (rowNum > 0 && !isBlank(values)) {
+                    if (values[0] == null) {
+                        throw new SAXException(
+                                "строка " + (rowNum + 1) + ", не задан идентификатор ремонта");
+                    }
+                    rowConsumer.accept(values);
+                }
+                values = null;
+            }
+            default -> {
+            }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue) {
+                text.append(ch, start, length);
+            }
+        }
+
+        /**
+         * Возвращает значение текущей ячейки.
+         * 
+         * @return значение ячейки
+         */
+        private Object getCellValue() {
+            if (formula || text.isEmpty()) {
+                return null;
+            }
+            if (cellType == null || cellType.equals("n")) {
+                double value = Double.parseDouble(text.toString());
+                if (isDateStyle(styleIndex)) {
+                    return DateUtil.getLocalDateTime(value, date1904);
+                }
+                return Double.valueOf(value).longValue();
+            }
+            return switch (cellType) {
+            case "s" -> sharedStrings.getItemAt(Integer.parseInt(text.toString())).getString();
+            case "inlineStr", "str" -> text.toString();
+            default -> null;
+            };
+        }
+
+        /**
+         * Возвращает признак форматирования даты для стиля ячейки.
+         * 
+         * @param index индекс стиля
+         * @return признак форматирования даты
+         */
+        private boolean isDateStyle(int index) {
+            return dateStyles.computeIfAbsent(index, i -> {
+                XSSFCellStyle style = stylesTable.getStyleAt(i);
+                return style != null && DateUtil.isADateFormat(style.getDataFormat(),
+                        style.getDataFormatString());
+            });
+        }
+
+    }
+
+}
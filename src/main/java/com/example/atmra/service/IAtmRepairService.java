@@ -1,11 +1,23 @@
 package com.example.atmra.service;
 
 import java.util.List;
+import java.util.function.Consumer;
 
+import org.springframework.cache.annotation.Cacheable;
+
+import com.example.atmra.dto.AtmRepairAggregateCheckDto;
 import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairFilterDto;
+import com.example.atmra.dto.AtmRepairImportResultDto;
+import com.example.atmra.dto.AtmRepairPageDto;
+import com.example.atmra.dto.AtmRepairPageRequestDto;
 
 /**
  * Интерфейс сервиса работы с таблицей ремонтов.
+ * <p>
+ * Данные и результаты анализа отбираются условиями {@link AtmRepairFilterDto}: анализ
+ * выполняется только по ремонтам, удовлетворяющим условиям. Незаполненные условия не
+ * применяются.
  */
 public interface IAtmRepairService {
 
@@ -25,39 +37,99 @@ public interface IAtmRepairService {
     void deleteAll();
 
     /**
-     * Возвращает все данные из таблицы ремонтов.
+     * Передает данные из таблицы ремонтов получателю по мере чтения из БД.
+     * 
+     * @param filter условия отбора
+     * @param sink получатель данных
+     */
+    void streamAll(AtmRepairFilterDto filter, Consumer<? super AtmRepairDto> sink);
+
+    /**
+     * Возвращает страницу данных из таблицы ремонтов.
+     * <p>
+     * Страницы читаются по значениям ключа сортировки последней записи предыдущей страницы, без
+     * пропуска предыдущих записей в БД.
      * 
-     * @return набор данных
+     * @param filter условия отбора
+     * @param request сортировка, позиция и размер страницы
+     * @return страница данных
      */
-    List<AtmRepairDto> findAll();
+    AtmRepairPageDto findPage(AtmRepairFilterDto filter, AtmRepairPageRequestDto request);
 
     /**
      * Обновляет или создает запись в таблице ремонтов.
      * 
      * @param dtoList данные для обновления
+     * @return количество добавленных, обновленных и неизмененных записей
+     * @throws IllegalArgumentException если у записи не задан идентификатор
      */
-    void createOrUpdate(List<AtmRepairDto> dtoList);
+    AtmRepairImportResultDto createOrUpdate(List<AtmRepairDto> dtoList);
+
+    /**
+     * Сравнивает агрегаты таблицы ремонтов с пересчитанными по таблице ремонтов.
+     * 
+     * @return количество расхождений по каждому агрегату
+     */
+    AtmRepairAggregateCheckDto checkAggregates();
+
+    /**
+     * Пересчитывает агрегаты таблицы ремонтов.
+     * 
+     * @return количество расхождений по каждому агрегату до пересчета
+     */
+    AtmRepairAggregateCheckDto rebuildAggregates();
 
     /**
      * Возвращает из таблицы ремонтов наиболее часто встречающиеся причины неисправности.
      * 
+     * @param filter условия отбора ремонтов
      * @return данные
      */
-    List<Object> findMostCommonCauses();
+    @Cacheable(cacheNames = AtmRepairAnalysisCache.CACHE_NAME,
+            keyGenerator = AtmRepairAnalysisCache.KEY_GENERATOR)
+    List<Object> findMostCommonCauses(AtmRepairFilterDto filter);
+
+    /**
+     * Передает получателю наиболее часто встречающиеся причины неисправности в том же порядке,
+     * что и {@link #findMostCommonCauses(AtmRepairFilterDto)}, не собирая результат в памяти.
+     * 
+     * @param filter условия отбора ремонтов
+     * @param sink получатель заголовков групп и данных ремонтов
+     */
+    default void streamMostCommonCauses(AtmRepairFilterDto filter, Consumer<Object> sink) {
+        findMostCommonCauses(filter).forEach(sink);
+    }
 
     /**
      * Возвращает из таблицы ремонтов наиболее долгие ремонты.
      * 
+     * @param filter условия отбора ремонтов
      * @return данные
      */
-    List<Object> findLongestRepairTimes();
+    @Cacheable(cacheNames = AtmRepairAnalysisCache.CACHE_NAME,
+            keyGenerator = AtmRepairAnalysisCache.KEY_GENERATOR)
+    List<Object> findLongestRepairTimes(AtmRepairFilterDto filter);
 
     /**
      * Возвращает из таблицы ремонтов причина поломки которые повторилась в течение определенного
-     * количества дней.
+     * количества дней. Повторы ищутся только среди отобранных ремонтов.
      * 
+     * @param filter условия отбора ремонтов
      * @return данные
      */
-    Object findCauseFailureRecurred();
+    @Cacheable(cacheNames = AtmRepairAnalysisCache.CACHE_NAME,
+            keyGenerator = AtmRepairAnalysisCache.KEY_GENERATOR)
+    Object findCauseFailureRecurred(AtmRepairFilterDto filter);
+
+    /**
+     * Передает получателю ремонты, причина поломки которых повторилась, в том же порядке, что и
+     * {@link #findCauseFailureRecurred(AtmRepairFilterDto)}, не собирая результат в памяти.
+     * 
+     * @param filter условия отбора ремонтов
+     * @param sink получатель заголовков групп и данных ремонтов
+     */
+    default void streamCauseFailureRecurred(AtmRepairFilterDto filter, Consumer<Object> sink) {
+        ((List<?>) findCauseFailureRecurred(filter)).forEach(sink);
+    }
 
 }
@@ -0,0 +1,89 @@
+package com.example.atmra.service;
+
+import java.util.Arrays;
+
+/**
+ * Ограниченная выборка K наибольших значений типа {@code long}.
+ * <p>
+ * Значения хранятся в двоичной куче минимумов размера K: добавление значения выполняется за
+ * O(log K), память O(K) не зависит от количества просмотренных значений.
+ */
+class LongTopK {
+
+    /** Куча минимумов */
+    private final long[] heap;
+
+    /** Количество значений в куче */
+    private int size;
+
+    /**
+     * Создает выборку.
+     * 
+     * @param k количество наибольших значений
+     */
+    LongTopK(int k) {
+        this.heap = new long[Math.max(0, k)];
+    }
+
+    /**
+     * Добавляет значение в выборку, если оно входит в K наибольших.
+     * 
+     * @param value значение
+     */
+    void offer(long value) {
+        if (size < heap.length) {
+            heap[size] = value;
+            siftUp(size++);
+        } else if (size > 0 && value > heap[0]) {
+            heap[0] = value;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Возвращает выбранные значения в порядке убывания.
+     * 
+     * @return выбранные значения
+     */
+    long[] toDescendingArray() {
+        long[] result = Arrays.copyOf(heap, size);
+        Arrays.sort(result);
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+            long value = result[i];
+            result[i] = result[j];
+            result[j] = value;
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        long value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] <= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private void siftDown(int index) {
+        long value = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (value <= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+}
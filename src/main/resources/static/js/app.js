@@ -3,6 +3,21 @@ document.addEventListener('DOMContentLoaded', function() {
     /** URL REST сервиса возвращающий данные из таблицы ремонтов в соотвествии с типом данных */
     const ANALIZE_URL = '/api/incidents/data/';
 
+    /** URL REST сервиса возвращающий страницу данных из таблицы ремонтов */
+    const ANALIZE_PAGE_URL = '/api/incidents/repairs';
+
+    /** Количество записей на странице при просмотре всех данных */
+    const ANALIZE_PAGE_SIZE = 200;
+
+    /** Параметры адреса страницы с условиями отбора ремонтов, передаваемые в REST сервисы */
+    const ANALIZE_FILTER_PARAMS = ['atmId', 'reason', 'bankName', 'channel', 'from', 'to'];
+
+    /** Версия формата ответа REST сервиса анализа: группы с типом и значениями заголовка */
+    const ANALIZE_RESULT_VERSION = '2';
+
+    /** Параметры адреса страницы с сортировкой всех данных ремонтов */
+    const ANALIZE_SORT_PARAMS = ['sort', 'direction'];
+
     /** URL REST сервиса обновления записи в таблице ремонтов */
     const ANALIZE_UPDATE_URL = '/api/incidents/update';
 
@@ -12,6 +27,16 @@ document.addEventListener('DOMContentLoaded', function() {
     /** URL REST сервиса загружающего данные из XLS файла в таблицу ремонтов */
     const ANALIZE_UPLOAD_DATA_URL = '/api/incidents/upload';
 
+    /** Заголовки групп данных ремонтов по типу группы */
+    const GROUP_TITLES = {
+        MOST_COMMON_CAUSE: group => `${group.reason} (Всего: ${group.count})`,
+        LONGEST_REPAIR: group => `${group.reason}. Время ремонта ${group.durationHours} часов`,
+        CAUSE_FAILURE_RECURRED: group => `АТМ: ${group.atmId}. ${group.reason}`
+    };
+
+    /** Интервал опроса состояния задачи загрузки файла, мс */
+    const UPLOAD_JOB_POLL_INTERVAL = 1000;
+
     /** Список кнопок анализа ремонтов */
     const ANALIZE_BUTTONS = [
         {
@@ -80,6 +105,96 @@ document.addEventListener('DOMContentLoaded', function() {
         return noResponse || response.json();
     }
 
+    /**
+     * Подготавливает строки данных ремонтов к отображению и фильтрации
+     * 
+     * @param {Array} data строки данных и заголовки групп
+     * @return {Array} подготовленные строки
+     */
+    function prepareRows(data) {
+        data.forEach(obj => {
+            if (!obj.groupTitle) {
+                obj.startTime = obj.startTime.slice(0, 16);
+                obj.endTime = obj.endTime.slice(0, 16);
+                obj.textForFilter =
+                    Object.values(obj).join(' ')
+                        .concat(formatDate(obj.startTime)).concat(' ')
+                        .concat(formatDate(obj.endTime)).toLowerCase();
+            }
+        });
+        return data;
+    }
+
+    /**
+     * Преобразует группы данных ремонтов в список строк, в котором данным ремонтов группы
+     * предшествует заголовок группы
+     * 
+     * @param {Object} result группы данных ремонтов
+     * @return {Array} строки данных и заголовки групп
+     */
+    function flattenGroups(result) {
+        const rows = [];
+        result.groups.forEach(group => {
+            const title = GROUP_TITLES[group.type];
+            if (title) {
+                rows.push({ groupTitle: title(group) });
+            }
+            rows.push(...group.rows);
+        });
+        return rows;
+    }
+
+    /**
+     * Возвращает заданные в адресе страницы параметры запроса
+     * 
+     * @param {Array} names имена параметров
+     * @return {URLSearchParams} параметры запроса
+     */
+    function locationParams(names) {
+        const location = new URLSearchParams(window.location.search);
+        const params = new URLSearchParams();
+        names.filter(name => location.get(name)).forEach(name => params.set(name, location.get(name)));
+        return params;
+    }
+
+    /**
+     * Загружает страницу всех данных ремонтов
+     * 
+     * @param {URLSearchParams} pageParams условия отбора и сортировка первой страницы
+     * @param {String} cursor позиция страницы, не задана для первой страницы
+     * @return {Promise} промис со страницей данных
+     */
+    async function fetchPage(pageParams, cursor) {
+        const params = new URLSearchParams(pageParams);
+        params.set('size', ANALIZE_PAGE_SIZE);
+        if (cursor) {
+            params.set('cursor', cursor);
+        }
+        const response = await fetch(`${ANALIZE_PAGE_URL}?${params}`);
+        const page = await handleResponse(response);
+        page.content = prepareRows(page.content);
+        return page;
+    }
+
+    /**
+     * Догружает следующую страницу всех данных ремонтов
+     */
+    async function loadNextPage() {
+        const md = model.value;
+        md.isLoading = true;
+
+        try {
+            const page = await fetchPage(md.pageParams, md.nextCursor);
+            md.analizeData.push(...page.content);
+            md.nextCursor = page.nextCursor;
+        } catch (error) {
+            md.errorMessage = `Ошибка при загрузке данных. ${error.message}`;
+            console.error(md.errorMessage, error);
+        } finally {
+            md.isLoading = false;
+        }
+    }
+
     /**
      * Переключает тип анализа ремонтов
      * 
@@ -95,20 +210,18 @@ document.addEventListener('DOMContentLoaded', function() {
         md.isLoading = true;
         
         try {
-            const response = await fetch(ANALIZE_URL + ANALIZE_TYPES[type].name);
-            const data = await handleResponse(response);
-            
-            data.forEach(obj => {
-                if (!obj.groupTitle) {
-                    obj.startTime = obj.startTime.slice(0, 16);
-                    obj.endTime = obj.endTime.slice(0, 16);
-                    obj.textForFilter =
-                        Object.values(obj).join(' ')
-                            .concat(formatDate(obj.startTime)).concat(' ')
-                            .concat(formatDate(obj.endTime)).toLowerCase();
-                }
-            });
-            md.analizeData = data;
+            if (type === 'allData') {
+                md.pageParams = locationParams([...ANALIZE_FILTER_PARAMS, ...ANALIZE_SORT_PARAMS]);
+                const page = await fetchPage(md.pageParams);
+                md.analizeData = page.content;
+                md.nextCursor = page.nextCursor;
+                return;
+            }
+            const params = locationParams(ANALIZE_FILTER_PARAMS);
+            params.set('v', ANALIZE_RESULT_VERSION);
+            const response = await fetch(`${ANALIZE_URL}${ANALIZE_TYPES[type].name}?${params}`);
+            const result = await handleResponse(response);
+            md.analizeData = prepareRows(flattenGroups(result));
         } catch (error) {
             md.errorMessage = `Ошибка при загрузке данных. ${error.message}`;
             console.error(md.errorMessage, error);
@@ -173,22 +286,45 @@ document.addEventListener('DOMContentLoaded', function() {
     }
 
     /**
-     * Загружает выбранный файл на сервер для сохранения даннх ремонтов
+     * Ожидает завершения задачи загрузки файла, отображая ход загрузки
+     * 
+     * @param {String} jobId идентификатор задачи загрузки
+     * @return {Promise} промис с состоянием завершенной задачи
+     */
+    async function waitUploadJob(jobId) {
+        const md = model.value;
+        for (;;) {
+            await new Promise(resolve => setTimeout(resolve, UPLOAD_JOB_POLL_INTERVAL));
+            const response = await fetch(`${ANALIZE_UPLOAD_DATA_URL}/${jobId}`);
+            const job = await handleResponse(response);
+            md.progressMessage =
+                `Обработано листов: ${job.sheetsParsed} из ${job.sheetCount},`
+                + ` строк: ${job.rowsParsed}, сохранено: ${job.rowsPersisted}`
+                + ` (${Math.round(job.rowsPerSecond)} записей/с)`;
+            if (job.status === 'DONE' || job.status === 'FAILED') {
+                return job;
+            }
+        }
+    }
+
+    /**
+     * Загружает выбранные файлы на сервер для сохранения даннх ремонтов
      * 
-     * @param {*} selectedFile выбранный файл
+     * @param {*} selectedFiles выбранные файлы
      */
-    async function uploadSelectedFile(selectedFile) {
+    async function uploadSelectedFiles(selectedFiles) {
         const md = model.value;
         md.setType(false);
-        if (!selectedFile.name.endsWith('.xls')
-            && !selectedFile.name.endsWith('.xlsx')) {
+        const invalid = selectedFiles.find(
+            file => !/\.(xls|xlsx|csv|csv\.gz|zip)$/i.test(file.name));
+        if (invalid) {
             md.errorMessage =
-                'Пожалуйста, выберите файл с расширением .xls или .xlsx';
+                'Пожалуйста, выберите файлы с расширением .xls, .xlsx, .csv, .csv.gz или .zip';
             return;
         }
         md.isLoading = true;
         const formData = new FormData();
-        formData.append('file', selectedFile);
+        selectedFiles.forEach(file => formData.append('file', file));
         
         try {
             const response = await fetch(ANALIZE_UPLOAD_DATA_URL, {
@@ -197,14 +333,24 @@ document.addEventListener('DOMContentLoaded', function() {
             });
             
             const responseData = await handleResponse(response);
+            const job = await waitUploadJob(responseData.jobId);
+            if (job.status === 'FAILED') {
+                throw new Error(job.errors.join('; '));
+            }
             md.successMessage =
-                'Файл успешно загружен и обработан. Записей: '
-                + responseData.recordsCount;
+                (selectedFiles.length > 1 ? 'Файлы успешно загружены и обработаны'
+                    : 'Файл успешно загружен и обработан')
+                + `. Листов: ${job.sheetsParsed}, записей: `
+                + job.rowsPersisted
+                + ` (добавлено: ${job.insertedCount},`
+                + ` обновлено: ${job.updatedCount},`
+                + ` без изменений: ${job.unchangedCount})`;
         } catch (error) {
             console.error('Ошибка при загрузке файла:', error);
             md.errorMessage = `Ошибка при загрузке файла: ${error.message}`;
         } finally {
             md.isLoading = false;
+            md.progressMessage = null;
             document.getElementById('fileInput').value = '';
         }
     }
@@ -223,6 +369,9 @@ document.addEventListener('DOMContentLoaded', function() {
         isEditMode: true,
         errorMessage: null,
         successMessage: null,
+        progressMessage: null,
+        nextCursor: null,
+        pageParams: null,
         filterText: '',
         editRow: null,
         origEditRow: null,
@@ -234,6 +383,8 @@ document.addEventListener('DOMContentLoaded', function() {
             this.errorMessage = null;
             this.successMessage = null;
             this.analizeData = null;
+            this.nextCursor = null;
+            this.pageParams = null;
             this.filterText = '',
                 this.editRow = null;
             this.isEditMode = false;
@@ -248,6 +399,7 @@ document.addEventListener('DOMContentLoaded', function() {
                 analizeButtons: ANALIZE_BUTTONS,
                 model,
                 switchAnalizeType,
+                loadNextPage,
                 deleteAllData,
                 formatDate
             };
@@ -326,8 +478,8 @@ document.addEventListener('DOMContentLoaded', function() {
     if (fileInput) {
         fileInput.addEventListener('change', function(e) {
             if (e.target.files.length > 0) {
-                // Автоматически начинаем загрузку после выбора файла
-                uploadSelectedFile(e.target.files[0]);
+                // Автоматически начинаем загрузку после выбора файлов
+                uploadSelectedFiles(Array.from(e.target.files));
             }
         });
     }
@@ -0,0 +1,96 @@
+package com.example.atmra.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.service.IAtmRepairService;
+
+@SpringBootTest(properties = "atm-repairs-analizer.jdbc-batch-size=50")
+class AtmRepairAggregateRepositoryTest {
+
+	private static final LocalDateTime PERIOD_START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+	@Autowired
+	private IAtmRepairService atmRepairService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) throws IOException {
+		Path database = Files.createTempFile("atm-repairs-aggregates-", ".sqlite");
+		database.toFile().deleteOnExit();
+		registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + database);
+	}
+
+	@Test
+	void updateAfterSeveralBatchesEqualsRebuild() {
+		atmRepairService.deleteAll();
+		Random random = new Random(17);
+		for (int round = 0; round < 6; round++) {
+			// Идентификаторы повторяются между раундами, поэтому ремонты переходят между АТМ,
+			// причинами и датами, а повторные поломки появляются и исчезают
+			List<AtmRepairDto> dtoList = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				dtoList.add(repair(1 + random.nextInt(400), random));
+			}
+			atmRepairService.createOrUpdate(dtoList);
+
+			assertThat(atmRepairService.checkAggregates().isConsistent())
+					.as("round %d", round).isTrue();
+		}
+
+		List<Map<String, Object>> reasonCounts = reasonCounts();
+		List<Map<String, Object>> recurrences = recurrences();
+		assertThat(reasonCounts).isNotEmpty();
+		assertThat(recurrences).isNotEmpty();
+
+		assertThat(atmRepairService.rebuildAggregates().isConsistent()).isTrue();
+
+		assertThat(reasonCounts()).isEqualTo(reasonCounts);
+		assertThat(recurrences()).isEqualTo(recurrences);
+		assertThat(atmRepairService.checkAggregates().isConsistent()).isTrue();
+	}
+
+	private static AtmRepairDto repair(long caseId, Random random) {
+		LocalDateTime startTime = PERIOD_START.plusHours(random.nextInt(90 * 24));
+		int atm = random.nextInt(8);
+		return AtmRepairDto.builder()
+				.caseId(caseId)
+				.atmId("ATM" + atm)
+				.reason("Причина " + random.nextInt(4))
+				.startTime(startTime)
+				.endTime(startTime.plusHours(1 + random.nextInt(48)))
+				.serialNumber("SN" + atm)
+				.bankName("Банк")
+				.channel("Канал")
+				.build();
+	}
+
+	private List<Map<String, Object>> reasonCounts() {
+		return jdbcTemplate.queryForList(
+				"SELECT reason, repair_count FROM repair_reason_counts ORDER BY reason");
+	}
+
+	private List<Map<String, Object>> recurrences() {
+		return jdbcTemplate.queryForList(
+				"SELECT case_id, atm_id, reason, start_time FROM repair_recurrences ORDER BY case_id");
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.example.atmra.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairFilterDto;
+import com.example.atmra.entity.TimeStorageMode;
+import com.example.atmra.service.IAtmRepairService;
+
+/**
+ * Обновление БД, созданной первой версией приложения: текстовые колонки и даты текстом ISO.
+ */
+@SpringBootTest(properties = "atm-repairs-analizer.time-storage=EPOCH_SECONDS")
+@DirtiesContext
+class AtmRepairSchemaMigratorTest {
+
+	private static final LocalDateTime START_TIME = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+	@Autowired
+	private IAtmRepairService atmRepairService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) throws IOException, SQLException {
+		Path database = Files.createTempFile("atm-repairs-baseline-", ".sqlite");
+		database.toFile().deleteOnExit();
+		createBaseline(database);
+		registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + database);
+	}
+
+	@AfterAll
+	static void restoreTimeStorage() {
+		TimeStorageMode.activate(TimeStorageMode.ISO_TEXT);
+	}
+
+	@Test
+	void replacesTextColumnsWithDictionaryRefs() {
+		Map<String, String> columns = jdbcTemplate
+				.queryForList("SELECT name, type FROM pragma_table_info('repairs')").stream()
+				.collect(Collectors.toMap(column -> (String) column.get("name"),
+						column -> (String) column.get("type")));
+
+		assertThat(columns).doesNotContainKeys("atm_id", "reason", "serial_number", "bank_nm",
+				"channel");
+		assertThat(columns).containsKeys("atm_ref", "reason_ref", "serial_number_ref",
+				"bank_ref", "channel_ref", "duration_seconds");
+		assertThat(jdbcTemplate.queryForList("SELECT name FROM repair_reasons ORDER BY name",
+				String.class)).containsExactly("Причина 1", "Причина 2");
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT count(*) FROM repairs WHERE atm_ref = 0 OR reason_ref = 0 "
+						+ "OR serial_number_ref = 0 OR bank_ref = 0 OR channel_ref = 0",
+				Integer.class)).isZero();
+		assertThat(jdbcTemplate.queryForList(
+				"SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = 'repairs'",
+				String.class)).doesNotContain("idx_atmId_reason", "idx_reason");
+	}
+
+	@Test
+	void convertsTimesToEpochSeconds() {
+		Map<String, String> columns = jdbcTemplate
+				.queryForList("SELECT name, type FROM pragma_table_info('repairs')").stream()
+				.collect(Collectors.toMap(column -> (String) column.get("name"),
+						column -> (String) column.get("type")));
+
+		assertThat(columns).containsEntry("start_time", "NUMERIC")
+				.containsEntry("end_time", "NUMERIC");
+		assertThat(jdbcTemplate.queryForList(
+				"SELECT DISTINCT typeof(start_time) FROM repairs", String.class))
+				.containsExactly("integer");
+		assertThat(jdbcTemplate.queryForList(
+				"SELECT duration_seconds FROM repairs ORDER BY case_id", Long.class))
+				.containsExactly(3 * 3600L, 3600L, null);
+	}
+
+	@Test
+	void keepsRepairValues() {
+		List<AtmRepairDto> repairs = new ArrayList<>();
+		atmRepairService.streamAll(new AtmRepairFilterDto(), repairs::add);
+		repairs.sort((a, b) -> Long.compare(a.getCaseId(), b.getCaseId()));
+
+		assertThat(repairs).hasSize(3);
+		assertThat(repairs.get(0)).usingRecursiveComparison().isEqualTo(AtmRepairDto.builder()
+				.caseId(1L)
+				.atmId("ATM1")
+				.reason("Причина 1")
+				.startTime(START_TIME)
+				.endTime(START_TIME.plusHours(3))
+				.serialNumber("SN1")
+				.bankName("Банк")
+				.channel("Канал")
+				.build());
+		assertThat(repairs.get(2).getEndTime()).isNull();
+		assertThat(atmRepairService.checkAggregates().isConsistent()).isTrue();
+
+		List<AtmRepairDto> filtered = new ArrayList<>();
+		atmRepairService.streamAll(AtmRepairFilterDto.builder().reason("Причина 2").build(),
+				filtered::add);
+		assertThat(filtered).extracting(AtmRepairDto::getCaseId).containsExactly(2L);
+	}
+
+	/**
+	 * Создает БД со схемой и данными первой версии приложения.
+	 */
+	private static void createBaseline(Path database) throws SQLException {
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database);
+				Statement statement = connection.createStatement()) {
+			statement.execute("""
+					CREATE TABLE repairs (
+					    case_id INTEGER NOT NULL,
+					    atm_id TEXT NOT NULL,
+					    bank_nm TEXT NOT NULL,
+					    channel TEXT NOT NULL,
+					    end_time TEXT,
+					    reason TEXT NOT NULL,
+					    serial_number TEXT NOT NULL,
+					    start_time TEXT NOT NULL,
+					    PRIMARY KEY (case_id)
+					)
+					""");
+			statement.execute("CREATE INDEX idx_atmId_reason ON repairs (atm_id, reason)");
+			statement.execute("CREATE INDEX idx_reason ON repairs (reason)");
+			try (PreparedStatement insert = connection.prepareStatement("""
+					INSERT INTO repairs (case_id, atm_id, bank_nm, channel, end_time, reason,
+					                     serial_number, start_time)
+					VALUES (?, ?, 'Банк', 'Канал', ?, ?, ?, ?)
+					""")) {
+				insert(insert, 1, "ATM1", "Причина 1", START_TIME, START_TIME.plusHours(3));
+				insert(insert, 2, "ATM2", "Причина 2", START_TIME.plusDays(1),
+						START_TIME.plusDays(1).plusHours(1));
+				insert(insert, 3, "ATM1", "Причина 1", START_TIME.plusDays(2), null);
+			}
+		}
+	}
+
+	private static void insert(PreparedStatement insert, long caseId, String atmId,
+			String reason, LocalDateTime startTime, LocalDateTime endTime) throws SQLException {
+		insert.setLong(1, caseId);
+		insert.setString(2, atmId);
+		insert.setString(3, endTime == null ? null
+				: DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(endTime));
+		insert.setString(4, reason);
+		insert.setString(5, "SN" + caseId);
+		insert.setString(6, DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(startTime));
+		insert.executeUpdate();
+	}
+
+}
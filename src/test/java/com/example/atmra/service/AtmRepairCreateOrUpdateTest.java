@@ -0,0 +1,114 @@
+package com.example.atmra.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairFilterDto;
+import com.example.atmra.dto.AtmRepairImportResultDto;
+
+@SpringBootTest(properties = "atm-repairs-analizer.jdbc-batch-size=2")
+class AtmRepairCreateOrUpdateTest {
+
+	private static final LocalDateTime START_TIME = LocalDateTime.of(2024, 3, 1, 10, 0);
+
+	@Autowired
+	private IAtmRepairService atmRepairService;
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) throws IOException {
+		Path database = Files.createTempFile("atm-repairs-upsert-", ".sqlite");
+		database.toFile().deleteOnExit();
+		registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + database);
+	}
+
+	@BeforeEach
+	void clear() {
+		atmRepairService.deleteAll();
+	}
+
+	@Test
+	void countsInsertedUpdatedAndUnchanged() {
+		assertResult(atmRepairService.createOrUpdate(List.of(repair(1, "R1"), repair(2, "R1"),
+				repair(3, "R2"))), 3, 0, 0);
+
+		assertResult(atmRepairService.createOrUpdate(List.of(repair(1, "R1"), repair(2, "R1"),
+				repair(3, "R2"))), 0, 0, 3);
+
+		assertResult(atmRepairService.createOrUpdate(List.of(repair(1, "R1"), repair(2, "R3"),
+				repair(3, "R2"), repair(4, "R1"))), 1, 1, 2);
+
+		assertThat(findAll())
+				.extracting(AtmRepairDto::getCaseId, AtmRepairDto::getReason)
+				.containsExactlyInAnyOrder(tuple(1L, "R1"), tuple(2L, "R3"), tuple(3L, "R2"),
+						tuple(4L, "R1"));
+	}
+
+	@Test
+	void keepsLastOfDuplicateCaseIdsInOneCall() {
+		assertResult(atmRepairService.createOrUpdate(List.of(repair(10, "R1"), repair(11, "R1"),
+				repair(10, "R2"), repair(10, "R3"))), 2, 0, 0);
+
+		assertThat(findAll())
+				.filteredOn(dto -> dto.getCaseId() == 10L)
+				.singleElement()
+				.extracting(AtmRepairDto::getReason)
+				.isEqualTo("R3");
+
+		assertResult(atmRepairService.createOrUpdate(List.of(repair(10, "R3"), repair(10, "R1"))),
+				0, 1, 0);
+	}
+
+	@Test
+	void rejectsRepairWithoutCaseId() {
+		AtmRepairDto withoutCaseId = repair(5, "R1");
+		withoutCaseId.setCaseId(null);
+
+		assertThatIllegalArgumentException().isThrownBy(() -> atmRepairService
+				.createOrUpdate(Arrays.asList(repair(4, "R1"), withoutCaseId)));
+		assertThat(findAll()).isEmpty();
+	}
+
+	private List<AtmRepairDto> findAll() {
+		List<AtmRepairDto> repairs = new ArrayList<>();
+		atmRepairService.streamAll(new AtmRepairFilterDto(), repairs::add);
+		return repairs;
+	}
+
+	private static AtmRepairDto repair(long caseId, String reason) {
+		return AtmRepairDto.builder()
+				.caseId(caseId)
+				.atmId("ATM" + caseId % 2)
+				.reason(reason)
+				.startTime(START_TIME.plusDays(caseId))
+				.endTime(START_TIME.plusDays(caseId).plusHours(3))
+				.serialNumber("SN" + caseId % 2)
+				.bankName("Банк")
+				.channel("Канал")
+				.build();
+	}
+
+	private static void assertResult(AtmRepairImportResultDto result, int inserted, int updated,
+			int unchanged) {
+		assertThat(result.getInserted()).as("inserted").isEqualTo(inserted);
+		assertThat(result.getUpdated()).as("updated").isEqualTo(updated);
+		assertThat(result.getUnchanged()).as("unchanged").isEqualTo(unchanged);
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.example.atmra.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AtmRepairCsvReaderTest {
+
+	private static final String HEADER = "Номер;ID ATM;Причина;Начало;Окончание;Серийный номер;Банк;Канал";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void readsQuotedFieldsWithSeparatorsQuotesAndNewlines() throws IOException {
+		List<Object[]> rows = read(HEADER + "\n"
+				+ "1;\"ATM;1\";\"Причина \"\"А\"\"\nвторая строка\";2024-01-02 10:00;"
+				+ "02.01.2024 12:30:15;SN1;Банк;\"\"\n", false);
+
+		assertThat(rows).hasSize(1);
+		assertThat(rows.get(0)).containsExactly(1L, "ATM;1", "Причина \"А\"\nвторая строка",
+				LocalDateTime.of(2024, 1, 2, 10, 0), LocalDateTime.of(2024, 1, 2, 12, 30, 15),
+				"SN1", "Банк", null);
+	}
+
+	@Test
+	void readsCrlfWithBomAndCommaSeparator() throws IOException {
+		List<Object[]> rows = read("\uFEFF" + HEADER.replace(';', ',') + "\r\n"
+				+ "1,ATM1,Причина,2024-01-02T10:00:00,,SN1,Банк,Канал\r\n"
+				+ "\r\n"
+				+ "2,ATM2,\"Причина\r\nс переводом\",2024-01-03 11:00,,SN2,Банк,Канал", false);
+
+		assertThat(rows).hasSize(2);
+		assertThat(rows.get(0)).containsExactly(1L, "ATM1", "Причина",
+				LocalDateTime.of(2024, 1, 2, 10, 0), null, "SN1", "Банк", "Канал");
+		assertThat(rows.get(1)[0]).isEqualTo(2L);
+		assertThat(rows.get(1)[2]).isEqualTo("Причина\r\nс переводом");
+	}
+
+	@Test
+	void readsGzipLikePlainFile() throws IOException {
+		// Больше начального буфера распаковки, поэтому записи попадают на границы буфера
+		StringBuilder content = new StringBuilder(HEADER).append('\n');
+		int count = 0;
+		while (content.length() < 3 * AtmRepairCsvReader.BUFFER_SIZE) {
+			count++;
+			content.append(record(count, "\"Причина " + count + "\nс переводом\"")).append('\n');
+		}
+
+		List<Object[]> plain = read(content.toString(), false);
+		List<Object[]> gzip = read(content.toString(), true);
+
+		assertThat(plain).hasSize(count);
+		assertThat(gzip).hasSize(count);
+		for (int i = 0; i < count; i++) {
+			assertThat(gzip.get(i)).containsExactly(plain.get(i));
+		}
+		assertThat(gzip.get(count - 1)[2]).isEqualTo("Причина " + count + "\nс переводом");
+	}
+
+	@Test
+	void readsRecordSplitAcrossMappedWindows() throws IOException {
+		File file = dir.resolve("large.csv").toFile();
+		String split = record(1_000_000, "\"Причина\nна границе окна\"") + "\n";
+		int count = 0;
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			writer.write(HEADER + "\n");
+			long size = HEADER.getBytes(StandardCharsets.UTF_8).length + 1;
+			// Заполняет файл до начала записи за 10 байт до конца первого окна
+			long target = AtmRepairCsvReader.WINDOW_SIZE - 10;
+			while (size < target) {
+				count++;
+				String line = record(count, "Причина");
+				long rest = target - size - line.getBytes(StandardCharsets.UTF_8).length - 1;
+				if (rest < 200) {
+					// Последняя запись перед разделяемой дополняется до нужной длины
+					line = record(count, "Причина" + "0".repeat((int) rest));
+				}
+				writer.write(line + "\n");
+				size += line.getBytes(StandardCharsets.UTF_8).length + 1;
+			}
+			assertThat(size).isEqualTo(target);
+			writer.write(split);
+			writer.write(record(1_000_001, "Причина"));
+		}
+
+		List<Object[]> tail = new ArrayList<>();
+		int[] rows = new int[1];
+		AtmRepairCsvReader.read(file, values -> {
+			rows[0]++;
+			if ((Long) values[0] >= 1_000_000) {
+				tail.add(values);
+			}
+		});
+
+		assertThat(rows[0]).isEqualTo(count + 2);
+		assertThat(tail).hasSize(2);
+		assertThat(tail.get(0)[2]).isEqualTo("Причина\nна границе окна");
+		assertThat(tail.get(0)[7]).isEqualTo("Канал");
+		assertThat(tail.get(1)[0]).isEqualTo(1_000_001L);
+	}
+
+	@Test
+	void rejectsRecordWithoutCaseId() {
+		assertThatIOException()
+				.isThrownBy(() -> read(HEADER + "\n;ATM1;Причина;2024-01-02 10:00;;;;\n", false))
+				.withMessageContaining("не задан идентификатор ремонта");
+	}
+
+	@Test
+	void rejectsUnclosedQuote() {
+		assertThatIOException()
+				.isThrownBy(() -> read(HEADER + "\n1;\"ATM1;Причина;2024-01-02 10:00;;;;\n", false));
+	}
+
+	private static String record(long caseId, String reason) {
+		return caseId + ";ATM" + caseId % 100 + ";" + reason
+				+ ";2024-01-02 10:00:00;2024-01-02 12:00:00;SN" + caseId % 100 + ";Банк;Канал";
+	}
+
+	private List<Object[]> read(String content, boolean gzip) throws IOException {
+		File file = dir.resolve(gzip ? "repairs.csv.gz" : "repairs.csv").toFile();
+		try (OutputStream out = gzip ? new GZIPOutputStream(Files.newOutputStream(file.toPath()))
+				: Files.newOutputStream(file.toPath())) {
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+		List<Object[]> rows = new ArrayList<>();
+		AtmRepairCsvReader.read(file, rows::add);
+		return rows;
+	}
+
+}
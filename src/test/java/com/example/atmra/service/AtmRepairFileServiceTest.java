@@ -0,0 +1,165 @@
+package com.example.atmra.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.example.atmra.dto.AtmRepairImportResultDto;
+
+@SpringBootTest(properties = "atm-repairs-analizer.jdbc-batch-size=2")
+class AtmRepairFileServiceTest {
+
+	private static final LocalDateTime START_TIME = LocalDateTime.of(2024, 5, 1, 9, 0);
+
+	private static final String[] HEADER = { "Номер", "ID ATM", "Причина", "Начало", "Окончание",
+			"Серийный номер", "Банк", "Канал" };
+
+	@Autowired
+	private AtmRepairFileService atmRepairFileService;
+
+	@Autowired
+	private IAtmRepairService atmRepairService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@TempDir
+	Path dir;
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) throws IOException {
+		Path database = Files.createTempFile("atm-repairs-files-", ".sqlite");
+		database.toFile().deleteOnExit();
+		registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + database);
+	}
+
+	@BeforeEach
+	void clear() {
+		atmRepairService.deleteAll();
+	}
+
+	@Test
+	void savesAllSheetsOfWorkbook() throws IOException {
+		File file = dir.resolve("repairs.xlsx").toFile();
+		writeXlsx(file, List.of(caseIds(1, 5), caseIds(6, 8)));
+
+		AtmRepairImportResultDto result = atmRepairFileService.saveData(file);
+
+		assertThat(result.getInserted()).isEqualTo(8);
+		assertThat(result.getUpdated()).isZero();
+		assertThat(repairCount()).isEqualTo(8);
+		assertThat(atmRepairService.checkAggregates().isConsistent()).isTrue();
+	}
+
+	@Test
+	void savesAllFilesOfZip() throws IOException {
+		File xlsx = dir.resolve("first.xlsx").toFile();
+		writeXlsx(xlsx, List.of(caseIds(11, 14)));
+		StringBuilder csv = new StringBuilder(String.join(";", HEADER)).append('\n');
+		for (long caseId : caseIds(15, 17)) {
+			csv.append(caseId).append(";ATM").append(caseId % 3).append(";Причина ")
+					.append(caseId % 2).append(";2024-05-01 09:00:00;2024-05-01 11:00:00;SN")
+					.append(caseId % 3).append(";Банк;Канал\n");
+		}
+		File zip = dir.resolve("repairs.zip").toFile();
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip.toPath()))) {
+			out.putNextEntry(new ZipEntry("first.xlsx"));
+			Files.copy(xlsx.toPath(), out);
+			out.closeEntry();
+			out.putNextEntry(new ZipEntry("data/second.csv"));
+			out.write(csv.toString().getBytes(StandardCharsets.UTF_8));
+			out.closeEntry();
+		}
+
+		AtmRepairImportResultDto result = atmRepairFileService.saveData(zip);
+
+		assertThat(result.getInserted()).isEqualTo(7);
+		assertThat(repairCount()).isEqualTo(7);
+		assertThat(atmRepairService.checkAggregates().isConsistent()).isTrue();
+	}
+
+	@Test
+	void savesOtherSheetsWhenSheetFails() throws IOException {
+		File file = dir.resolve("partial.xlsx").toFile();
+		writeXlsx(file, List.of(caseIds(21, 24), Arrays.asList(null, 25L), caseIds(27, 28)));
+
+		assertThatIOException().isThrownBy(() -> atmRepairFileService.saveData(file))
+				.withMessageContaining("1 из 3");
+
+		assertThat(jdbcTemplate.queryForList("SELECT case_id FROM repairs ORDER BY case_id",
+				Long.class)).containsExactly(21L, 22L, 23L, 24L, 27L, 28L);
+		assertThat(atmRepairService.checkAggregates().isConsistent()).isTrue();
+	}
+
+	private static List<Long> caseIds(long from, long to) {
+		return LongStream.rangeClosed(from, to).boxed().toList();
+	}
+
+	/**
+	 * Записывает XLSX файл с листом на каждый набор идентификаторов. Идентификатор {@code null}
+	 * дает строку без идентификатора ремонта, из-за которой лист не загружается.
+	 */
+	private static void writeXlsx(File file, List<List<Long>> sheets) throws IOException {
+		try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+			CellStyle dateStyle = workbook.createCellStyle();
+			dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat()
+					.getFormat("dd.mm.yyyy hh:mm"));
+			for (List<Long> caseIds : sheets) {
+				Sheet sheet = workbook.createSheet();
+				Row header = sheet.createRow(0);
+				for (int i = 0; i < HEADER.length; i++) {
+					header.createCell(i).setCellValue(HEADER[i]);
+				}
+				for (Long caseId : caseIds) {
+					long n = caseId == null ? 0 : caseId;
+					Row row = sheet.createRow(sheet.getLastRowNum() + 1);
+					if (caseId != null) {
+						row.createCell(0).setCellValue(caseId);
+					}
+					row.createCell(1).setCellValue("ATM" + n % 3);
+					row.createCell(2).setCellValue("Причина " + n % 2);
+					row.createCell(3).setCellValue(START_TIME.plusHours(n));
+					row.getCell(3).setCellStyle(dateStyle);
+					row.createCell(4).setCellValue(START_TIME.plusHours(n + 2));
+					row.getCell(4).setCellStyle(dateStyle);
+					row.createCell(5).setCellValue("SN" + n % 3);
+					row.createCell(6).setCellValue("Банк");
+					row.createCell(7).setCellValue("Канал");
+				}
+			}
+			try (OutputStream out = Files.newOutputStream(file.toPath())) {
+				workbook.write(out);
+			}
+		}
+	}
+
+	private int repairCount() {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM repairs", Integer.class);
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.example.atmra.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest
+class AtmRepairImportDirectoryServiceTest {
+
+	private static final String HEADER = "Номер;ID ATM;Причина;Начало;Окончание;Серийный номер;Банк;Канал";
+
+	@Autowired
+	private AtmRepairImportDirectoryService importDirectoryService;
+
+	@Autowired
+	private IAtmRepairService atmRepairService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@TempDir
+	Path dir;
+
+	@DynamicPropertySource
+	static void database(DynamicPropertyRegistry registry) throws IOException {
+		Path database = Files.createTempFile("atm-repairs-import-dir-", ".sqlite");
+		database.toFile().deleteOnExit();
+		registry.add("spring.datasource.url", () -> "jdbc:sqlite:" + database);
+	}
+
+	@BeforeEach
+	void prepare() throws IOException {
+		atmRepairService.deleteAll();
+		Files.createDirectories(dir.resolve(AtmRepairImportDirectoryService.PROCESSED_DIR));
+		Files.createDirectories(dir.resolve(AtmRepairImportDirectoryService.FAILED_DIR));
+	}
+
+	@Test
+	void skipsFileWithKnownChecksum() throws IOException {
+		String content = csv(record(101, "R1"), record(102, "R2"));
+		write("first.csv", content);
+		pollUntilReady();
+
+		assertThat(repairCount()).isEqualTo(2);
+		atmRepairService.deleteAll();
+		double duplicates = count("duplicate");
+
+		write("second.csv", content);
+		pollUntilReady();
+
+		assertThat(repairCount()).isZero();
+		assertThat(count("duplicate")).isEqualTo(duplicates + 1);
+		assertThat(fileNames(AtmRepairImportDirectoryService.PROCESSED_DIR))
+				.containsExactlyInAnyOrder("first.csv", "second.csv");
+		assertThat(fileNames(null)).isEmpty();
+	}
+
+	@Test
+	void movesUnparsableFileToFailed() throws IOException {
+		double failed = count("failed");
+		write("broken.csv", HEADER + "\n;ATM1;Причина;2024-01-02 10:00;;;;\n");
+		pollUntilReady();
+
+		assertThat(count("failed")).isEqualTo(failed + 1);
+		assertThat(fileNames(AtmRepairImportDirectoryService.FAILED_DIR))
+				.containsExactly("broken.csv");
+		assertThat(fileNames(AtmRepairImportDirectoryService.PROCESSED_DIR)).isEmpty();
+		assertThat(fileNames(null)).isEmpty();
+	}
+
+	@Test
+	void prefixesNameWhenProcessedFileExists() throws IOException {
+		Path existing = dir.resolve(AtmRepairImportDirectoryService.PROCESSED_DIR)
+				.resolve("repairs.csv");
+		Files.writeString(existing, "ранее загруженный файл", StandardCharsets.UTF_8);
+		write("repairs.csv", csv(record(201, "R1")));
+		pollUntilReady();
+
+		assertThat(repairCount()).isEqualTo(1);
+		assertThat(Files.readString(existing, StandardCharsets.UTF_8))
+				.isEqualTo("ранее загруженный файл");
+		assertThat(fileNames(AtmRepairImportDirectoryService.PROCESSED_DIR))
+				.hasSize(2)
+				.contains("repairs.csv")
+				.anyMatch(name -> name.matches("\\d{8}-\\d{6}-repairs\\.csv"));
+	}
+
+	/**
+	 * Первый просмотр запоминает размер и время изменения файлов, второй загружает их.
+	 */
+	private void pollUntilReady() {
+		importDirectoryService.poll(dir);
+		importDirectoryService.poll(dir);
+	}
+
+	private void write(String name, String content) throws IOException {
+		Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+	}
+
+	private List<String> fileNames(String subdir) throws IOException {
+		try (Stream<Path> files = Files.list(subdir == null ? dir : dir.resolve(subdir))) {
+			return files.filter(Files::isRegularFile)
+					.map(file -> file.getFileName().toString())
+					.toList();
+		}
+	}
+
+	private int repairCount() {
+		return jdbcTemplate.queryForObject("SELECT count(*) FROM repairs", Integer.class);
+	}
+
+	private double count(String result) {
+		return meterRegistry.counter(AtmRepairImportDirectoryService.FILES_COUNTER, "result", result)
+				.count();
+	}
+
+	private static String csv(String... records) {
+		return HEADER + "\n" + String.join("\n", records) + "\n";
+	}
+
+	private static String record(long caseId, String reason) {
+		return caseId + ";ATM" + caseId % 10 + ";" + reason
+				+ ";2024-01-02 10:00:00;2024-01-02 12:00:00;SN" + caseId % 10 + ";Банк;Канал";
+	}
+
+}
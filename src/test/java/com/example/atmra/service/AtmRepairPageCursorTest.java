@@ -0,0 +1,79 @@
+package com.example.atmra.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import com.example.atmra.dto.AtmRepairPageRequestDto;
+
+class AtmRepairPageCursorTest {
+
+	@Test
+	void roundTripByCaseId() {
+		String cursor = AtmRepairPageCursor.encode(ScrollPosition.forward(Map.of("caseId", 42L)));
+
+		KeysetScrollPosition position = AtmRepairPageCursor.decode(request(
+				AtmRepairPageRequestDto.SORT_CASE_ID, cursor));
+
+		assertThat(position.getKeys()).containsExactly(Map.entry("caseId", 42L));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "2024-03-01T10:15:30", "2024-03-01T10:15", "2024-03-01T00:00" })
+	void roundTripByStartTime(String startTime) {
+		Map<String, Object> keys = new LinkedHashMap<>();
+		keys.put("startTime", LocalDateTime.parse(startTime));
+		keys.put("caseId", 7L);
+		String cursor = AtmRepairPageCursor.encode(ScrollPosition.forward(keys));
+
+		KeysetScrollPosition position = AtmRepairPageCursor.decode(request(
+				AtmRepairPageRequestDto.SORT_START_TIME, cursor));
+
+		assertThat(position.getKeys()).containsExactlyEntriesOf(keys);
+	}
+
+	@Test
+	void emptyCursorStartsFromBeginning() {
+		assertThat(AtmRepairPageCursor.decode(request(AtmRepairPageRequestDto.SORT_CASE_ID, null))
+				.isInitial()).isTrue();
+	}
+
+	@Test
+	void rejectsCursorOfAnotherSort() {
+		String byCaseId = encode("42");
+		String byStartTime = encode("2024-03-01T10:15:30,42");
+
+		assertThatIllegalArgumentException().isThrownBy(() -> AtmRepairPageCursor.decode(
+				request(AtmRepairPageRequestDto.SORT_START_TIME, byCaseId)));
+		assertThatIllegalArgumentException().isThrownBy(() -> AtmRepairPageCursor.decode(
+				request(AtmRepairPageRequestDto.SORT_CASE_ID, byStartTime)));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "x", "2024-03-01T10:15:30,42,1", "not-a-date,42" })
+	void rejectsMalformedCursor(String value) {
+		assertThatIllegalArgumentException().isThrownBy(() -> AtmRepairPageCursor.decode(
+				request(AtmRepairPageRequestDto.SORT_START_TIME, encode(value))));
+	}
+
+	private static AtmRepairPageRequestDto request(String sort, String cursor) {
+		return AtmRepairPageRequestDto.builder().sort(sort).cursor(cursor).build();
+	}
+
+	private static String encode(String value) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+}
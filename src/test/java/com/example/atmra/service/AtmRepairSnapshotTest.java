@@ -0,0 +1,129 @@
+package com.example.atmra.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.example.atmra.dto.AtmRepairDto;
+import com.example.atmra.dto.AtmRepairFilterDto;
+import com.example.atmra.repository.AtmRepairDictionaryRepository;
+
+class AtmRepairSnapshotTest {
+
+	/** Больше минимального количества строк параллельного поиска */
+	private static final int ROWS = 200_000;
+
+	private static final int DAYS = 15;
+
+	private static final LocalDateTime PERIOD_START = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+	private static SingleConnectionDataSource dataSource;
+
+	private static AtmRepairSnapshot snapshot;
+
+	private static ForkJoinPool pool;
+
+	@BeforeAll
+	static void setUp() {
+		dataSource = new SingleConnectionDataSource("jdbc:sqlite::memory:", true);
+		AtmRepairDictionaryRepository dictionaries = new AtmRepairDictionaryRepository(
+				new NamedParameterJdbcTemplate(dataSource));
+		dictionaries.initialize();
+		List<AtmRepairDto> dtoList = generate(ROWS);
+		dictionaries.register(dtoList);
+		snapshot = new AtmRepairSnapshot(dictionaries);
+		snapshot.apply(dtoList);
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterAll
+	static void tearDown() {
+		pool.shutdownNow();
+		dataSource.destroy();
+	}
+
+	@Test
+	void parallelRecurrenceEqualsSequential() {
+		AtmRepairFilterDto all = new AtmRepairFilterDto();
+
+		List<String> sequential = describe(snapshot.findCauseFailureRecurred(DAYS, null, all));
+		List<String> parallel = describe(snapshot.findCauseFailureRecurred(DAYS, pool, all));
+
+		assertThat(sequential).isNotEmpty();
+		assertThat(parallel).isEqualTo(sequential);
+	}
+
+	@Test
+	void parallelRecurrenceEqualsSequentialWithFilter() {
+		AtmRepairFilterDto filter = AtmRepairFilterDto.builder()
+				.bankName("Банк 1")
+				.from(PERIOD_START.plusDays(30))
+				.to(PERIOD_START.plusDays(300))
+				.build();
+
+		List<String> sequential = describe(snapshot.findCauseFailureRecurred(DAYS, null, filter));
+		List<String> parallel = describe(snapshot.findCauseFailureRecurred(DAYS, pool, filter));
+
+		assertThat(sequential).isNotEmpty();
+		assertThat(parallel).isEqualTo(sequential);
+	}
+
+	@Test
+	void unknownFilterValueMatchesNothing() {
+		AtmRepairFilterDto filter = AtmRepairFilterDto.builder().reason("Нет такой причины").build();
+
+		assertThat(snapshot.findCauseFailureRecurred(DAYS, pool, filter)).isEmpty();
+		assertThat(snapshot.findMostCommonCauses(3, 0, filter)).isEmpty();
+	}
+
+	/**
+	 * Генерирует ремонты, часть из которых повторяет АТМ и причину предыдущего ремонта в течение
+	 * нескольких дней.
+	 */
+	private static List<AtmRepairDto> generate(int rows) {
+		Random random = new Random(42);
+		List<AtmRepairDto> result = new ArrayList<>(rows);
+		int atm = 0;
+		int reason = 0;
+		LocalDateTime startTime = PERIOD_START;
+		for (int caseId = 1; caseId <= rows; caseId++) {
+			if (caseId > 1 && random.nextInt(10) == 0) {
+				startTime = startTime.plusHours(1 + random.nextInt(20 * 24));
+			} else {
+				atm = random.nextInt(2_000);
+				reason = random.nextInt(20);
+				startTime = PERIOD_START.plusMinutes(random.nextInt(365 * 24 * 60));
+			}
+			result.add(AtmRepairDto.builder()
+					.caseId((long) caseId)
+					.atmId("ATM " + atm)
+					.reason("Причина " + reason)
+					.startTime(startTime)
+					.endTime(startTime.plusHours(2))
+					.serialNumber("SN " + atm)
+					.bankName("Банк " + atm % 5)
+					.channel("Канал " + caseId % 3)
+					.build());
+		}
+		return result;
+	}
+
+	private static List<String> describe(List<AtmRepairSnapshot.Group> groups) {
+		return groups.stream()
+				.map(group -> group.atmId() + "|" + group.reason() + "|" + group.count() + "|"
+						+ Arrays.toString(group.rows()))
+				.toList();
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.example.atmra.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class LongTopKTest {
+
+	@ParameterizedTest
+	@ValueSource(ints = { 0, 1, 3, 10, 999, 1000, 1001 })
+	void matchesFullSort(int k) {
+		Random random = new Random(k);
+		// Узкий диапазон значений дает повторы
+		long[] values = LongStream.generate(() -> random.nextLong(500) - 250).limit(1000)
+				.toArray();
+
+		LongTopK topK = new LongTopK(k);
+		Arrays.stream(values).forEach(topK::offer);
+
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		long[] expected = new long[Math.min(k, sorted.length)];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = sorted[sorted.length - 1 - i];
+		}
+		assertThat(topK.toDescendingArray()).containsExactly(expected);
+	}
+
+}